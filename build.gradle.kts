@@ -1,6 +1,7 @@
 plugins {
     id("java-library")
     id("com.github.johnrengelman.shadow") version "8.1.1"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "co.xenastudios"
@@ -26,6 +27,21 @@ dependencies {
     compileOnly("io.papermc.paper:paper-api:1.21.5-R0.1-SNAPSHOT")
 
     compileOnly("com.github.MilkBowl:VaultAPI:1.7.1")
+
+    // Benchmarks run outside a server, so Paper and Vault are replaced by the stand-ins in src/jmh/stubs;
+    // Adventure is the one library they use directly
+    jmh("net.kyori:adventure-text-minimessage:4.21.0")
+}
+
+sourceSets {
+    named("jmh") {
+        java.srcDir("src/jmh/stubs")
+    }
+}
+
+jmh {
+    // Run with e.g. ./gradlew jmh -PjmhThreads=8 to compare lock contention across thread counts
+    threads.set(providers.gradleProperty("jmhThreads").map { it.toInt() }.orElse(1))
 }
 
 tasks {
@@ -47,5 +63,10 @@ tasks {
 
     shadowJar {
         archiveFileName.set("${project.name}-${project.version}.jar")
+
+        // Offline storage migration: java -cp Economy.jar[:sqlite-jdbc.jar] <main class> <from> <to>
+        manifest {
+            attributes["Main-Class"] = "co.xenastudios.economy.storage.MigrationTool"
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package co.xenastudios.economy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures storing and looking up banknotes among those already outstanding, and the cost of the
+ * signed notes that replace them: marking one spent and checking its signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BanknoteBenchmark {
+	@Param({"100000"})
+	public int notes;
+
+	@Param({"binary", "mapped"})
+	public String backend;
+
+	private EconomyPlugin plugin;
+	private DataManager dataManager;
+	private BanknoteSigner signer;
+	private UUID[] issued;
+	private byte[][] signatures;
+	private long issuedAt;
+
+	@Setup
+	public void setup() throws IOException {
+		plugin = BenchmarkPlugin.start(Map.of(
+				"storage.backend", backend,
+				"leaderboard.enabled", false,
+				"history.enabled", false
+		));
+		dataManager = plugin.getDataManager();
+		signer = BanknoteSigner.load(plugin.getDataFolder().toPath().resolve("banknote.key"));
+
+		issued = BenchmarkPlugin.accounts(notes);
+		dataManager.issueBanknotes(List.of(issued), 100.0D);
+		issuedAt = System.currentTimeMillis();
+		signatures = new byte[notes][];
+		for (int i = 0; i < notes; i++) {
+			signatures[i] = signer.sign(issued[i], 10_000L, issuedAt);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		BenchmarkPlugin.stop(plugin);
+	}
+
+	@Benchmark
+	public boolean issue() {
+		return dataManager.issueBanknote(UUID.randomUUID(), 100.0D);
+	}
+
+	@Benchmark
+	public Double lookUp() {
+		return dataManager.getBanknote(issued[ThreadLocalRandom.current().nextInt(notes)]);
+	}
+
+	@Benchmark
+	public boolean spendSigned() {
+		return dataManager.spendBanknote(UUID.randomUUID());
+	}
+
+	@Benchmark
+	public boolean verifySignature() {
+		int note = ThreadLocalRandom.current().nextInt(notes);
+		return signer.verify(issued[note], 10_000L, issuedAt, signatures[note]);
+	}
+}
@@ -0,0 +1,94 @@
+package co.xenastudios.economy;
+
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.OfflinePlayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Vault economy calls other plugins make most, with the default config.
+ * Random accounts show the uncontended cost; the shared account variants show contention once
+ * run with several threads (-PjmhThreads=1, 4, 8...).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BasicEconomyBenchmark {
+	@Param({"10000"})
+	public int accounts;
+
+	private EconomyPlugin plugin;
+	private BasicEconomy economy;
+	private OfflinePlayer[] players;
+
+	@Setup
+	public void setup() throws IOException {
+		plugin = BenchmarkPlugin.start(Map.of());
+		economy = new BasicEconomy(plugin);
+		players = new OfflinePlayer[accounts];
+		UUID[] ids = BenchmarkPlugin.accounts(accounts);
+		for (int i = 0; i < accounts; i++) {
+			players[i] = BenchmarkPlugin.player(ids[i]);
+			// Enough that withdrawals never run out
+			economy.depositPlayer(players[i], 1_000_000_000.0D);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		BenchmarkPlugin.stop(plugin);
+	}
+
+	@Benchmark
+	public double getBalance() {
+		return economy.getBalance(randomPlayer());
+	}
+
+	@Benchmark
+	public EconomyResponse deposit() {
+		return economy.depositPlayer(randomPlayer(), 1.25D);
+	}
+
+	@Benchmark
+	public EconomyResponse withdraw() {
+		return economy.withdrawPlayer(randomPlayer(), 1.25D);
+	}
+
+	@Benchmark
+	public EconomyResponse depositSharedAccount() {
+		return economy.depositPlayer(players[0], 1.25D);
+	}
+
+	@Benchmark
+	public EconomyResponse withdrawSharedAccount() {
+		return economy.withdrawPlayer(players[0], 1.25D);
+	}
+
+	@Benchmark
+	public String format() {
+		return economy.format(ThreadLocalRandom.current().nextInt(100_000_000) / 100.0D);
+	}
+
+	private OfflinePlayer randomPlayer() {
+		return players[ThreadLocalRandom.current().nextInt(accounts)];
+	}
+}
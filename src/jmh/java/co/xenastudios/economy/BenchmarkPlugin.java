@@ -0,0 +1,104 @@
+package co.xenastudios.economy;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Starts the plugin's data layer in a temporary folder, on the stand-in Bukkit types under src/jmh/stubs.
+ * onEnable needs a running server, so only the settings and the data manager are set up.
+ */
+final class BenchmarkPlugin {
+
+	// Private constructor to prevent instantiation
+	private BenchmarkPlugin() {
+		throw new UnsupportedOperationException("Utility class");
+	}
+
+	/**
+	 * Creates a plugin with a data manager over a new temporary data folder.
+	 *
+	 * @param config The config values differing from the defaults.
+	 * @return The plugin.
+	 * @throws IOException If the data folder could not be created.
+	 */
+	static EconomyPlugin start(Map<String, Object> config) throws IOException {
+		FileConfiguration fileConfig = new FileConfiguration();
+		config.forEach(fileConfig::set);
+
+		EconomyPlugin plugin = new EconomyPlugin();
+		plugin.initialize(Files.createTempDirectory("economy-benchmark").toFile(), fileConfig);
+		plugin.reloadSettings();
+		restart(plugin);
+		return plugin;
+	}
+
+	/**
+	 * Replaces the plugin's data manager with a new one, which loads everything the old one saved.
+	 *
+	 * @param plugin The plugin.
+	 */
+	static void restart(EconomyPlugin plugin) {
+		try {
+			Field field = EconomyPlugin.class.getDeclaredField("dataManager");
+			field.setAccessible(true);
+			field.set(plugin, new DataManager(plugin));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to set the data manager", e);
+		}
+	}
+
+	/**
+	 * Shuts the data manager down and deletes the data folder.
+	 *
+	 * @param plugin The plugin.
+	 * @throws IOException If the data folder could not be deleted.
+	 */
+	static void stop(EconomyPlugin plugin) throws IOException {
+		plugin.getDataManager().shutdown();
+		try (Stream<Path> files = Files.walk(plugin.getDataFolder().toPath())) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	/**
+	 * Creates random account UUIDs.
+	 *
+	 * @param count The number of accounts.
+	 * @return The account UUIDs.
+	 */
+	static UUID[] accounts(int count) {
+		UUID[] accounts = new UUID[count];
+		for (int i = 0; i < count; i++) {
+			accounts[i] = UUID.randomUUID();
+		}
+		return accounts;
+	}
+
+	/**
+	 * @return A player with the given account, as the economy sees one.
+	 */
+	static OfflinePlayer player(UUID account) {
+		return new OfflinePlayer() {
+			@Override
+			public UUID getUniqueId() {
+				return account;
+			}
+
+			@Override
+			public String getName() {
+				return account.toString().substring(0, 16);
+			}
+		};
+	}
+}
@@ -0,0 +1,100 @@
+package co.xenastudios.economy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving and loading every balance with the file backends, at several account counts.
+ * Each save follows 1000 balance changes, as a background save would; full reloads read every
+ * account back, as on startup. Write-behind, the journal, the history and the leaderboard are
+ * left out so only the backend is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class DataManagerBenchmark {
+	// Balance changes between saves
+	private static final int CHANGES = 1000;
+
+	@Param({"10000", "100000", "1000000"})
+	public int accounts;
+
+	@Param({"binary", "mapped"})
+	public String backend;
+
+	private EconomyPlugin plugin;
+	private DataManager dataManager;
+	private UUID[] ids;
+
+	@Setup
+	public void setup() throws IOException {
+		plugin = BenchmarkPlugin.start(Map.of(
+				"storage.backend", backend,
+				"storage.cache.max-accounts", 0,
+				// Saved only when measured
+				"storage.write-behind.interval", 86400L,
+				"storage.write-behind.max-pending", Integer.MAX_VALUE,
+				"storage.journal.enabled", false,
+				"leaderboard.enabled", false,
+				"history.enabled", false
+		));
+		dataManager = plugin.getDataManager();
+		ids = BenchmarkPlugin.accounts(accounts);
+		for (UUID id : ids) {
+			dataManager.setBalanceMinor(id, ThreadLocalRandom.current().nextLong(1_000_000_000L));
+		}
+		dataManager.savePlayerData();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		BenchmarkPlugin.stop(plugin);
+	}
+
+	/**
+	 * Changes a batch of balances before each save, outside the measured time.
+	 */
+	@State(Scope.Thread)
+	public static class Changes {
+		@Setup(Level.Invocation)
+		public void change(DataManagerBenchmark benchmark) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			for (int i = 0; i < CHANGES; i++) {
+				UUID account = benchmark.ids[random.nextInt(benchmark.accounts)];
+				benchmark.dataManager.setBalanceMinor(account, random.nextLong(1_000_000_000L));
+			}
+		}
+	}
+
+	@Benchmark
+	public void save(Changes changes) {
+		dataManager.savePlayerData();
+	}
+
+	@Benchmark
+	public void load() {
+		dataManager.reloadPlayerData();
+	}
+}
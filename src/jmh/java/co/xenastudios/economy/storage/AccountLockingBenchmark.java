@@ -0,0 +1,83 @@
+package co.xenastudios.economy.storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Measures deposit throughput on distinct accounts with one global lock versus striped account locks.
+ * Run with several thread counts (-PjmhThreads=1, 4, 8...) to see how each mode scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountLockingBenchmark {
+	@Param({"10000"})
+	public int accounts;
+
+	@Param({"256"})
+	public int stripes;
+
+	private UUID[] ids;
+	private BalanceTable balances;
+	private AccountLocks accountLocks;
+	private final ReentrantLock globalLock = new ReentrantLock();
+
+	@Setup
+	public void setup() {
+		ids = new UUID[accounts];
+		balances = new BalanceTable(accounts);
+		for (int i = 0; i < accounts; i++) {
+			ids[i] = UUID.randomUUID();
+			balances.put(ids[i].getMostSignificantBits(), ids[i].getLeastSignificantBits(), 0L);
+		}
+		accountLocks = new AccountLocks(stripes);
+	}
+
+	@Benchmark
+	public long depositGlobalLock() {
+		UUID account = ids[ThreadLocalRandom.current().nextInt(accounts)];
+		globalLock.lock();
+		try {
+			return deposit(account);
+		} finally {
+			globalLock.unlock();
+		}
+	}
+
+	@Benchmark
+	public long depositStripedLocks() {
+		UUID account = ids[ThreadLocalRandom.current().nextInt(accounts)];
+		ReentrantLock lock = accountLocks.lockFor(account);
+		lock.lock();
+		try {
+			return deposit(account);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private long deposit(UUID account) {
+		long msb = account.getMostSignificantBits();
+		long lsb = account.getLeastSignificantBits();
+		long balance = balances.get(msb, lsb, 0L) + 100L;
+		balances.put(msb, lsb, balance);
+		return balance;
+	}
+}
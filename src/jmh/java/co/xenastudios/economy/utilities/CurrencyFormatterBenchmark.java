@@ -0,0 +1,62 @@
+package co.xenastudios.economy.utilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link CurrencyFormatter} against the per-call DecimalFormat it replaced in BasicEconomy.format.
+ * Run with -prof gc to compare allocation per operation as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrencyFormatterBenchmark {
+	@Param({"0.5", "1234.56", "98765432.1"})
+	public double amount;
+
+	private CurrencyFormatter formatter;
+	private StringBuilder builder;
+	private long amountMinor;
+
+	@Setup
+	public void setup() {
+		formatter = new CurrencyFormatter("$", false, Locale.US, true);
+		builder = new StringBuilder(32);
+		amountMinor = MoneyUtility.toMinor(amount);
+	}
+
+	@Benchmark
+	public String decimalFormatPerCall() {
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.US);
+		DecimalFormat format = new DecimalFormat("$#,##0.00", symbols);
+		return format.format(amount);
+	}
+
+	@Benchmark
+	public String currencyFormatter() {
+		return formatter.format(amount);
+	}
+
+	@Benchmark
+	public StringBuilder currencyFormatterReusedBuilder() {
+		builder.setLength(0);
+		return formatter.formatTo(amountMinor, builder);
+	}
+}
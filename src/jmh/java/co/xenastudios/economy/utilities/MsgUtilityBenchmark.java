@@ -0,0 +1,70 @@
+package co.xenastudios.economy.utilities;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing a message with {@link MsgUtility#format} on every send against rendering a
+ * {@link MessageTemplate} parsed once, for a message with and without placeholders.
+ * Run with -prof gc to compare allocation per operation as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MsgUtilityBenchmark {
+	private static final String PLAIN = "<red>You do not have enough money!</red>";
+	private static final String PLACEHOLDERS = "<green>Gave <amount> to <player>. New balance: <balance></green>";
+
+	private MessageTemplate plainTemplate;
+	private MessageTemplate placeholderTemplate;
+
+	@Setup
+	public void setup() {
+		plainTemplate = MessageTemplate.compile(PLAIN);
+		placeholderTemplate = MessageTemplate.compile(PLACEHOLDERS);
+	}
+
+	@Benchmark
+	public Component formatPlain() {
+		return MsgUtility.format(PLAIN);
+	}
+
+	@Benchmark
+	public Component formatPlaceholders() {
+		return MsgUtility.format(
+				PLACEHOLDERS,
+				Placeholder.unparsed("amount", "$1,250.00"),
+				Placeholder.unparsed("player", "Notch"),
+				Placeholder.unparsed("balance", "$98,765.43")
+		);
+	}
+
+	@Benchmark
+	public Component renderPlain() {
+		return plainTemplate.render();
+	}
+
+	@Benchmark
+	public Component renderPlaceholders() {
+		return placeholderTemplate.render(
+				MessageTemplate.Variable.AMOUNT, "$1,250.00",
+				MessageTemplate.Variable.PLAYER, "Notch",
+				MessageTemplate.Variable.BALANCE, "$98,765.43"
+		);
+	}
+}
@@ -0,0 +1,7 @@
+package net.milkbowl.vault.economy;
+
+/**
+ * Stand-in for Vault's AbstractEconomy, whose deprecated name-based defaults the economy overrides anyway.
+ */
+public abstract class AbstractEconomy implements Economy {
+}
@@ -0,0 +1,7 @@
+package net.milkbowl.vault.economy;
+
+/**
+ * Stand-in for Vault's Economy; the benchmarks call the implementation directly.
+ */
+public interface Economy {
+}
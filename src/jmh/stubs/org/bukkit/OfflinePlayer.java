@@ -0,0 +1,12 @@
+package org.bukkit;
+
+import java.util.UUID;
+
+/**
+ * Stand-in for Bukkit's OfflinePlayer, with the parts the economy reads.
+ */
+public interface OfflinePlayer {
+	UUID getUniqueId();
+
+	String getName();
+}
@@ -0,0 +1,38 @@
+package org.bukkit.configuration.file;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stand-in for Bukkit's FileConfiguration: a flat map of paths to values, where unset paths read as the default.
+ */
+public class FileConfiguration {
+	private final Map<String, Object> values = new HashMap<>();
+
+	public void set(String path, Object value) {
+		values.put(path, value);
+	}
+
+	public String getString(String path, String def) {
+		Object value = values.get(path);
+		return value != null ? value.toString() : def;
+	}
+
+	public boolean getBoolean(String path, boolean def) {
+		return values.get(path) instanceof Boolean value ? value : def;
+	}
+
+	public int getInt(String path, int def) {
+		return values.get(path) instanceof Number value ? value.intValue() : def;
+	}
+
+	public long getLong(String path, long def) {
+		return values.get(path) instanceof Number value ? value.longValue() : def;
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<String> getStringList(String path) {
+		return values.get(path) instanceof List<?> value ? (List<String>) value : List.of();
+	}
+}
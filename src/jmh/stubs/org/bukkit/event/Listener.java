@@ -0,0 +1,7 @@
+package org.bukkit.event;
+
+/**
+ * Stand-in for Bukkit's Listener, which the plugin's listeners implement.
+ */
+public interface Listener {
+}
@@ -0,0 +1,7 @@
+package org.bukkit.plugin;
+
+/**
+ * Stand-in for Bukkit's Plugin, which the benchmarks need only as a type.
+ */
+public interface Plugin {
+}
@@ -0,0 +1,59 @@
+package org.bukkit.plugin.java;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+/**
+ * Stand-in for Bukkit's JavaPlugin, serving the data folder and config a benchmark sets instead of a server's.
+ */
+public abstract class JavaPlugin implements Plugin {
+	private final Logger logger = Logger.getLogger(getClass().getSimpleName());
+	private File dataFolder = new File(".");
+	private FileConfiguration config = new FileConfiguration();
+
+	/**
+	 * Points the plugin at its data folder and config, as the server does when loading it.
+	 *
+	 * @param dataFolder The data folder.
+	 * @param config     The config.
+	 */
+	public void initialize(File dataFolder, FileConfiguration config) {
+		this.dataFolder = dataFolder;
+		this.config = config;
+	}
+
+	public File getDataFolder() {
+		return dataFolder;
+	}
+
+	public FileConfiguration getConfig() {
+		return config;
+	}
+
+	public Logger getLogger() {
+		return logger;
+	}
+
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+
+	public boolean isEnabled() {
+		return true;
+	}
+
+	public void saveDefaultConfig() {
+	}
+
+	public void reloadConfig() {
+	}
+
+	public void onEnable() {
+	}
+
+	public void onDisable() {
+	}
+}
@@ -0,0 +1,71 @@
+package co.xenastudios.economy;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps the accounts of online players in memory when accounts are loaded on demand.
+ * <p>
+ * An account is loaded while its player logs in, on the login thread, so the main thread finds it
+ * in memory; it is then kept from eviction until the player quits.
+ */
+public final class AccountListener implements Listener {
+	private final EconomyPlugin plugin;
+
+	/**
+	 * Constructs a new AccountListener.
+	 *
+	 * @param plugin The main plugin instance.
+	 */
+	public AccountListener(@NotNull EconomyPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Pins the accounts of players already online, e.g. after a reload.
+	 */
+	public void pinOnlinePlayers() {
+		DataManager dataManager = plugin.getDataManager();
+		for (Player player : plugin.getServer().getOnlinePlayers()) {
+			dataManager.pinAccount(player.getUniqueId());
+		}
+	}
+
+	/**
+	 * Loads the account of a player who is allowed to log in.
+	 *
+	 * @param event The async pre-login event.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+		if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+		try {
+			plugin.getDataManager().preloadAccount(event.getUniqueId());
+		} catch (IllegalStateException e) {
+			// Already logged; the account is loaded again on first use
+		}
+	}
+
+	/**
+	 * @param event The player join event.
+	 */
+	@EventHandler(priority = EventPriority.LOWEST)
+	public void onPlayerJoin(PlayerJoinEvent event) {
+		plugin.getDataManager().pinAccount(event.getPlayer().getUniqueId());
+	}
+
+	/**
+	 * @param event The player quit event.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		plugin.getDataManager().unpinAccount(event.getPlayer().getUniqueId());
+	}
+}
@@ -0,0 +1,37 @@
+package co.xenastudios.economy;
+
+import org.bukkit.NamespacedKey;
+
+/**
+ * The persistent data keys of banknote items.
+ * <p>
+ * They live under the plugin's namespace ("economy"), the same keys {@code new NamespacedKey(plugin, ...)}
+ * produced, so notes issued before they were made constants stay readable.
+ */
+public final class BanknoteKeys {
+	private static final String NAMESPACE = "economy";
+
+	/**
+	 * The banknote's UUID, as a string.
+	 */
+	public static final NamespacedKey UUID = new NamespacedKey(NAMESPACE, "banknote_uuid");
+
+	/**
+	 * A signed banknote's value in minor units.
+	 */
+	public static final NamespacedKey AMOUNT = new NamespacedKey(NAMESPACE, "banknote_amount");
+
+	/**
+	 * When a signed banknote was issued, in epoch milliseconds.
+	 */
+	public static final NamespacedKey ISSUED = new NamespacedKey(NAMESPACE, "banknote_issued");
+
+	/**
+	 * A signed banknote's HMAC signature.
+	 */
+	public static final NamespacedKey SIGNATURE = new NamespacedKey(NAMESPACE, "banknote_signature");
+
+	private BanknoteKeys() {
+		throw new UnsupportedOperationException("Utility class");
+	}
+}
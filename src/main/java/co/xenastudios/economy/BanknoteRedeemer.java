@@ -0,0 +1,302 @@
+package co.xenastudios.economy;
+
+import co.xenastudios.economy.jfr.BanknoteRedeemEvent;
+import co.xenastudios.economy.storage.TransactionLog;
+import co.xenastudios.economy.utilities.MessageTemplate;
+import co.xenastudios.economy.utilities.MessageTemplate.Variable;
+import co.xenastudios.economy.utilities.MoneyUtility;
+import co.xenastudios.economy.utilities.MsgUtility;
+import io.papermc.paper.persistence.PersistentDataContainerView;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.persistence.PersistentDataType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Redeems banknote items, one at a time or everything in a player's inventory at once.
+ * <p>
+ * Redeeming everything is one batch: one pass over the inventory, one write for the stored notes,
+ * one commit for the signed ones, one deposit and one message, however many notes are carried.
+ * Both are timed in the plugin's {@link OperationStats} and emitted as JFR events,
+ * leaving out items that are not banknotes.
+ */
+public final class BanknoteRedeemer {
+	private final EconomyPlugin plugin;
+
+	/**
+	 * A banknote as read from an item.
+	 *
+	 * @param uuid      The banknote UUID.
+	 * @param signature The signature of a signed note, or null for a stored one.
+	 * @param amount    The signed value in minor units; unused for stored notes.
+	 * @param issuedAt  When a signed note was issued, in epoch milliseconds; unused for stored notes.
+	 */
+	private record Note(@NotNull UUID uuid, byte @Nullable [] signature, long amount, long issuedAt) {
+	}
+
+	/**
+	 * Constructs a new BanknoteRedeemer.
+	 *
+	 * @param plugin The main plugin instance.
+	 */
+	public BanknoteRedeemer(@NotNull EconomyPlugin plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Checks whether an item is a banknote, without checking that it can still be redeemed.
+	 *
+	 * @param item The item.
+	 * @return true if the item is a banknote
+	 */
+	public boolean isBanknote(@Nullable ItemStack item) {
+		return read(item) != null;
+	}
+
+	/**
+	 * Redeems one banknote from a stack and tells the player the outcome.
+	 *
+	 * @param player The redeeming player.
+	 * @param item   The banknote stack; one item is taken from it if redeemed.
+	 * @return false if the item is not a banknote at all
+	 */
+	public boolean redeem(@NotNull Player player, @Nullable ItemStack item) {
+		Note note = read(item);
+		if (note == null) return false;
+
+		long start = System.nanoTime();
+		BanknoteRedeemEvent event = new BanknoteRedeemEvent();
+		event.begin();
+		DataManager dataManager = plugin.getDataManager();
+		// Held until the payout, so the balance checked against the limit cannot change meanwhile
+		Lock lock = dataManager.getAccountLocks().lockFor(player.getUniqueId());
+		lock.lock();
+		try {
+			Long amount = note.signature() != null
+					? (verify(note) ? Long.valueOf(note.amount()) : null)
+					: dataManager.getBanknoteMinor(note.uuid());
+			if (amount != null && !fits(dataManager.getBalanceMinor(player.getUniqueId()), amount)) {
+				MessageTemplate limitMsg = plugin.getSettings().messages().banknoteLimit();
+				MsgUtility.send(player, limitMsg.render());
+				event.commit(player.getUniqueId(), 0, 0L);
+				return true;
+			}
+
+			// Redeem the banknote; only one redemption of a note ever gets its amount
+			if (amount != null) {
+				amount = note.signature() != null
+						? (dataManager.spendBanknote(note.uuid()) ? amount : null)
+						: dataManager.redeemBanknotes(List.of(note.uuid())).get(note.uuid());
+			}
+
+			if (amount == null) {
+				MessageTemplate invalidMsg = plugin.getSettings().messages().banknoteInvalid();
+				MsgUtility.send(player, invalidMsg.render());
+				event.commit(player.getUniqueId(), 0, 0L);
+				return true;
+			}
+
+			// Add the money to the player's balance and take one item from the stack
+			double payout = MoneyUtility.toMajor(amount);
+			deposit(player, payout, note.uuid());
+			item.setAmount(item.getAmount() - 1);
+
+			MessageTemplate redeemedMsg = plugin.getSettings().messages().banknoteRedeemed();
+			MsgUtility.send(
+					player,
+					redeemedMsg.render(Variable.AMOUNT, plugin.getEconomyHandler().format(payout))
+			);
+			event.commit(player.getUniqueId(), 1, amount);
+			return true;
+		} finally {
+			lock.unlock();
+			plugin.getStats().record(OperationStats.Operation.BANKNOTE_REDEEM, start);
+		}
+	}
+
+	/**
+	 * Redeems every banknote in the player's inventory as one batch and tells the player the total.
+	 * Notes that would take the balance over the limit are left in the inventory.
+	 *
+	 * @param player The redeeming player.
+	 */
+	public void redeemAll(@NotNull Player player) {
+		long start = System.nanoTime();
+		BanknoteRedeemEvent event = new BanknoteRedeemEvent();
+		event.begin();
+		DataManager dataManager = plugin.getDataManager();
+		// Held until the payout, so the balance checked against the limit cannot change meanwhile
+		Lock lock = dataManager.getAccountLocks().lockFor(player.getUniqueId());
+		lock.lock();
+		try {
+			PlayerInventory inventory = player.getInventory();
+			ItemStack[] contents = inventory.getStorageContents();
+			Note[] notes = new Note[contents.length];
+			long balance = dataManager.getBalanceMinor(player.getUniqueId());
+
+			// Pick the notes that fit under the limit, checking signatures before anything reaches the disk
+			List<UUID> stored = new ArrayList<>();
+			List<UUID> signed = new ArrayList<>();
+			Map<UUID, Long> amounts = new HashMap<>();
+			long picked = 0L;
+			boolean overLimit = false;
+			for (int slot = 0; slot < contents.length; slot++) {
+				Note note = read(contents[slot]);
+				if (note == null) continue;
+				notes[slot] = note;
+				// Copies of a note already picked can never pay out again
+				if (amounts.containsKey(note.uuid())) continue;
+
+				Long amount = note.signature() != null
+						? (verify(note) ? Long.valueOf(note.amount()) : null)
+						: dataManager.getBanknoteMinor(note.uuid());
+				if (amount == null) continue;
+				long total;
+				try {
+					total = Math.addExact(picked, amount);
+				} catch (ArithmeticException e) {
+					overLimit = true;
+					continue;
+				}
+				if (!fits(balance, total)) {
+					overLimit = true;
+					continue;
+				}
+
+				picked = total;
+				amounts.put(note.uuid(), amount);
+				(note.signature() != null ? signed : stored).add(note.uuid());
+			}
+
+			// Redeem each kind with a single write
+			Map<UUID, Long> payouts = stored.isEmpty() ? new HashMap<>() : new HashMap<>(dataManager.redeemBanknotes(stored));
+			if (!signed.isEmpty()) {
+				for (UUID uuid : dataManager.spendBanknotes(signed)) {
+					payouts.put(uuid, amounts.get(uuid));
+				}
+			}
+
+			// Take one item per redeemed note; copies of a note already taken stay behind as invalid
+			long total = 0L;
+			int count = 0;
+			UUID firstNote = null;
+			for (int slot = 0; slot < contents.length; slot++) {
+				if (notes[slot] == null) continue;
+				Long amount = payouts.remove(notes[slot].uuid());
+				if (amount == null) continue;
+
+				// A subset of the picked notes, so it cannot overflow
+				total += amount;
+				if (count++ == 0) {
+					firstNote = notes[slot].uuid();
+				}
+				contents[slot].setAmount(contents[slot].getAmount() - 1);
+			}
+
+			if (count == 0) {
+				MessageTemplate noneMsg = overLimit
+						? plugin.getSettings().messages().banknoteLimit()
+						: plugin.getSettings().messages().noBanknotes();
+				MsgUtility.send(player, noneMsg.render());
+				event.commit(player.getUniqueId(), 0, 0L);
+				return;
+			}
+
+			inventory.setStorageContents(contents);
+			double totalAmount = MoneyUtility.toMajor(total);
+			deposit(player, totalAmount, count == 1 ? firstNote : null);
+
+			MessageTemplate redeemedMsg = plugin.getSettings().messages().banknotesRedeemed();
+			MsgUtility.send(
+					player,
+					redeemedMsg.render(
+							Variable.AMOUNT, plugin.getEconomyHandler().format(totalAmount),
+							Variable.COUNT, String.valueOf(count)
+					)
+			);
+			event.commit(player.getUniqueId(), count, total);
+		} finally {
+			lock.unlock();
+			plugin.getStats().record(OperationStats.Operation.BANKNOTE_REDEEM_ALL, start);
+		}
+	}
+
+	/**
+	 * Checks that a payout can be deposited without going over the balance limit.
+	 * The payout is deposited as a double, so it is the rounded amount that has to fit.
+	 */
+	private static boolean fits(long balance, long payout) {
+		if (payout > MoneyUtility.MAX_MINOR) return false;
+		return MoneyUtility.toMinor(MoneyUtility.toMajor(payout)) <= MoneyUtility.MAX_MINOR - balance;
+	}
+
+	/**
+	 * Pays redeemed banknotes into the player's account, recorded in the transaction history
+	 * along with the note when only one was redeemed.
+	 */
+	private void deposit(@NotNull Player player, double amount, @Nullable UUID note) {
+		Economy economy = plugin.getEconomyHandler();
+		EconomyResponse response;
+		if (economy instanceof BasicEconomy basicEconomy) {
+			response = basicEconomy.depositPlayer(player, amount, TransactionLog.Type.BANKNOTE_REDEEM, note);
+		} else {
+			response = economy.depositPlayer(player, amount);
+		}
+
+		// The notes are already redeemed, so an admin has to pay them out by hand
+		if (!response.transactionSuccess()) {
+			plugin.getLogger().severe(
+					"Failed to pay " + amount + " from redeemed banknotes to " + player.getName()
+							+ " (" + player.getUniqueId() + "): " + response.errorMessage
+			);
+		}
+	}
+
+	private boolean verify(@NotNull Note note) {
+		return note.signature() != null
+				&& plugin.getBanknoteSigner().verify(note.uuid(), note.amount(), note.issuedAt(), note.signature());
+	}
+
+	/**
+	 * Reads the banknote data of an item.
+	 *
+	 * @return The banknote, or null if the item is not a banknote.
+	 */
+	private @Nullable Note read(@Nullable ItemStack item) {
+		if (item == null || item.getType() != Material.PAPER) return null;
+
+		// Read through the item's data view, which unlike getItemMeta() copies nothing
+		PersistentDataContainerView data = item.getPersistentDataContainer();
+		String uuidString = data.get(BanknoteKeys.UUID, PersistentDataType.STRING);
+		if (uuidString == null) return null;
+
+		UUID uuid;
+		try {
+			uuid = UUID.fromString(uuidString);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+
+		byte[] signature = data.get(BanknoteKeys.SIGNATURE, PersistentDataType.BYTE_ARRAY);
+		if (signature == null) {
+			return new Note(uuid, null, 0L, 0L);
+		}
+
+		// A signed note missing its amount or issue time can never verify, so it is read as forged
+		Long amount = data.get(BanknoteKeys.AMOUNT, PersistentDataType.LONG);
+		Long issuedAt = data.get(BanknoteKeys.ISSUED, PersistentDataType.LONG);
+		return new Note(uuid, signature, amount != null ? amount : -1L, issuedAt != null ? issuedAt : -1L);
+	}
+}
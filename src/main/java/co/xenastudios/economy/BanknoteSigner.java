@@ -0,0 +1,111 @@
+package co.xenastudios.economy;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Signs and verifies stateless banknotes with HMAC-SHA256.
+ * <p>
+ * A signed note carries its own UUID, amount and issue time, so the server keeps nothing for it
+ * until it is redeemed. The key is generated once into banknote.key; deleting or replacing that
+ * file invalidates every signed note still in circulation.
+ */
+public final class BanknoteSigner {
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final int KEY_SIZE = 32;
+
+	private final SecretKeySpec key;
+	// Mac instances are not thread-safe, and creating one per note means a provider lookup each time
+	private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::createMac);
+
+	private BanknoteSigner(byte @NotNull [] key) {
+		this.key = new SecretKeySpec(key, ALGORITHM);
+	}
+
+	/**
+	 * Loads the signing key, generating a new one if the file does not exist yet.
+	 *
+	 * @param keyFile The key file.
+	 * @return The signer.
+	 * @throws IOException If the key could not be read or written, or is not a valid key.
+	 */
+	public static @NotNull BanknoteSigner load(@NotNull Path keyFile) throws IOException {
+		if (Files.exists(keyFile)) {
+			byte[] key = Files.readAllBytes(keyFile);
+			if (key.length != KEY_SIZE) {
+				throw new IOException(keyFile.getFileName() + " does not hold a " + KEY_SIZE + "-byte key");
+			}
+			return new BanknoteSigner(key);
+		}
+
+		byte[] key = new byte[KEY_SIZE];
+		new SecureRandom().nextBytes(key);
+		Files.createDirectories(keyFile.toAbsolutePath().getParent());
+		Files.write(keyFile, key);
+		try {
+			Files.setPosixFilePermissions(keyFile, PosixFilePermissions.fromString("rw-------"));
+		} catch (UnsupportedOperationException ignored) {
+			// Not a POSIX file system; the file keeps the default permissions
+		}
+		return new BanknoteSigner(key);
+	}
+
+	/**
+	 * Signs a banknote.
+	 *
+	 * @param note     The banknote UUID.
+	 * @param amount   The banknote's value in minor units.
+	 * @param issuedAt When the note was issued, in epoch milliseconds.
+	 * @return The signature.
+	 */
+	public byte @NotNull [] sign(@NotNull UUID note, long amount, long issuedAt) {
+		Mac mac = macs.get();
+		mac.update(message(note, amount, issuedAt));
+		return mac.doFinal();
+	}
+
+	/**
+	 * Checks a banknote's signature in constant time.
+	 *
+	 * @param note      The banknote UUID.
+	 * @param amount    The banknote's value in minor units.
+	 * @param issuedAt  When the note was issued, in epoch milliseconds.
+	 * @param signature The signature carried by the note.
+	 * @return true if the signature matches
+	 */
+	public boolean verify(@NotNull UUID note, long amount, long issuedAt, byte @NotNull [] signature) {
+		return MessageDigest.isEqual(sign(note, amount, issuedAt), signature);
+	}
+
+	private static @NotNull ByteBuffer message(@NotNull UUID note, long amount, long issuedAt) {
+		return ByteBuffer.allocate(Long.BYTES * 4)
+				.putLong(note.getMostSignificantBits())
+				.putLong(note.getLeastSignificantBits())
+				.putLong(amount)
+				.putLong(issuedAt)
+				.flip();
+	}
+
+	private @NotNull Mac createMac() {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(key);
+			return mac;
+		} catch (NoSuchAlgorithmException | InvalidKeyException e) {
+			// Every Java runtime is required to provide HmacSHA256
+			throw new IllegalStateException("Failed to initialize " + ALGORITHM, e);
+		}
+	}
+}
@@ -1,21 +1,26 @@
 package co.xenastudios.economy;
 
+import co.xenastudios.economy.jfr.BalanceChangeEvent;
+import co.xenastudios.economy.jfr.TransferEvent;
+import co.xenastudios.economy.storage.AccountLocks;
+import co.xenastudios.economy.storage.TransactionLog;
+import co.xenastudios.economy.utilities.MoneyUtility;
 import net.milkbowl.vault.economy.AbstractEconomy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import net.milkbowl.vault.economy.EconomyResponse.ResponseType;
-import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Basic implementation of Vault's Economy API for Economy.
- * Handles player balances using DataManager and playerdata.yml.
+ * Handles player balances using DataManager.
  */
 public final class BasicEconomy extends AbstractEconomy {
 	private final EconomyPlugin plugin;
@@ -28,14 +33,16 @@ public final class BasicEconomy extends AbstractEconomy {
 		return plugin.getDataManager();
 	}
 
-	private @NotNull OfflinePlayer getPlayer(@NotNull String name) {
-		// Bukkit.getOfflinePlayer(String) is deprecated, but still required for legacy support
-		return Bukkit.getOfflinePlayer(name);
+	/**
+	 * Resolves a player name to an account without blocking on a profile lookup.
+	 *
+	 * @param name The player name.
+	 * @return The account UUID, or null if the player is not known yet.
+	 */
+	private @Nullable UUID resolve(@NotNull String name) {
+		return plugin.getNameCache().resolve(name);
 	}
 
-	private void setBalance(@NotNull OfflinePlayer player, double balance) {
-		getDataManager().setBalance(player, balance);
-	}
 
 	@Override
 	public boolean isEnabled() {
@@ -54,24 +61,22 @@ public final class BasicEconomy extends AbstractEconomy {
 
 	@Override
 	public int fractionalDigits() {
-		return 2;
+		return MoneyUtility.FRACTIONAL_DIGITS;
 	}
 
 	@Override
 	public @NotNull String format(double amount) {
-		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.US);
-		DecimalFormat format = new DecimalFormat("$#,##0.00", symbols);
-		return format.format(amount);
+		return plugin.getSettings().currency().formatter().format(amount);
 	}
 
 	@Override
 	public @NotNull String currencyNamePlural() {
-		return "$";
+		return plugin.getSettings().currency().namePlural();
 	}
 
 	@Override
 	public @NotNull String currencyNameSingular() {
-		return "$";
+		return plugin.getSettings().currency().nameSingular();
 	}
 
 	@Override
@@ -84,10 +89,20 @@ public final class BasicEconomy extends AbstractEconomy {
 		return true;
 	}
 
+	@Override
+	public boolean hasAccount(@NotNull OfflinePlayer player) {
+		return true;
+	}
+
+	@Override
+	public boolean hasAccount(@NotNull OfflinePlayer player, @NotNull String worldName) {
+		return true;
+	}
+
 	@Override
 	public double getBalance(@NotNull String playerName) {
-		OfflinePlayer player = getPlayer(playerName);
-		return getDataManager().getBalance(player);
+		UUID account = resolve(playerName);
+		return account == null ? 0.0D : getBalance(account);
 	}
 
 	@Override
@@ -95,9 +110,29 @@ public final class BasicEconomy extends AbstractEconomy {
 		return getBalance(playerName);
 	}
 
+	@Override
+	public double getBalance(@NotNull OfflinePlayer player) {
+		return getBalance(player.getUniqueId());
+	}
+
+	@Override
+	public double getBalance(@NotNull OfflinePlayer player, @NotNull String world) {
+		return getBalance(player.getUniqueId());
+	}
+
+	private double getBalance(@NotNull UUID account) {
+		long start = System.nanoTime();
+		try {
+			return MoneyUtility.toMajor(getDataManager().getBalanceMinor(account));
+		} finally {
+			plugin.getStats().record(OperationStats.Operation.GET_BALANCE, start);
+		}
+	}
+
 	@Override
 	public boolean has(@NotNull String playerName, double amount) {
-		return getBalance(playerName) >= amount;
+		UUID account = resolve(playerName);
+		return account == null ? amount <= 0.0D : has(account, amount);
 	}
 
 	@Override
@@ -106,40 +141,353 @@ public final class BasicEconomy extends AbstractEconomy {
 	}
 
 	@Override
-	public @NotNull EconomyResponse withdrawPlayer(@NotNull String playerName, double amount) {
-		synchronized (getDataManager()) {
-			OfflinePlayer player = getPlayer(playerName);
-			double balance = getDataManager().getBalance(player);
-			if (balance >= amount) {
-				double newBalance = balance - amount;
-				setBalance(player, newBalance);
-				return new EconomyResponse(amount, newBalance, ResponseType.SUCCESS, null);
-			}
-			return new EconomyResponse(amount, balance, ResponseType.FAILURE, "Not enough money.");
+	public boolean has(@NotNull OfflinePlayer player, double amount) {
+		return has(player.getUniqueId(), amount);
+	}
+
+	@Override
+	public boolean has(@NotNull OfflinePlayer player, @NotNull String worldName, double amount) {
+		return has(player.getUniqueId(), amount);
+	}
+
+	private boolean has(@NotNull UUID account, double amount) {
+		long start = System.nanoTime();
+		try {
+			if (!MoneyUtility.isValid(amount)) return false;
+			return getDataManager().getBalanceMinor(account) >= MoneyUtility.toMinor(amount);
+		} finally {
+			plugin.getStats().record(OperationStats.Operation.HAS, start);
 		}
 	}
 
+	@Override
+	public @NotNull EconomyResponse withdrawPlayer(@NotNull String playerName, double amount) {
+		UUID account = resolve(playerName);
+		return account == null ? unknownPlayer(amount) : withdrawPlayer(account, amount, TransactionLog.Type.WITHDRAW, null);
+	}
+
 	@Override
 	public @NotNull EconomyResponse withdrawPlayer(@NotNull String playerName, @NotNull String worldName, double amount) {
 		return withdrawPlayer(playerName, amount);
 	}
 
 	@Override
-	public @NotNull EconomyResponse depositPlayer(@NotNull String playerName, double amount) {
-		synchronized (getDataManager()) {
-			OfflinePlayer player = getPlayer(playerName);
-			double balance = getDataManager().getBalance(player);
-			double newBalance = balance + amount;
-			setBalance(player, newBalance);
-			return new EconomyResponse(amount, newBalance, ResponseType.SUCCESS, null);
+	public @NotNull EconomyResponse withdrawPlayer(@NotNull OfflinePlayer player, double amount) {
+		return withdrawPlayer(player.getUniqueId(), amount, TransactionLog.Type.WITHDRAW, null);
+	}
+
+	@Override
+	public @NotNull EconomyResponse withdrawPlayer(@NotNull OfflinePlayer player, @NotNull String worldName, double amount) {
+		return withdrawPlayer(player.getUniqueId(), amount, TransactionLog.Type.WITHDRAW, null);
+	}
+
+	/**
+	 * Takes money from a player, recorded in the transaction history as the given kind of transaction.
+	 *
+	 * @param player The player.
+	 * @param amount The amount to take.
+	 * @param type   The kind of transaction recorded.
+	 * @param other  The other party recorded, such as the admin or the banknote, or null for none.
+	 * @return The result of the withdrawal.
+	 */
+	public @NotNull EconomyResponse withdrawPlayer(
+			@NotNull OfflinePlayer player,
+			double amount,
+			@NotNull TransactionLog.Type type,
+			@Nullable UUID other
+	) {
+		return withdrawPlayer(player.getUniqueId(), amount, type, other);
+	}
+
+	private @NotNull EconomyResponse withdrawPlayer(
+			@NotNull UUID account,
+			double amount,
+			@NotNull TransactionLog.Type type,
+			@Nullable UUID other
+	) {
+		long start = System.nanoTime();
+		BalanceChangeEvent event = new BalanceChangeEvent();
+		event.begin();
+		try {
+			// A negative withdrawal would be a deposit
+			if (amount < 0.0D || !MoneyUtility.isValid(amount)) {
+				return invalidAmount(account, amount);
+			}
+			long amountMinor = MoneyUtility.toMinor(amount);
+			CompletableFuture<Void> commit;
+			long newBalance;
+
+			Lock lock = getDataManager().getAccountLocks().lockFor(account);
+			long locking = event.isEnabled() ? System.nanoTime() : 0L;
+			lock.lock();
+			long lockWait = event.isEnabled() ? System.nanoTime() - locking : 0L;
+			try {
+				long balance = getDataManager().getBalanceMinor(account);
+				if (balance < amountMinor) {
+					event.commit(type.label(), account, -amountMinor, balance, false, lockWait);
+					return new EconomyResponse(amount, MoneyUtility.toMajor(balance), ResponseType.FAILURE, "Not enough money.");
+				}
+				newBalance = Math.subtractExact(balance, amountMinor);
+				commit = getDataManager().setBalanceMinor(account, newBalance);
+				record(type, account, other, -amountMinor, newBalance);
+			} finally {
+				lock.unlock();
+			}
+
+			// Wait for the commit outside the lock so concurrent transactions can share it
+			getDataManager().awaitCommit(commit);
+			event.commit(type.label(), account, -amountMinor, newBalance, true, lockWait);
+			return new EconomyResponse(amount, MoneyUtility.toMajor(newBalance), ResponseType.SUCCESS, null);
+		} finally {
+			plugin.getStats().record(OperationStats.Operation.WITHDRAW, start);
 		}
 	}
 
+	@Override
+	public @NotNull EconomyResponse depositPlayer(@NotNull String playerName, double amount) {
+		UUID account = resolve(playerName);
+		return account == null ? unknownPlayer(amount) : depositPlayer(account, amount, TransactionLog.Type.DEPOSIT, null);
+	}
+
 	@Override
 	public @NotNull EconomyResponse depositPlayer(@NotNull String playerName, @NotNull String worldName, double amount) {
 		return depositPlayer(playerName, amount);
 	}
 
+	@Override
+	public @NotNull EconomyResponse depositPlayer(@NotNull OfflinePlayer player, double amount) {
+		return depositPlayer(player.getUniqueId(), amount, TransactionLog.Type.DEPOSIT, null);
+	}
+
+	@Override
+	public @NotNull EconomyResponse depositPlayer(@NotNull OfflinePlayer player, @NotNull String worldName, double amount) {
+		return depositPlayer(player.getUniqueId(), amount, TransactionLog.Type.DEPOSIT, null);
+	}
+
+	/**
+	 * Gives money to a player, recorded in the transaction history as the given kind of transaction.
+	 *
+	 * @param player The player.
+	 * @param amount The amount to give.
+	 * @param type   The kind of transaction recorded.
+	 * @param other  The other party recorded, such as the admin or the banknote, or null for none.
+	 * @return The result of the deposit.
+	 */
+	public @NotNull EconomyResponse depositPlayer(
+			@NotNull OfflinePlayer player,
+			double amount,
+			@NotNull TransactionLog.Type type,
+			@Nullable UUID other
+	) {
+		return depositPlayer(player.getUniqueId(), amount, type, other);
+	}
+
+	private @NotNull EconomyResponse depositPlayer(
+			@NotNull UUID account,
+			double amount,
+			@NotNull TransactionLog.Type type,
+			@Nullable UUID other
+	) {
+		long start = System.nanoTime();
+		BalanceChangeEvent event = new BalanceChangeEvent();
+		event.begin();
+		try {
+			// A negative deposit would be a withdrawal that skips the balance check
+			if (amount < 0.0D || !MoneyUtility.isValid(amount)) {
+				return invalidAmount(account, amount);
+			}
+			long amountMinor = MoneyUtility.toMinor(amount);
+			CompletableFuture<Void> commit;
+			long newBalance;
+
+			Lock lock = getDataManager().getAccountLocks().lockFor(account);
+			long locking = event.isEnabled() ? System.nanoTime() : 0L;
+			lock.lock();
+			long lockWait = event.isEnabled() ? System.nanoTime() - locking : 0L;
+			try {
+				long balance = getDataManager().getBalanceMinor(account);
+				try {
+					newBalance = MoneyUtility.add(balance, amountMinor);
+				} catch (ArithmeticException e) {
+					event.commit(type.label(), account, amountMinor, balance, false, lockWait);
+					return balanceLimit(amount, balance);
+				}
+				commit = getDataManager().setBalanceMinor(account, newBalance);
+				record(type, account, other, amountMinor, newBalance);
+			} finally {
+				lock.unlock();
+			}
+
+			getDataManager().awaitCommit(commit);
+			event.commit(type.label(), account, amountMinor, newBalance, true, lockWait);
+			return new EconomyResponse(amount, MoneyUtility.toMajor(newBalance), ResponseType.SUCCESS, null);
+		} finally {
+			plugin.getStats().record(OperationStats.Operation.DEPOSIT, start);
+		}
+	}
+
+	/**
+	 * Sets a player's balance as one change, recorded in the transaction history as set by an admin.
+	 *
+	 * @param player The player.
+	 * @param amount The new balance.
+	 * @param admin  The admin who set it, or null for the console.
+	 * @return The result of the change.
+	 */
+	public @NotNull EconomyResponse setBalance(@NotNull OfflinePlayer player, double amount, @Nullable UUID admin) {
+		long start = System.nanoTime();
+		BalanceChangeEvent event = new BalanceChangeEvent();
+		event.begin();
+		try {
+			UUID account = player.getUniqueId();
+			if (!MoneyUtility.isValid(amount)) {
+				return invalidAmount(account, amount);
+			}
+			long newBalance = MoneyUtility.toMinor(amount);
+			CompletableFuture<Void> commit;
+			long change;
+
+			Lock lock = getDataManager().getAccountLocks().lockFor(account);
+			long locking = event.isEnabled() ? System.nanoTime() : 0L;
+			lock.lock();
+			long lockWait = event.isEnabled() ? System.nanoTime() - locking : 0L;
+			try {
+				change = newBalance - getDataManager().getBalanceMinor(account);
+				commit = getDataManager().setBalanceMinor(account, newBalance);
+				record(TransactionLog.Type.ADMIN_SET, account, admin, change, newBalance);
+			} finally {
+				lock.unlock();
+			}
+
+			getDataManager().awaitCommit(commit);
+			event.commit(TransactionLog.Type.ADMIN_SET.label(), account, change, newBalance, true, lockWait);
+			return new EconomyResponse(amount, MoneyUtility.toMajor(newBalance), ResponseType.SUCCESS, null);
+		} finally {
+			plugin.getStats().record(OperationStats.Operation.SET_BALANCE, start);
+		}
+	}
+
+	/**
+	 * Records a change in the transaction history, if enabled.
+	 * Called with the account's lock held, so an account's records are in the order of its changes.
+	 */
+	private void record(
+			@NotNull TransactionLog.Type type,
+			@NotNull UUID account,
+			@Nullable UUID other,
+			long amount,
+			long balance
+	) {
+		TransactionLog history = getDataManager().getHistory();
+		if (history != null) {
+			history.record(type, account, other, amount, balance);
+		}
+	}
+
+	private @NotNull EconomyResponse invalidAmount(@NotNull UUID account, double amount) {
+		long balance = getDataManager().getBalanceMinor(account);
+		return new EconomyResponse(amount, MoneyUtility.toMajor(balance), ResponseType.FAILURE, "Invalid amount.");
+	}
+
+	private static @NotNull EconomyResponse balanceLimit(double amount, long balance) {
+		return new EconomyResponse(amount, MoneyUtility.toMajor(balance), ResponseType.FAILURE, "Balance limit reached.");
+	}
+
+	private static @NotNull EconomyResponse unknownPlayer(double amount) {
+		// The name may still be resolving in the background, so a retry can succeed
+		return new EconomyResponse(amount, 0.0D, ResponseType.FAILURE, "Unknown player.");
+	}
+
+	/**
+	 * Moves money from one player to another as a single atomic transaction.
+	 * Both accounts stay locked from the balance check until both balances are set,
+	 * so concurrent transfers can never overdraw the sender.
+	 *
+	 * @param from   The player sending the money.
+	 * @param to     The player receiving the money.
+	 * @param amount The amount to transfer.
+	 * @return The result of the transfer.
+	 */
+	public @NotNull TransferResult transfer(@NotNull OfflinePlayer from, @NotNull OfflinePlayer to, double amount) {
+		return transfer(from.getUniqueId(), to.getUniqueId(), amount);
+	}
+
+	/**
+	 * Moves money from one player to another as a single atomic transaction.
+	 *
+	 * @param fromName The name of the player sending the money.
+	 * @param toName   The name of the player receiving the money.
+	 * @param amount   The amount to transfer.
+	 * @return The result of the transfer.
+	 */
+	public @NotNull TransferResult transfer(@NotNull String fromName, @NotNull String toName, double amount) {
+		UUID from = resolve(fromName);
+		UUID to = resolve(toName);
+		if (from == null || to == null) {
+			return new TransferResult(TransferResult.Status.UNKNOWN_PLAYER, amount, 0.0D, 0.0D);
+		}
+		return transfer(from, to, amount);
+	}
+
+	private @NotNull TransferResult transfer(@NotNull UUID from, @NotNull UUID to, double amount) {
+		long start = System.nanoTime();
+		TransferEvent event = new TransferEvent();
+		event.begin();
+		try {
+			// Amounts out of range are refused below along with non-positive ones
+			long amountMinor = MoneyUtility.isValid(amount) ? MoneyUtility.toMinor(amount) : 0L;
+			CompletableFuture<Void> commit;
+			long fromBalance;
+			long toBalance;
+
+			AccountLocks locks = getDataManager().getAccountLocks();
+			long locking = event.isEnabled() ? System.nanoTime() : 0L;
+			locks.lockBoth(from, to);
+			long lockWait = event.isEnabled() ? System.nanoTime() - locking : 0L;
+			try {
+				fromBalance = getDataManager().getBalanceMinor(from);
+				toBalance = getDataManager().getBalanceMinor(to);
+				TransferResult.Status failure = null;
+				if (amountMinor <= 0) {
+					failure = TransferResult.Status.INVALID_AMOUNT;
+				} else if (from.equals(to)) {
+					failure = TransferResult.Status.SAME_ACCOUNT;
+				} else if (fromBalance < amountMinor) {
+					failure = TransferResult.Status.INSUFFICIENT_FUNDS;
+				} else if (toBalance > MoneyUtility.MAX_MINOR - amountMinor) {
+					failure = TransferResult.Status.BALANCE_LIMIT;
+				}
+				if (failure != null) {
+					event.commit(from, to, amountMinor, failure.name(), lockWait);
+					return transferResult(failure, amount, fromBalance, toBalance);
+				}
+
+				fromBalance = Math.subtractExact(fromBalance, amountMinor);
+				toBalance = MoneyUtility.add(toBalance, amountMinor);
+				commit = getDataManager().setBalancesMinor(from, fromBalance, to, toBalance);
+				record(TransactionLog.Type.PAY_SENT, from, to, -amountMinor, fromBalance);
+				record(TransactionLog.Type.PAY_RECEIVED, to, from, amountMinor, toBalance);
+			} finally {
+				locks.unlockBoth(from, to);
+			}
+
+			getDataManager().awaitCommit(commit);
+			event.commit(from, to, amountMinor, TransferResult.Status.SUCCESS.name(), lockWait);
+			return transferResult(TransferResult.Status.SUCCESS, amount, fromBalance, toBalance);
+		} finally {
+			plugin.getStats().record(OperationStats.Operation.TRANSFER, start);
+		}
+	}
+
+	private static @NotNull TransferResult transferResult(
+			@NotNull TransferResult.Status status,
+			double amount,
+			long fromBalance,
+			long toBalance
+	) {
+		return new TransferResult(status, amount, MoneyUtility.toMajor(fromBalance), MoneyUtility.toMajor(toBalance));
+	}
+
 	// Bank methods are not implemented
 	@Override
 	public @NotNull EconomyResponse createBank(@NotNull String name, @NotNull String player) {
@@ -197,4 +545,16 @@ public final class BasicEconomy extends AbstractEconomy {
 		// Always returns true for compatibility
 		return true;
 	}
+
+	@Override
+	public boolean createPlayerAccount(@NotNull OfflinePlayer player) {
+		// Always returns true for compatibility
+		return true;
+	}
+
+	@Override
+	public boolean createPlayerAccount(@NotNull OfflinePlayer player, @NotNull String worldName) {
+		// Always returns true for compatibility
+		return true;
+	}
 }
\ No newline at end of file
@@ -1,99 +1,1072 @@
 package co.xenastudios.economy;
 
+import co.xenastudios.economy.jfr.ReloadEvent;
+import co.xenastudios.economy.jfr.SnapshotSaveEvent;
+import co.xenastudios.economy.storage.AccountLocks;
+import co.xenastudios.economy.storage.BalanceTable;
+import co.xenastudios.economy.storage.BinaryStorage;
+import co.xenastudios.economy.storage.DataJournal;
+import co.xenastudios.economy.storage.Leaderboard;
+import co.xenastudios.economy.storage.MappedStorage;
+import co.xenastudios.economy.storage.SpentNoteSet;
+import co.xenastudios.economy.storage.SqliteStorage;
+import co.xenastudios.economy.storage.StorageBackend;
+import co.xenastudios.economy.storage.StorageMigration;
+import co.xenastudios.economy.storage.TransactionLog;
+import co.xenastudios.economy.storage.YamlStorage;
+import co.xenastudios.economy.utilities.MoneyUtility;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.configuration.InvalidConfigurationException;
-import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 
 /**
  * Handles both player balances and banknotes.
+ * Balances are kept in memory in minor units and saved to the {@link StorageBackend} by snapshots.
  */
 public final class DataManager {
+	private static final CompletableFuture<Void> COMMITTED = CompletableFuture.completedFuture(null);
+
 	private final EconomyPlugin plugin;
 
 	// Player data
-	private final File playerFile;
-	private final YamlConfiguration playerConfig;
+	private final StorageBackend.Type storageType;
+	private final StorageBackend storage;
+	// The target of the last migration, kept in sync until restart
+	private volatile StorageBackend mirror;
+	private final AtomicBoolean migrating = new AtomicBoolean();
+	// Accounts saved while a migration copies balances, copied again once it is done; null otherwise
+	private volatile Set<UUID> savedDuringCopy;
+	// Balances in minor units; only the cached accounts when the cache is limited
+	private final BalanceTable balances;
+	// Accounts changed since the last snapshot; swapped out under the snapshot lock
+	private volatile Set<UUID> changedAccounts = ConcurrentHashMap.newKeySet();
+
+	// Account cache; 0 when every account is kept in memory, otherwise accounts are loaded on first
+	// use and the least recently used ones are evicted once saved
+	private final int maxCached;
+	// When each cached account was last loaded or changed
+	private final Map<UUID, Long> lastUsed = new ConcurrentHashMap<>();
+	// Accounts of online players, which are never evicted
+	private final Set<UUID> pinned = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean evictionQueued = new AtomicBoolean();
+
+	// Every account with money by rank; null when disabled
+	private final Leaderboard leaderboard;
+
+	// Banknote data; stored notes live in the backend, signed ones are only recorded once redeemed
+	private final SpentNoteSet spentNotes;
+	// Held shared by every stored banknote change and exclusively while banknotes are migrated
+	private final ReentrantReadWriteLock banknoteLock = new ReentrantReadWriteLock();
+
+	// Write-behind: changes are saved by the flusher on an interval, or once enough are pending
+	private final boolean writeBehind;
+	private final int maxPending;
+	private final AtomicInteger pendingChanges = new AtomicInteger();
+	private final AtomicBoolean flushQueued = new AtomicBoolean();
+	private final ScheduledExecutorService flusher;
+	// Held across a whole snapshot, so each one saves the changes the previous one swapped out before it
+	private final Object saveLock = new Object();
+
+	// Concurrency; changes to one account are serialized by its stripe
+	private final AccountLocks accountLocks;
+	// Held shared by every change and exclusively while a snapshot is taken, so none is half-applied in it
+	private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
 
-	// Banknote data
-	private final File banknoteFile;
-	private final YamlConfiguration banknoteConfig;
+	// Every change since the last snapshot, replayed on startup; null when disabled
+	private final DataJournal journal;
+	// Every balance change, for auditing, recorded by the economy; null when disabled
+	private final TransactionLog history;
 
 	public DataManager(@NotNull EconomyPlugin plugin) {
 		this.plugin = plugin;
 
-		this.playerFile = new File(plugin.getDataFolder(), "playerdata.yml");
-		this.playerConfig = YamlConfiguration.loadConfiguration(playerFile);
+		FileConfiguration config = plugin.getConfig();
+		this.accountLocks = new AccountLocks(config.getInt("storage.lock-stripes", 256));
+		this.writeBehind = config.getBoolean("storage.write-behind.enabled", true);
+		this.maxPending = Math.max(1, config.getInt("storage.write-behind.max-pending", 1000));
+
+		DataJournal.Durability durability = DataJournal.Durability.fromConfig(
+				config.getString("storage.journal.durability", "none")
+		);
+		// Opened first, as the balance cache is sized by it and the journal replays into that cache
+		this.storageType = storageType(config);
+		try {
+			this.storage = openStorage(storageType, config, durability == DataJournal.Durability.GROUP);
+		} catch (IOException e) {
+			// Running without storage would let every outstanding note be lost or redeemed twice
+			throw new IllegalStateException("Failed to open the " + storageType.configName() + " storage backend", e);
+		}
+		// Backends that must be saved whole need every account in memory
+		this.maxCached = storage.isIncremental() ? Math.max(0, config.getInt("storage.cache.max-accounts", 10000)) : 0;
+		this.balances = maxCached > 0 ? new BalanceTable(maxCached) : loadBalances();
+		// Created before the journal is replayed, which records changes in it
+		this.leaderboard = config.getBoolean("leaderboard.enabled", maxCached == 0) ? new Leaderboard() : null;
+		this.spentNotes = openSpentNotes(durability == DataJournal.Durability.GROUP);
+		this.journal = writeBehind && config.getBoolean("storage.journal.enabled", true)
+				? openJournal(config, durability)
+				: null;
+		this.history = config.getBoolean("history.enabled", true) ? openHistory(config) : null;
+
+		// Also evicts accounts, so it runs whenever they are cached
+		if (writeBehind || maxCached > 0) {
+			this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Economy-DataFlusher");
+				thread.setDaemon(true);
+				return thread;
+			});
+		} else {
+			this.flusher = null;
+		}
+		if (writeBehind) {
+			long interval = Math.max(1L, config.getLong("storage.write-behind.interval", 30L));
+			this.flusher.scheduleWithFixedDelay(this::flushData, interval, interval, TimeUnit.SECONDS);
+		}
+
+		rebuildLeaderboard();
+	}
+
+	private DataJournal openJournal(@NotNull FileConfiguration config, @NotNull DataJournal.Durability durability) {
+		try {
+			return DataJournal.open(
+					plugin.getDataFolder().toPath(),
+					"data.journal",
+					plugin.getLogger(),
+					durability,
+					config.getLong("storage.journal.group-commit.window", 2L),
+					config.getInt("storage.journal.group-commit.max-batch", 256),
+					(account, balance) -> {
+						balances.put(account.getMostSignificantBits(), account.getLeastSignificantBits(), balance);
+						changedAccounts.add(account);
+						touch(account);
+						rank(account, balance);
+						pendingChanges.incrementAndGet();
+					}
+			);
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.SEVERE, "Failed to open data.journal, changes will not be journaled:", e);
+			return null;
+		}
+	}
 
-		this.banknoteFile = new File(plugin.getDataFolder(), "banknotes.yml");
-		this.banknoteConfig = YamlConfiguration.loadConfiguration(banknoteFile);
+	private @Nullable TransactionLog openHistory(@NotNull FileConfiguration config) {
+		try {
+			return TransactionLog.open(
+					plugin.getDataFolder().toPath().resolve("history"),
+					plugin.getLogger(),
+					config.getLong("history.segment-size", 4L) << 20,
+					config.getLong("history.max-size", 1024L) << 20
+			);
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.SEVERE, "Failed to open the transaction history, transactions will not be recorded:", e);
+			return null;
+		}
+	}
+
+	private @NotNull StorageBackend.Type storageType(@NotNull FileConfiguration config) {
+		String backendName = config.getString("storage.backend", "binary");
+		StorageBackend.Type type = StorageBackend.Type.fromConfig(backendName);
+		if (type == null) {
+			plugin.getLogger().warning("Unknown storage backend '" + backendName + "', using binary.");
+			return StorageBackend.Type.BINARY;
+		}
+		return type;
+	}
+
+	/**
+	 * Opens a storage backend with this server's settings.
+	 */
+	private @NotNull StorageBackend openStorage(
+			@NotNull StorageBackend.Type type,
+			@NotNull FileConfiguration config,
+			boolean durable
+	) throws IOException {
+		Path dataFolder = plugin.getDataFolder().toPath();
+		return switch (type) {
+			case BINARY -> BinaryStorage.open(
+					dataFolder,
+					plugin.getLogger(),
+					durable,
+					config.getInt("storage.banknotes.compact-after", 1024)
+			);
+			case MAPPED -> MappedStorage.open(
+					dataFolder,
+					plugin.getLogger(),
+					durable,
+					config.getInt("storage.banknotes.compact-after", 1024)
+			);
+			case YAML -> YamlStorage.open(
+					dataFolder,
+					plugin.getLogger(),
+					durable,
+					config.getInt("storage.banknotes.compact-after", 1024)
+			);
+			case SQLITE -> SqliteStorage.open(
+					dataFolder.resolve(config.getString("storage.sqlite.file", "economy.db")),
+					plugin.getLogger(),
+					durable
+			);
+		};
+	}
+
+	private @NotNull BalanceTable loadBalances() {
+		try {
+			// Sized up front when the backend knows its account count, so loading never rehashes
+			BalanceTable table = new BalanceTable(storage.expectedAccounts());
+			storage.loadBalances(table::put);
+			return table;
+		} catch (IOException e) {
+			// Starting empty would overwrite every stored balance with the next snapshot
+			throw new IllegalStateException("Failed to load balances from " + storage.describe(), e);
+		}
+	}
+
+	private @NotNull SpentNoteSet openSpentNotes(boolean durable) {
+		try {
+			return SpentNoteSet.open(
+					new File(plugin.getDataFolder(), "spent-notes.dat").toPath(),
+					plugin.getLogger(),
+					durable
+			);
+		} catch (IOException e) {
+			// Running without the set would let every signed note be redeemed again
+			throw new IllegalStateException("Failed to open spent-notes.dat", e);
+		}
 	}
 
 	// --- Player Data ---
 
 	public double getBalance(@NotNull OfflinePlayer player) {
-		return playerConfig.getDouble(player.getUniqueId().toString(), 0.0);
+		return MoneyUtility.toMajor(getBalanceMinor(player.getUniqueId()));
 	}
 
-	public void setBalance(@NotNull OfflinePlayer player, double amount) {
-		playerConfig.set(player.getUniqueId().toString(), amount);
-		savePlayerData();
+	/**
+	 * Gets an account's balance, loading the account first if it is not in memory.
+	 * A balance in memory is read without any allocation.
+	 *
+	 * @param account The account UUID.
+	 * @return The balance in minor units.
+	 * @throws IllegalStateException If the account had to be loaded and could not be.
+	 */
+	public long getBalanceMinor(@NotNull UUID account) {
+		long mostSigBits = account.getMostSignificantBits();
+		long leastSigBits = account.getLeastSignificantBits();
+		if (maxCached == 0) {
+			return balances.get(mostSigBits, leastSigBits, 0L);
+		}
+
+		// A real balance equal to the marker only costs a locked recheck
+		long balance = balances.get(mostSigBits, leastSigBits, Long.MIN_VALUE);
+		return balance != Long.MIN_VALUE ? balance : loadAccount(account);
 	}
 
-	public void savePlayerData() {
+	/**
+	 * Passes every account to the consumer, reading the backend once when accounts are cached, then
+	 * the accounts in memory. Accounts may be passed more than once, the one in memory last.
+	 *
+	 * @param consumer The entry consumer.
+	 * @throws IOException If the backend could not be read.
+	 */
+	public void forEachAccount(@NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		if (maxCached > 0) {
+			storage.loadBalances(consumer);
+		}
+		// Read from a copy, so changes never wait for the table's lock meanwhile
+		balances.copy().forEach(consumer);
+	}
+
+	/**
+	 * Loads an account ahead of its first use, e.g. while its player logs in.
+	 * Does nothing if every account is kept in memory.
+	 *
+	 * @param account The account UUID.
+	 * @throws IllegalStateException If the account could not be loaded.
+	 */
+	public void preloadAccount(@NotNull UUID account) {
+		if (maxCached == 0) return;
+		getBalanceMinor(account);
+		touch(account);
+	}
+
+	/**
+	 * Keeps an account in memory until {@link #unpinAccount(UUID)}, e.g. while its player is online.
+	 *
+	 * @param account The account UUID.
+	 */
+	public void pinAccount(@NotNull UUID account) {
+		if (maxCached == 0) return;
+		pinned.add(account);
+	}
+
+	/**
+	 * Lets an account be evicted again once it is the least recently used.
+	 *
+	 * @param account The account UUID.
+	 */
+	public void unpinAccount(@NotNull UUID account) {
+		if (maxCached == 0) return;
+		pinned.remove(account);
+		touch(account);
+	}
+
+	/**
+	 * Loads an account that is not in memory. Done under the account's lock, which every change holds,
+	 * so the stored balance never overwrites a change made meanwhile.
+	 *
+	 * @throws IllegalStateException If the account could not be loaded; going on from zero instead
+	 *                               would overwrite the stored balance with the next change.
+	 */
+	private long loadAccount(@NotNull UUID account) {
+		long mostSigBits = account.getMostSignificantBits();
+		long leastSigBits = account.getLeastSignificantBits();
+		long balance;
+		ReentrantLock accountLock = accountLocks.lockFor(account);
+		accountLock.lock();
 		try {
-			playerConfig.save(playerFile);
-		} catch (IOException e) {
-			plugin.getLogger().log(Level.WARNING, "Failed to save playerdata.yml:", e);
+			// Loaded or changed by another thread while this one waited
+			if (balances.contains(mostSigBits, leastSigBits)) {
+				return balances.get(mostSigBits, leastSigBits, 0L);
+			}
+
+			Long stored;
+			long start = System.nanoTime();
+			try {
+				stored = storage.loadBalance(account);
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.SEVERE, "Failed to load account " + account + " from " + storage.describe() + ":", e);
+				throw new IllegalStateException("Failed to load account " + account, e);
+			} finally {
+				plugin.getStats().record(OperationStats.Operation.LOAD_ACCOUNT, start);
+			}
+			balance = stored != null ? stored : 0L;
+
+			// Held shared so an eviction never drops the entry and its use time apart
+			snapshotLock.readLock().lock();
+			try {
+				balances.put(mostSigBits, leastSigBits, balance);
+				touch(account);
+			} finally {
+				snapshotLock.readLock().unlock();
+			}
+		} finally {
+			accountLock.unlock();
+		}
+
+		if (balances.size() > maxCached) {
+			requestEviction();
+		}
+		return balance;
+	}
+
+	private void touch(@NotNull UUID account) {
+		if (maxCached > 0) {
+			lastUsed.put(account, System.nanoTime());
+		}
+	}
+
+	private void rank(@NotNull UUID account, long balance) {
+		if (leaderboard != null) {
+			leaderboard.update(account, balance);
+		}
+	}
+
+	public @NotNull CompletableFuture<Void> setBalance(@NotNull OfflinePlayer player, double amount) {
+		return setBalanceMinor(player.getUniqueId(), MoneyUtility.toMinor(amount));
+	}
+
+	/**
+	 * Sets an account's balance.
+	 * The change is applied in memory immediately; callers holding a lock should release it
+	 * before waiting on the returned commit with {@link #awaitCommit(CompletableFuture)}.
+	 *
+	 * @param account The account UUID.
+	 * @param balance The new balance in minor units.
+	 * @return A future completed once the change is durable.
+	 */
+	public @NotNull CompletableFuture<Void> setBalanceMinor(@NotNull UUID account, long balance) {
+		CompletableFuture<Void> commit = COMMITTED;
+		ReentrantLock accountLock = accountLocks.lockFor(account);
+		accountLock.lock();
+		snapshotLock.readLock().lock();
+		try {
+			balances.put(account.getMostSignificantBits(), account.getLeastSignificantBits(), balance);
+			changedAccounts.add(account);
+			touch(account);
+			rank(account, balance);
+			if (journal != null) {
+				commit = journal.appendBalance(account, balance);
+			}
+		} finally {
+			snapshotLock.readLock().unlock();
+			accountLock.unlock();
+		}
+
+		if (!writeBehind) {
+			savePlayerData();
+		} else {
+			markChanged();
 		}
+		return commit;
+	}
+
+	/**
+	 * Sets the balances of both sides of a transfer as one change, journaled as a single transfer.
+	 * As with {@link #setBalanceMinor(UUID, long)}, callers should release their locks before
+	 * waiting on the returned commit.
+	 *
+	 * @param from        The sending account UUID.
+	 * @param fromBalance The sending account's new balance in minor units.
+	 * @param to          The receiving account UUID.
+	 * @param toBalance   The receiving account's new balance in minor units.
+	 * @return A future completed once the change is durable.
+	 */
+	public @NotNull CompletableFuture<Void> setBalancesMinor(
+			@NotNull UUID from,
+			long fromBalance,
+			@NotNull UUID to,
+			long toBalance
+	) {
+		CompletableFuture<Void> commit = COMMITTED;
+		accountLocks.lockBoth(from, to);
+		snapshotLock.readLock().lock();
+		try {
+			balances.put(from.getMostSignificantBits(), from.getLeastSignificantBits(), fromBalance);
+			balances.put(to.getMostSignificantBits(), to.getLeastSignificantBits(), toBalance);
+			Set<UUID> changed = changedAccounts;
+			changed.add(from);
+			changed.add(to);
+			touch(from);
+			touch(to);
+			rank(from, fromBalance);
+			rank(to, toBalance);
+			if (journal != null) {
+				commit = journal.appendTransfer(from, fromBalance, to, toBalance);
+			}
+		} finally {
+			snapshotLock.readLock().unlock();
+			accountLocks.unlockBoth(from, to);
+		}
+
+		if (!writeBehind) {
+			savePlayerData();
+		} else {
+			markChanged();
+		}
+		return commit;
+	}
+
+	/**
+	 * Saves all changed balances immediately on the calling thread.
+	 */
+	public void savePlayerData() {
+		writeSnapshot();
 	}
 
 	public void reloadPlayerData() {
+		long start = System.nanoTime();
+		ReloadEvent event = new ReloadEvent();
+		event.begin();
 		try {
-			playerConfig.load(playerFile);
-		} catch (IOException | InvalidConfigurationException e) {
-			plugin.getLogger().log(Level.WARNING, "Failed to reload playerdata.yml:", e);
+			// Persist pending changes first so a reload never discards completed transactions
+			if (writeBehind) {
+				flushData();
+			}
+
+			if (maxCached > 0) {
+				// Every saved account is read again from the backend when next used
+				evictAccounts(0, false);
+				rebuildLeaderboard();
+				event.commit(storage.describe(), -1, true);
+				return;
+			}
+
+			// Read outside the lock, so changes only wait for the swap
+			BalanceTable loaded;
+			try {
+				loaded = new BalanceTable(storage.expectedAccounts());
+				storage.loadBalances(loaded::put);
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to reload balances from " + storage.describe() + ":", e);
+				event.commit(storage.describe(), 0, false);
+				return;
+			}
+
+			snapshotLock.writeLock().lock();
+			try {
+				balances.clear();
+				loaded.forEach(balances::put);
+			} finally {
+				snapshotLock.writeLock().unlock();
+			}
+			rebuildLeaderboard();
+			event.commit(storage.describe(), loaded.size(), true);
+		} finally {
+			plugin.getStats().record(OperationStats.Operation.RELOAD, start);
 		}
 	}
 
+	/**
+	 * Gets the transaction history.
+	 *
+	 * @return The history, or null if disabled in the config or it could not be opened.
+	 */
+	public @Nullable TransactionLog getHistory() {
+		return history;
+	}
+
+	/**
+	 * Gets the balance leaderboard.
+	 *
+	 * @return The leaderboard, or null if disabled in the config.
+	 */
+	public @Nullable Leaderboard getLeaderboard() {
+		return leaderboard;
+	}
+
+	/**
+	 * Ranks every account again in the background; the leaderboard is not ready until done.
+	 */
+	private void rebuildLeaderboard() {
+		if (leaderboard == null) return;
+
+		Thread thread = new Thread(() -> {
+			try {
+				// An account saved and evicted after the backend was read is ranked by evictAccounts
+				leaderboard.rebuild(this::forEachAccount);
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to rank the balances in " + storage.describe() + ":", e);
+			}
+		}, "Economy-Leaderboard");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Gets the striped locks guarding accounts.
+	 * Callers doing a read-modify-write on a balance must hold the account's lock across it.
+	 *
+	 * @return The account locks.
+	 */
+	public @NotNull AccountLocks getAccountLocks() {
+		return accountLocks;
+	}
+
 	// --- Banknote Data ---
 
-	public void saveBanknote(@NotNull UUID uuid, double amount) {
-		banknoteConfig.set(uuid.toString(), amount);
-		saveBanknoteData();
+	/**
+	 * Stores a newly issued banknote.
+	 *
+	 * @param uuid   The banknote UUID.
+	 * @param amount The banknote's value.
+	 * @return true if the banknote was stored, and may be handed out
+	 */
+	public boolean issueBanknote(@NotNull UUID uuid, double amount) {
+		return issueBanknotes(List.of(uuid), amount);
 	}
 
-	public Double getBanknote(@NotNull UUID uuid) {
-		return banknoteConfig.contains(uuid.toString()) ? banknoteConfig.getDouble(uuid.toString()) : null;
+	/**
+	 * Stores several newly issued banknotes of the same value with one write.
+	 *
+	 * @param uuids  The banknote UUIDs.
+	 * @param amount Each banknote's value.
+	 * @return true if the banknotes were stored, and may be handed out; otherwise none of them were
+	 */
+	public boolean issueBanknotes(@NotNull Collection<UUID> uuids, double amount) {
+		long amountMinor = MoneyUtility.toMinor(amount);
+		banknoteLock.readLock().lock();
+		try {
+			storage.issueBanknotes(uuids, amountMinor);
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.SEVERE, "Failed to store " + uuids.size() + " issued banknotes:", e);
+			return false;
+		} finally {
+			banknoteLock.readLock().unlock();
+		}
+
+		StorageBackend mirror = this.mirror;
+		if (mirror == null) return true;
+		try {
+			mirror.issueBanknotes(uuids, amountMinor);
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Failed to copy " + uuids.size() + " issued banknotes to " + mirror.describe() + ":", e);
+		}
+		return true;
+	}
+
+	/**
+	 * Redeems a banknote. However many times the same note is redeemed at once,
+	 * only one call gets its value.
+	 *
+	 * @param uuid The banknote UUID.
+	 * @return The banknote's value, or null if it does not exist or was already redeemed.
+	 */
+	public @Nullable Double redeemBanknote(@NotNull UUID uuid) {
+		Long amount = redeemBanknotes(List.of(uuid)).get(uuid);
+		return amount != null ? MoneyUtility.toMajor(amount) : null;
+	}
+
+	public @Nullable Double getBanknote(@NotNull UUID uuid) {
+		Long amount = getBanknoteMinor(uuid);
+		return amount != null ? MoneyUtility.toMajor(amount) : null;
+	}
+
+	/**
+	 * Gets a stored banknote's value without redeeming it.
+	 *
+	 * @param uuid The banknote UUID.
+	 * @return The value in minor units, or null if the note does not exist, was redeemed or could not be read.
+	 */
+	public @Nullable Long getBanknoteMinor(@NotNull UUID uuid) {
+		try {
+			return storage.getBanknote(uuid);
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Failed to read banknote " + uuid + ":", e);
+			return null;
+		}
 	}
 
 	public boolean banknoteExists(@NotNull UUID uuid) {
-		return banknoteConfig.contains(uuid.toString());
+		return getBanknote(uuid) != null;
+	}
+
+	/**
+	 * Marks a signed banknote as spent. However many times the same note is spent at once,
+	 * only one call succeeds.
+	 *
+	 * @param uuid The banknote UUID.
+	 * @return true if the note had not been spent before, and the caller may pay it out
+	 */
+	public boolean spendBanknote(@NotNull UUID uuid) {
+		try {
+			return spentNotes.add(uuid);
+		} catch (IOException e) {
+			// Paying out a note that could not be recorded as spent would let it be redeemed again
+			plugin.getLogger().log(Level.SEVERE, "Failed to record spent banknote " + uuid + ":", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Redeems several stored banknotes with one write.
+	 *
+	 * @param uuids The banknote UUIDs.
+	 * @return The value in minor units of each note redeemed by this call.
+	 */
+	public @NotNull Map<UUID, Long> redeemBanknotes(@NotNull Collection<UUID> uuids) {
+		Map<UUID, Long> redeemed;
+		banknoteLock.readLock().lock();
+		try {
+			redeemed = storage.redeemBanknotes(uuids);
+		} catch (IOException e) {
+			// Nothing is paid out unless the redemption is known to be stored
+			plugin.getLogger().log(Level.SEVERE, "Failed to redeem " + uuids.size() + " banknotes:", e);
+			return Map.of();
+		} finally {
+			banknoteLock.readLock().unlock();
+		}
+
+		StorageBackend mirror = this.mirror;
+		if (mirror == null || redeemed.isEmpty()) return redeemed;
+		try {
+			mirror.redeemBanknotes(redeemed.keySet());
+		} catch (IOException e) {
+			// A note left behind in the copy could be redeemed again after switching to it
+			plugin.getLogger().log(Level.SEVERE, "Failed to copy " + redeemed.size() + " redeemed banknotes to " + mirror.describe() + ":", e);
+		}
+		return redeemed;
+	}
+
+	/**
+	 * Marks several signed banknotes as spent with one commit.
+	 *
+	 * @param uuids The banknote UUIDs, whose signatures have been checked.
+	 * @return The notes spent by this call, which the caller may pay out.
+	 */
+	public @NotNull Set<UUID> spendBanknotes(@NotNull Collection<UUID> uuids) {
+		try {
+			return spentNotes.addAll(uuids);
+		} catch (IOException e) {
+			// Notes inserted before the failure may be lost on a crash, so none of them are paid out
+			plugin.getLogger().log(Level.SEVERE, "Failed to record " + uuids.size() + " spent banknotes:", e);
+			return Set.of();
+		}
+	}
+
+	/**
+	 * Lets the backend reclaim space left behind by redeemed banknotes.
+	 */
+	private void compactStorage() {
+		try {
+			storage.compact();
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Failed to compact " + storage.describe() + ":", e);
+		}
+	}
+
+	// --- Migration ---
+
+	/**
+	 * @return The storage backend in use.
+	 */
+	public @NotNull StorageBackend.Type getStorageType() {
+		return storageType;
+	}
+
+	/**
+	 * Copies every account and stored banknote into another storage backend while the server runs,
+	 * verifying the totals on both sides. Call it off the main thread, as it reads and writes everything.
+	 * <p>
+	 * The copy starts from a fresh snapshot and runs alongside later saves, whose accounts are copied
+	 * again once it is done, so no balance change is missed; banknote changes only wait while banknotes
+	 * are copied. Once done, the target is kept in sync until the server stops, so switching to it by
+	 * config and restarting loses nothing.
+	 *
+	 * @param from     The backend to copy from, which must be the one in use.
+	 * @param to       The backend to copy into, which must be empty.
+	 * @param progress Receives progress every few thousand records.
+	 * @return What was copied.
+	 * @throws IOException If the migration is not possible, either backend failed, or the totals did not match.
+	 */
+	public @NotNull StorageMigration.Totals migrateStorage(
+			@NotNull StorageBackend.Type from,
+			@NotNull StorageBackend.Type to,
+			@NotNull StorageMigration.Progress progress
+	) throws IOException {
+		if (from != storageType) {
+			throw new IOException(from.configName() + " is not the storage backend in use");
+		}
+		if (to == storageType) {
+			throw new IOException(to.configName() + " is already the storage backend in use");
+		}
+		if (to.sharesFilesWith(from)) {
+			throw new IOException(from.configName() + " and " + to.configName()
+					+ " share banknotes.dat; switch storage.backend and restart, and the balances are imported");
+		}
+		if (!migrating.compareAndSet(false, true)) {
+			throw new IOException("a migration is already running");
+		}
+
+		StorageBackend target = null;
+		boolean mirrored = false;
+		try {
+			target = openStorage(to, plugin.getConfig(), true);
+			if (maxCached > 0 && !target.isIncremental()) {
+				// Later saves only hold the accounts in memory, which would leave the rest out of the copy
+				throw new IOException(to.configName() + " can only be kept in sync with every account in memory; "
+						+ "set storage.cache.max-accounts to 0 and restart first");
+			}
+			StorageMigration migration = StorageMigration.start(storage, target, progress);
+			synchronized (saveLock) {
+				// Puts every change so far in the source; accounts saved from here on are copied again below
+				writeSnapshot();
+				savedDuringCopy = ConcurrentHashMap.newKeySet();
+			}
+			migration.copyBalances();
+
+			banknoteLock.writeLock().lock();
+			try {
+				migration.copyBanknotes();
+				StorageBackend previous = mirror;
+				mirror = target;
+				if (previous != null) {
+					closeQuietly(previous);
+				}
+			} finally {
+				banknoteLock.writeLock().unlock();
+			}
+
+			// Saves only wait while the accounts they saved during the copy are brought up to date
+			synchronized (saveLock) {
+				copySavedAccounts(target, savedDuringCopy);
+				savedDuringCopy = null;
+			}
+			mirrored = true;
+			return migration.totals();
+		} finally {
+			if (!mirrored) {
+				synchronized (saveLock) {
+					savedDuringCopy = null;
+				}
+				if (target != null) {
+					banknoteLock.writeLock().lock();
+					try {
+						if (mirror == target) {
+							mirror = null;
+						}
+					} finally {
+						banknoteLock.writeLock().unlock();
+					}
+					closeQuietly(target);
+				}
+			}
+			migrating.set(false);
+		}
 	}
 
-	public void removeBanknote(@NotNull UUID uuid) {
-		banknoteConfig.set(uuid.toString(), null);
-		saveBanknoteData();
+	/**
+	 * Saves the accounts saved during a migration's copy to its target, which may have copied them
+	 * before they were saved. Called with the save lock held, so their saved balances are the latest.
+	 */
+	private void copySavedAccounts(@NotNull StorageBackend target, @NotNull Set<UUID> saved) throws IOException {
+		if (saved.isEmpty()) return;
+
+		// Accounts still in memory may hold newer balances, which the next save copies anyway
+		BalanceTable snapshot = balances.copy();
+		for (UUID account : saved) {
+			long mostSigBits = account.getMostSignificantBits();
+			long leastSigBits = account.getLeastSignificantBits();
+			if (!snapshot.contains(mostSigBits, leastSigBits)) {
+				// Evicted since it was saved, so the source holds its balance
+				Long balance = storage.loadBalance(account);
+				snapshot.put(mostSigBits, leastSigBits, balance != null ? balance : 0L);
+			}
+		}
+		target.saveBalances(snapshot, saved);
 	}
 
-	public void saveBanknoteData() {
+	private void closeQuietly(@NotNull StorageBackend backend) {
 		try {
-			banknoteConfig.save(banknoteFile);
+			backend.close();
 		} catch (IOException e) {
-			plugin.getLogger().log(Level.WARNING, "Failed to save banknotes.yml:", e);
+			plugin.getLogger().log(Level.WARNING, "Failed to close " + backend.describe() + ":", e);
+		}
+	}
+
+	// --- Persistence ---
+
+	/**
+	 * Waits for a change to become durable. A failed commit is logged rather than thrown,
+	 * since the change is already applied in memory and will be saved with the next snapshot.
+	 *
+	 * @param commit The commit returned by a data change.
+	 */
+	public void awaitCommit(@NotNull CompletableFuture<Void> commit) {
+		try {
+			commit.join();
+		} catch (CompletionException | CancellationException e) {
+			plugin.getLogger().log(Level.SEVERE, "Failed to commit a change to data.journal:", e);
+		}
+	}
+
+	private void markChanged() {
+		// Defer the save to the flusher, waking it early once enough changes pile up
+		if (pendingChanges.incrementAndGet() >= maxPending && flushQueued.compareAndSet(false, true)) {
+			flusher.execute(this::flushData);
+		}
+	}
+
+	/**
+	 * Saves a snapshot of the data if any changes are pending.
+	 */
+	private void flushData() {
+		flushQueued.set(false);
+		if (pendingChanges.get() > 0) {
+			writeSnapshot();
+		}
+		if (maxCached > 0) {
+			// Accounts just saved may now be evicted
+			evictAccounts(maxCached, true);
+		}
+		compactStorage();
+	}
+
+	private void requestEviction() {
+		if (!evictionQueued.compareAndSet(false, true)) return;
+		try {
+			flusher.execute(() -> {
+				evictionQueued.set(false);
+				// Evicts a tenth more than needed, so loads do not queue an eviction each
+				evictAccounts(maxCached - maxCached / 10, true);
+			});
+		} catch (RejectedExecutionException e) {
+			// Shutting down, so the cache no longer matters
+			evictionQueued.set(false);
+		}
+	}
+
+	/**
+	 * Evicts the least recently loaded or changed accounts until at most the given number are in memory,
+	 * or no more can go. An account changed since the last snapshot is never evicted, as its balance
+	 * is not in the backend yet; holding the save lock keeps that true until the eviction is done.
+	 *
+	 * @param keep       The number of accounts to keep.
+	 * @param keepPinned Whether to keep pinned accounts regardless.
+	 */
+	private void evictAccounts(int keep, boolean keepPinned) {
+		if (balances.size() <= keep) return;
+
+		synchronized (saveLock) {
+			List<Map.Entry<UUID, Long>> candidates = new ArrayList<>(lastUsed.entrySet());
+			candidates.sort(Map.Entry.comparingByValue());
+
+			snapshotLock.writeLock().lock();
+			try {
+				int excess = balances.size() - keep;
+				Set<UUID> changed = changedAccounts;
+				Set<UUID> evicted = new HashSet<>();
+				for (Map.Entry<UUID, Long> candidate : candidates) {
+					if (excess <= 0) break;
+
+					UUID account = candidate.getKey();
+					if (changed.contains(account) || (keepPinned && pinned.contains(account))) continue;
+					evicted.add(account);
+					// A use time can outlive its account, e.g. when touched while being evicted
+					if (balances.contains(account.getMostSignificantBits(), account.getLeastSignificantBits())) {
+						excess--;
+						// A rebuild may have read the backend before this account was saved
+						if (leaderboard != null && !leaderboard.isReady()) {
+							long balance = balances.get(account.getMostSignificantBits(), account.getLeastSignificantBits(), 0L);
+							leaderboard.update(account, balance);
+						}
+					}
+				}
+				balances.removeAll(evicted);
+				lastUsed.keySet().removeAll(evicted);
+			} finally {
+				snapshotLock.writeLock().unlock();
+			}
 		}
 	}
 
-	public void reloadBanknoteData() {
+	/**
+	 * Only the in-memory copy is taken under the snapshot lock; serialization and disk I/O happen outside it.
+	 * Snapshots are saved one at a time, so a save never skips changes an earlier one swapped out,
+	 * and the journal generations a snapshot covers are only discarded once it has been saved.
+	 */
+	private void writeSnapshot() {
+		synchronized (saveLock) {
+			BalanceTable playerSnapshot;
+			Set<UUID> changed;
+			long journalGeneration = -1;
+			// Timed from the copy, which holds up changes, to the end of the save
+			long start = System.nanoTime();
+			SnapshotSaveEvent event = new SnapshotSaveEvent();
+			event.begin();
+			snapshotLock.writeLock().lock();
+			try {
+				// An earlier save may already have covered the changes that asked for this one
+				if (changedAccounts.isEmpty()) return;
+
+				pendingChanges.set(0);
+				playerSnapshot = balances.copy();
+				changed = changedAccounts;
+				changedAccounts = ConcurrentHashMap.newKeySet();
+				if (journal != null) {
+					try {
+						journalGeneration = journal.rotate();
+					} catch (IOException e) {
+						plugin.getLogger().log(Level.WARNING, "Failed to rotate data.journal:", e);
+					}
+				}
+			} finally {
+				snapshotLock.writeLock().unlock();
+			}
+			long copyTime = System.nanoTime() - start;
+
+			try {
+				storage.saveBalances(playerSnapshot, changed);
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to save balances to " + storage.describe() + ":", e);
+				// Hand the changes to the next snapshot, which saves their latest values
+				changedAccounts.addAll(changed);
+				pendingChanges.addAndGet(changed.size());
+				event.commit(storage.describe(), playerSnapshot.size(), changed.size(), copyTime, false);
+				return;
+			} finally {
+				plugin.getStats().record(OperationStats.Operation.SAVE, start);
+			}
+			event.commit(storage.describe(), playerSnapshot.size(), changed.size(), copyTime, true);
+
+			Set<UUID> copying = savedDuringCopy;
+			if (copying != null) {
+				// The running migration copies these again once its copy is done
+				copying.addAll(changed);
+			}
+			StorageBackend mirror = this.mirror;
+			if (mirror != null) {
+				try {
+					mirror.saveBalances(playerSnapshot, changed);
+				} catch (IOException e) {
+					plugin.getLogger().log(Level.WARNING, "Failed to copy balances to " + mirror.describe() + ":", e);
+				}
+			}
+			if (journalGeneration < 0) return;
+
+			try {
+				journal.discard(journalGeneration);
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to compact data.journal:", e);
+			}
+		}
+	}
+
+	// --- Lifecycle ---
+
+	/**
+	 * Stops the background flusher and writes all pending data to disk.
+	 * Called once when the plugin is disabled.
+	 */
+	public void shutdown() {
+		if (flusher != null) {
+			flusher.shutdown();
+			try {
+				if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+					plugin.getLogger().warning("Timed out waiting for the data flusher to finish.");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		savePlayerData();
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to close data.journal:", e);
+			}
+		}
+		if (history != null) {
+			try {
+				history.close();
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to close the transaction history:", e);
+			}
+		}
+
+		closeQuietly(storage);
+		StorageBackend mirror = this.mirror;
+		if (mirror != null) {
+			closeQuietly(mirror);
+		}
 		try {
-			banknoteConfig.load(banknoteFile);
-		} catch (IOException | InvalidConfigurationException e) {
-			plugin.getLogger().log(Level.WARNING, "Failed to reload banknotes.yml:", e);
+			spentNotes.close();
+		} catch (IOException e) {
+			plugin.getLogger().log(Level.WARNING, "Failed to close spent-notes.dat:", e);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -10,6 +10,9 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Main class for the Economy plugin.
  * Handles plugin lifecycle events, economy service registration, and data management.
@@ -18,15 +21,37 @@ public final class EconomyPlugin extends JavaPlugin {
 	// Volatile for thread safety in case of async access
 	private volatile @Nullable Economy economyHandler;
 	private @Nullable DataManager dataManager;
+	private @Nullable PlayerNameCache nameCache;
+	private @Nullable BanknoteSigner banknoteSigner;
+	private final AtomicReference<Settings> settings = new AtomicReference<>();
+	private final OperationStats stats = new OperationStats();
 
 	@Override
 	public void onEnable() {
 		// Save the default config.yml if it does not exist
 		saveDefaultConfig();
+		reloadSettings();
 
 		// Initialize the data manager (handles both player and banknote data)
 		this.dataManager = new DataManager(this);
 
+		// Keep online players' accounts in memory when accounts are loaded on demand
+		AccountListener accountListener = new AccountListener(this);
+		accountListener.pinOnlinePlayers();
+		getServer().getPluginManager().registerEvents(accountListener, this);
+
+		// Load the key signing stateless banknotes, generating it on first start
+		try {
+			this.banknoteSigner = BanknoteSigner.load(getDataFolder().toPath().resolve("banknote.key"));
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to load banknote.key", e);
+		}
+
+		// Initialize the name cache used by the name-based Vault methods
+		this.nameCache = new PlayerNameCache(this);
+		this.nameCache.prewarm();
+		getServer().getPluginManager().registerEvents(this.nameCache, this);
+
 		// Register the economy service with the lowest priority
 		BasicEconomy basicEconomy = new BasicEconomy(this);
 		ServicesManager servicesManager = Bukkit.getServicesManager();
@@ -48,10 +73,12 @@ public final class EconomyPlugin extends JavaPlugin {
 
 	@Override
 	public void onDisable() {
-		// Save player and banknote data
+		// Flush pending player and banknote data
 		if (this.dataManager != null) {
-			this.dataManager.savePlayerData();
-			this.dataManager.saveBanknoteData();
+			this.dataManager.shutdown();
+		}
+		if (this.nameCache != null) {
+			this.nameCache.shutdown();
 		}
 
 		Bukkit.getServicesManager().unregister(Economy.class, getEconomyHandler());
@@ -71,6 +98,63 @@ public final class EconomyPlugin extends JavaPlugin {
 		return this.dataManager;
 	}
 
+	/**
+	 * Gets the player name cache.
+	 *
+	 * @return the player name cache instance
+	 * @throws IllegalStateException if the name cache is not initialized
+	 */
+	public @NotNull PlayerNameCache getNameCache() {
+		if (this.nameCache == null) {
+			throw new IllegalStateException("PlayerNameCache is not initialized.");
+		}
+		return this.nameCache;
+	}
+
+	/**
+	 * Gets the banknote signer.
+	 *
+	 * @return the banknote signer instance
+	 * @throws IllegalStateException if the banknote signer is not initialized
+	 */
+	public @NotNull BanknoteSigner getBanknoteSigner() {
+		if (this.banknoteSigner == null) {
+			throw new IllegalStateException("BanknoteSigner is not initialized.");
+		}
+		return this.banknoteSigner;
+	}
+
+	/**
+	 * Gets the operation latency stats.
+	 *
+	 * @return the operation stats
+	 */
+	public @NotNull OperationStats getStats() {
+		return this.stats;
+	}
+
+	/**
+	 * Gets the current settings snapshot.
+	 * Hold on to the returned snapshot to read several settings consistently across a reload.
+	 *
+	 * @return the settings snapshot
+	 * @throws IllegalStateException if the settings are not loaded
+	 */
+	public @NotNull Settings getSettings() {
+		Settings current = this.settings.get();
+		if (current == null) {
+			throw new IllegalStateException("Settings are not loaded.");
+		}
+		return current;
+	}
+
+	/**
+	 * Rebuilds the settings snapshot from the loaded config and publishes it.
+	 */
+	public void reloadSettings() {
+		this.settings.set(Settings.load(getConfig()));
+	}
+
 	/**
 	 * Gets the economy handler, initializing it if necessary.
 	 * Uses Vault's service manager to retrieve the registered provider.
@@ -0,0 +1,209 @@
+package co.xenastudios.economy;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Resolves player names to account UUIDs for the name-based Vault methods without ever blocking
+ * the calling thread on a profile lookup.
+ * <p>
+ * Names are matched case-insensitively against a bounded, least-recently-used cache fed by join
+ * events and, at startup, by the players that already have an account. A miss only consults the
+ * online players and the server's user cache; anything else is looked up on a background thread,
+ * and the caller is treated as unknown until that lookup lands. Names that turn out not to belong
+ * to any player are remembered as unknown for a while, and stale entries keep being served while
+ * they are refreshed in the background.
+ */
+public final class PlayerNameCache implements Listener {
+	private final EconomyPlugin plugin;
+	private final int maxSize;
+	private final long refreshAfterNanos;
+	private final long negativeTtlNanos;
+
+	// Access-ordered, so the eldest entry is the least recently used one
+	private final LinkedHashMap<String, Entry> entries;
+	private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+	private final ExecutorService resolver;
+
+	/**
+	 * A cached resolution; a null account means the name belongs to no known player.
+	 */
+	private record Entry(@Nullable UUID account, long expiresAt) {
+	}
+
+	/**
+	 * Constructs a new PlayerNameCache.
+	 *
+	 * @param plugin The main plugin instance.
+	 */
+	public PlayerNameCache(@NotNull EconomyPlugin plugin) {
+		this.plugin = plugin;
+
+		FileConfiguration config = plugin.getConfig();
+		this.maxSize = Math.max(16, config.getInt("name-cache.max-size", 10000));
+		this.refreshAfterNanos = TimeUnit.SECONDS.toNanos(Math.max(1L, config.getLong("name-cache.refresh-after", 3600L)));
+		this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(Math.max(1L, config.getLong("name-cache.negative-ttl", 300L)));
+
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+		this.resolver = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Economy-NameResolver");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Fills the cache in the background with the names of players that already have an account,
+	 * reading the accounts in one pass rather than looking each player up.
+	 */
+	public void prewarm() {
+		resolver.execute(() -> {
+			Map<UUID, String> names = new HashMap<>();
+			for (OfflinePlayer player : Bukkit.getOfflinePlayers()) {
+				String name = player.getName();
+				if (name != null) {
+					names.put(player.getUniqueId(), name);
+				}
+			}
+
+			try {
+				plugin.getDataManager().forEachAccount((mostSigBits, leastSigBits, balance) -> {
+					if (balance == 0L) return;
+					UUID account = new UUID(mostSigBits, leastSigBits);
+					String name = names.remove(account);
+					if (name != null) {
+						putIfAbsent(name, account);
+					}
+				});
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to read the accounts to prewarm the name cache:", e);
+			}
+		});
+	}
+
+	/**
+	 * Resolves a player name to an account UUID without blocking.
+	 *
+	 * @param name The player name, in any case.
+	 * @return The account UUID, or null if the name is unknown or still being looked up.
+	 */
+	public @Nullable UUID resolve(@NotNull String name) {
+		String key = name.toLowerCase(Locale.ROOT);
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+
+		if (entry != null) {
+			if (System.nanoTime() - entry.expiresAt() > 0) {
+				refresh(key, name);
+			}
+			return entry.account();
+		}
+
+		// Both of these only read server memory, unlike Bukkit.getOfflinePlayer(String)
+		Player online = Bukkit.getPlayerExact(name);
+		if (online != null) {
+			put(key, online.getUniqueId());
+			return online.getUniqueId();
+		}
+		OfflinePlayer cached = Bukkit.getOfflinePlayerIfCached(name);
+		if (cached != null) {
+			put(key, cached.getUniqueId());
+			return cached.getUniqueId();
+		}
+
+		refresh(key, name);
+		return null;
+	}
+
+	/**
+	 * Stops background lookups.
+	 */
+	public void shutdown() {
+		resolver.shutdownNow();
+	}
+
+	/**
+	 * Keeps the cache current as players join, including after a name change.
+	 *
+	 * @param event The player join event.
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onPlayerJoin(PlayerJoinEvent event) {
+		Player player = event.getPlayer();
+		put(player.getName().toLowerCase(Locale.ROOT), player.getUniqueId());
+	}
+
+	/**
+	 * Looks a name up on the resolver thread, unless a lookup for it is already queued.
+	 */
+	private void refresh(@NotNull String key, @NotNull String name) {
+		if (!refreshing.add(key)) return;
+
+		try {
+			resolver.execute(() -> {
+				try {
+					// May block on a profile lookup, which is why it only ever runs here
+					OfflinePlayer player = Bukkit.getOfflinePlayer(name);
+					if (player.isOnline() || player.hasPlayedBefore()) {
+						put(key, player.getUniqueId());
+					} else {
+						putUnknown(key);
+					}
+				} catch (RuntimeException e) {
+					plugin.getLogger().log(Level.WARNING, "Failed to resolve player name '" + name + "':", e);
+				} finally {
+					refreshing.remove(key);
+				}
+			});
+		} catch (RuntimeException e) {
+			// The resolver has been shut down
+			refreshing.remove(key);
+		}
+	}
+
+	private void put(@NotNull String key, @NotNull UUID account) {
+		synchronized (entries) {
+			entries.put(key, new Entry(account, System.nanoTime() + refreshAfterNanos));
+		}
+	}
+
+	private void putIfAbsent(@NotNull String name, @NotNull UUID account) {
+		synchronized (entries) {
+			entries.putIfAbsent(name.toLowerCase(Locale.ROOT), new Entry(account, System.nanoTime() + refreshAfterNanos));
+		}
+	}
+
+	private void putUnknown(@NotNull String key) {
+		synchronized (entries) {
+			entries.put(key, new Entry(null, System.nanoTime() + negativeTtlNanos));
+		}
+	}
+}
@@ -0,0 +1,406 @@
+package co.xenastudios.economy;
+
+import co.xenastudios.economy.utilities.CurrencyFormatter;
+import co.xenastudios.economy.utilities.MessageTemplate;
+import co.xenastudios.economy.utilities.MessageTemplate.Variable;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Material;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An immutable, typed snapshot of config.yml, built once on enable and on every reload.
+ * Readers on any thread get a consistent view of the whole config without looking up paths.
+ *
+ * @param messages  The parsed plugin messages.
+ * @param currency  How amounts are formatted and named.
+ * @param banknotes The banknote item template and issuing mode.
+ * @param commands  The command toggles, permissions and aliases.
+ */
+public record Settings(
+		@NotNull Messages messages,
+		@NotNull Currency currency,
+		@NotNull Banknotes banknotes,
+		@NotNull Commands commands
+) {
+
+	/**
+	 * The plugin messages, parsed once.
+	 */
+	public record Messages(
+			@NotNull MessageTemplate usage,
+			@NotNull MessageTemplate playerOnly,
+			@NotNull MessageTemplate noPlayer,
+			@NotNull MessageTemplate notEnough,
+			@NotNull MessageTemplate balance,
+			@NotNull MessageTemplate othersBalance,
+			@NotNull MessageTemplate configReloaded,
+			@NotNull MessageTemplate setSuccess,
+			@NotNull MessageTemplate giveSuccess,
+			@NotNull MessageTemplate takeSuccess,
+			@NotNull MessageTemplate changeFailed,
+			@NotNull MessageTemplate migrateStarted,
+			@NotNull MessageTemplate migrateProgress,
+			@NotNull MessageTemplate migrateDone,
+			@NotNull MessageTemplate migrateFailed,
+			@NotNull MessageTemplate historyHeader,
+			@NotNull MessageTemplate historyEntry,
+			@NotNull MessageTemplate historyEmpty,
+			@NotNull MessageTemplate historyDisabled,
+			@NotNull MessageTemplate historyFailed,
+			@NotNull MessageTemplate statsHeader,
+			@NotNull MessageTemplate statsEntry,
+			@NotNull MessageTemplate statsEmpty,
+			@NotNull MessageTemplate statsReset,
+			@NotNull MessageTemplate statsDumped,
+			@NotNull MessageTemplate statsDumpFailed,
+			@NotNull MessageTemplate paySent,
+			@NotNull MessageTemplate payReceived,
+			@NotNull MessageTemplate paySelf,
+			@NotNull MessageTemplate withdrawn,
+			@NotNull MessageTemplate withdrawnBatch,
+			@NotNull MessageTemplate withdrawFailed,
+			@NotNull MessageTemplate banknoteRedeemed,
+			@NotNull MessageTemplate banknoteInvalid,
+			@NotNull MessageTemplate banknoteLimit,
+			@NotNull MessageTemplate banknotesRedeemed,
+			@NotNull MessageTemplate noBanknotes,
+			@NotNull MessageTemplate baltopHeader,
+			@NotNull MessageTemplate baltopEntry,
+			@NotNull MessageTemplate baltopRank,
+			@NotNull MessageTemplate baltopEmpty,
+			@NotNull MessageTemplate baltopLoading
+	) {
+	}
+
+	/**
+	 * How amounts are formatted and what the currency is called.
+	 */
+	public record Currency(
+			@NotNull CurrencyFormatter formatter,
+			@NotNull String nameSingular,
+			@NotNull String namePlural
+	) {
+	}
+
+	/**
+	 * The parsed title and lore of banknote items, with only the amount left to fill in,
+	 * and whether new notes are signed instead of stored.
+	 */
+	public record Banknotes(@NotNull MessageTemplate title, @NotNull List<MessageTemplate> lore, boolean signed) {
+
+		/**
+		 * Creates a banknote item for an amount, without any banknote data.
+		 *
+		 * @param formattedAmount The formatted amount shown on the item.
+		 * @return The banknote item.
+		 */
+		public @NotNull ItemStack createItem(@NotNull String formattedAmount) {
+			Component displayName = title.render(Variable.AMOUNT, formattedAmount);
+			List<Component> renderedLore = new ArrayList<>(lore.size());
+			for (MessageTemplate line : lore) {
+				renderedLore.add(line.render(Variable.AMOUNT, formattedAmount));
+			}
+
+			ItemStack item = new ItemStack(Material.PAPER);
+			item.editMeta(meta -> {
+				meta.displayName(displayName);
+				meta.lore(renderedLore);
+			});
+			return item;
+		}
+	}
+
+	/**
+	 * Whether a command is registered, who may use it and what else it is called.
+	 * An empty permission means anyone may use the command.
+	 */
+	public record CommandSettings(boolean enabled, @NotNull String permission, @NotNull List<String> aliases) {
+
+		/**
+		 * Checks the command's permission.
+		 *
+		 * @param sender The sender to check.
+		 * @return true if the sender may use the command
+		 */
+		public boolean isPermitted(@NotNull CommandSender sender) {
+			return permission.isEmpty() || sender.hasPermission(permission);
+		}
+	}
+
+	/**
+	 * The settings of each command.
+	 */
+	public record Commands(
+			@NotNull CommandSettings balance,
+			@NotNull String balanceOthersPermission,
+			@NotNull CommandSettings economyAdmin,
+			@NotNull CommandSettings pay,
+			@NotNull CommandSettings withdraw,
+			@NotNull CommandSettings redeem,
+			@NotNull CommandSettings baltop,
+			int baltopPageSize
+	) {
+	}
+
+	/**
+	 * Builds a snapshot from the plugin config.
+	 *
+	 * @param config The plugin config.
+	 * @return The settings snapshot.
+	 */
+	public static @NotNull Settings load(@NotNull FileConfiguration config) {
+		Messages messages = new Messages(
+				message(config, "messages.error.usage", "<red>Usage: <usage></red>"),
+				message(config, "messages.error.player-only", "<red>Only a player can execute this command!</red>"),
+				message(config, "messages.error.no-player", "<red>That player doesn't exist!</red>"),
+				message(config, "messages.error.not-enough", "<red>You do not have enough money!</red>"),
+				message(config, "commands.balance.messages.balance", "<white>Balance: <green><balance></green></white>"),
+				message(
+						config,
+						"commands.balance.messages.others-balance",
+						"<white><green><player>'s</green> balance: <green><balance></green></white>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.config-reloaded",
+						"<green>Economy's config has been reloaded.</green>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.set-success",
+						"<green>Set <player>'s balance to <balance></green>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.give-success",
+						"<green>Gave <amount> to <player>. New balance: <balance></green>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.take-success",
+						"<green>Took <amount> from <player>. New balance: <balance></green>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.change-failed",
+						"<red>Couldn't change <player>'s balance: <reason></red>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.migrate-started",
+						"<gray>Migrating balances and banknotes from <from> to <to>...</gray>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.migrate-progress",
+						"<gray>Copied <count> accounts and <banknotes> banknotes (<rate>/s)</gray>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.migrate-done",
+						"<green>Migrated <count> accounts holding <amount> and <banknotes> banknotes; totals verified. "
+								+ "Changes are copied over until the next restart, so set storage.backend and restart to switch.</green>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.migrate-failed",
+						"<red>Migration failed: <reason></red>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.history-header",
+						"<gold>Transactions of <player></gold> <gray>(page <page>)</gray>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.history-entry",
+						"<gray><time></gray> <white><type></white> <green><amount></green> <gray>balance <balance></gray> <dark_gray><player></dark_gray>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.history-empty",
+						"<gray>No more transactions recorded for <player>.</gray>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.history-disabled",
+						"<red>The transaction history is disabled.</red>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.history-failed",
+						"<red>Failed to read the history: <reason></red>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.stats-header",
+						"<gold>Operation latencies</gold> <gray>(count, p50, p99, max)</gray>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.stats-entry",
+						"<white><operation></white> <gray><count></gray> <green><p50></green> <yellow><p99></yellow> <red><max></red>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.stats-empty",
+						"<gray>No operations timed yet.</gray>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.stats-reset",
+						"<green>Operation latencies reset.</green>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.stats-dumped",
+						"<green>Operation latencies written to <file>.</green>"
+				),
+				message(
+						config,
+						"commands.economyadmin.messages.stats-dump-failed",
+						"<red>Failed to write the operation latencies: <reason></red>"
+				),
+				message(config, "commands.pay.messages.sent", "<green>Sent <amount> to <player>.</green>"),
+				message(
+						config,
+						"commands.pay.messages.received",
+						"<green>You received <amount> from <player>.</green>"
+				),
+				message(config, "commands.pay.messages.error.self", "<red>You cannot pay yourself!</red>"),
+				message(
+						config,
+						"commands.withdraw.messages.withdrawn",
+						"<green>Withdrawn <amount> as a banknote!</green>"
+				),
+				message(
+						config,
+						"commands.withdraw.messages.withdrawn-batch",
+						"<green>Withdrawn <count> banknotes of <amount>!</green>"
+				),
+				message(
+						config,
+						"commands.withdraw.messages.failed",
+						"<red>Banknotes can't be issued right now, please try again later.</red>"
+				),
+				message(
+						config,
+						"banknotes.messages.redeemed",
+						"<green>Redeemed <amount> into your account!</green>"
+				),
+				message(
+						config,
+						"banknotes.messages.error.invalid",
+						"<red>This banknote is invalid or already redeemed!</red>"
+				),
+				message(
+						config,
+						"banknotes.messages.error.balance-limit",
+						"<red>Your balance can't hold any more money!</red>"
+				),
+				message(
+						config,
+						"banknotes.messages.redeemed-all",
+						"<green>Redeemed <amount> from <count> banknotes into your account!</green>"
+				),
+				message(
+						config,
+						"banknotes.messages.error.none",
+						"<red>You have no banknotes to redeem!</red>"
+				),
+				message(
+						config,
+						"commands.baltop.messages.header",
+						"<gold>Top balances</gold> <gray>(page <page> of <pages>)</gray>"
+				),
+				message(
+						config,
+						"commands.baltop.messages.entry",
+						"<gray><rank>.</gray> <white><player></white> <green><balance></green>"
+				),
+				message(
+						config,
+						"commands.baltop.messages.rank",
+						"<gray>You are ranked <white><rank></white> of <white><count></white>.</gray>"
+				),
+				message(config, "commands.baltop.messages.empty", "<gray>Nobody has any money yet.</gray>"),
+				message(
+						config,
+						"commands.baltop.messages.loading",
+						"<gray>The leaderboard is still being built, try again shortly.</gray>"
+				)
+		);
+
+		Currency currency = new Currency(
+				new CurrencyFormatter(
+						config.getString("currency.symbol", "$"),
+						config.getBoolean("currency.symbol-after", false),
+						Locale.forLanguageTag(config.getString("currency.locale", "en-US")),
+						config.getBoolean("currency.grouping", true)
+				),
+				config.getString("currency.name-singular", "$"),
+				config.getString("currency.name-plural", "$")
+		);
+
+		List<String> lore = config.getStringList("banknotes.item.lore");
+		if (lore.isEmpty()) {
+			lore = List.of(
+					"<!i><dark_gray>Economy Item</dark_gray>",
+					"",
+					"<!i><green>Information:</green>",
+					"<!i><gray>»</gray> <white>Amount:</white> <green><amount></green>",
+					"",
+					"<!i><green>Right-Click to Redeem</green>"
+			);
+		}
+		List<MessageTemplate> loreTemplates = new ArrayList<>(lore.size());
+		for (String line : lore) {
+			loreTemplates.add(MessageTemplate.compile(line));
+		}
+		Banknotes banknotes = new Banknotes(
+				message(config, "banknotes.item.title", "<!i><green><b>Banknote</b></green>"),
+				List.copyOf(loreTemplates),
+				config.getBoolean("banknotes.signed", false)
+		);
+
+		Commands commands = new Commands(
+				command(config, "balance", config.getString("commands.balance.permissions.default", "economy.command.balance")),
+				config.getString("commands.balance.permissions.others", "economy.command.balance.others"),
+				command(config, "economyadmin", config.getString("commands.economyadmin.permission", "")),
+				command(config, "pay", config.getString("commands.pay.permission", "economy.command.pay")),
+				command(config, "withdraw", config.getString("commands.withdraw.permission", "economy.command.withdraw")),
+				command(config, "redeem", config.getString("commands.redeem.permission", "economy.command.redeem")),
+				command(config, "baltop", config.getString("commands.baltop.permission", "economy.command.baltop")),
+				Math.max(1, config.getInt("commands.baltop.page-size", 10))
+		);
+
+		return new Settings(messages, currency, banknotes, commands);
+	}
+
+	private static @NotNull MessageTemplate message(
+			@NotNull FileConfiguration config,
+			@NotNull String path,
+			@NotNull String defaultMessage
+	) {
+		return MessageTemplate.compile(config.getString(path, defaultMessage));
+	}
+
+	private static @NotNull CommandSettings command(
+			@NotNull FileConfiguration config,
+			@NotNull String name,
+			@NotNull String permission
+	) {
+		return new CommandSettings(
+				config.getBoolean("commands." + name + ".enabled", false),
+				permission,
+				List.copyOf(config.getStringList("commands." + name + ".aliases"))
+		);
+	}
+}
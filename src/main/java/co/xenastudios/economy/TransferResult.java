@@ -0,0 +1,35 @@
+package co.xenastudios.economy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The outcome of a transfer between two accounts.
+ *
+ * @param status           Whether the transfer happened, and if not, why.
+ * @param amount           The amount requested to transfer.
+ * @param senderBalance    The sender's balance after the transfer, or their current balance if it failed.
+ * @param recipientBalance The recipient's balance after the transfer, or their current balance if it failed.
+ */
+public record TransferResult(@NotNull Status status, double amount, double senderBalance, double recipientBalance) {
+
+	/**
+	 * Why a transfer did or did not happen.
+	 */
+	public enum Status {
+		SUCCESS,
+		INSUFFICIENT_FUNDS,
+		SAME_ACCOUNT,
+		UNKNOWN_PLAYER,
+		INVALID_AMOUNT,
+		BALANCE_LIMIT
+	}
+
+	/**
+	 * Checks if the transfer happened.
+	 *
+	 * @return true if both balances were changed
+	 */
+	public boolean transactionSuccess() {
+		return status == Status.SUCCESS;
+	}
+}
@@ -1,6 +1,8 @@
 package co.xenastudios.economy.commands;
 
 import co.xenastudios.economy.EconomyPlugin;
+import co.xenastudios.economy.utilities.MessageTemplate;
+import co.xenastudios.economy.utilities.MessageTemplate.Variable;
 import co.xenastudios.economy.utilities.MsgUtility;
 import com.destroystokyo.paper.profile.PlayerProfile;
 import com.mojang.brigadier.Command;
@@ -10,7 +12,6 @@ import io.papermc.paper.command.brigadier.CommandSourceStack;
 import io.papermc.paper.command.brigadier.Commands;
 import io.papermc.paper.command.brigadier.argument.ArgumentTypes;
 import io.papermc.paper.command.brigadier.argument.resolvers.PlayerProfileListResolver;
-import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
@@ -36,38 +37,25 @@ public class BalanceCommand {
 		LiteralArgumentBuilder<CommandSourceStack> balanceCommand =
 				Commands.literal("balance");
 
-		// Permissions from config
-		String selfPermission = plugin.getConfig().getString("commands.balance.permissions.default", "economy.command.balance");
-		String othersPermission = plugin.getConfig().getString("commands.balance.permissions.others", "economy.command.balance.others");
-
 		// Restrict base command to those with self permission
-		if (!selfPermission.isEmpty()) {
-			balanceCommand.requires(sender -> sender.getSender().hasPermission(selfPermission));
-		}
+		balanceCommand.requires(sender -> plugin.getSettings().commands().balance().isPermitted(sender.getSender()));
 
 		// /balance (self)
 		balanceCommand.executes(ctx -> {
 			CommandSender sender = ctx.getSource().getSender();
 			if (!(sender instanceof Player player)) {
-				String playerOnlyMsg = plugin.getConfig().getString(
-						"messages.error.player-only",
-						"<red>Only a player can execute this command!</red>"
-				);
-				MsgUtility.send(sender, playerOnlyMsg);
+				MessageTemplate playerOnlyMsg = plugin.getSettings().messages().playerOnly();
+				MsgUtility.send(sender, playerOnlyMsg.render());
 				return Command.SINGLE_SUCCESS;
 			}
 
 			double balance = plugin.getEconomyHandler().getBalance(player);
 			String formatted = plugin.getEconomyHandler().format(balance);
 
-			String balanceMsg = plugin.getConfig().getString(
-					"commands.balance.messages.balance",
-					"<white>Balance: <green><balance></green></white>"
-			);
+			MessageTemplate balanceMsg = plugin.getSettings().messages().balance();
 			MsgUtility.send(
 					player,
-					balanceMsg,
-					Placeholder.unparsed("balance", formatted)
+					balanceMsg.render(Variable.BALANCE, formatted)
 			);
 			return Command.SINGLE_SUCCESS;
 		});
@@ -75,7 +63,7 @@ public class BalanceCommand {
 		// /balance <player> (others)
 		balanceCommand.then(
 				Commands.argument("target", ArgumentTypes.playerProfiles())
-						.requires(sender -> sender.getSender().hasPermission(othersPermission))
+						.requires(sender -> sender.getSender().hasPermission(plugin.getSettings().commands().balanceOthersPermission()))
 						.executes(ctx -> {
 							CommandSender sender = ctx.getSource().getSender();
 							PlayerProfileListResolver profilesResolver = ctx.getArgument("target", PlayerProfileListResolver.class);
@@ -84,22 +72,16 @@ public class BalanceCommand {
 							// Use the first found profile as the target
 							Iterator<PlayerProfile> iterator = foundProfiles.iterator();
 							if (!iterator.hasNext()) {
-								String noPlayerMsg = plugin.getConfig().getString(
-										"messages.error.no-player",
-										"<red>That player doesn't exist!</red>"
-								);
-								MsgUtility.send(sender, noPlayerMsg);
+								MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+								MsgUtility.send(sender, noPlayerMsg.render());
 								return Command.SINGLE_SUCCESS;
 							}
 
 							PlayerProfile profile = iterator.next();
 							String targetName = profile.getName();
 							if (targetName == null) {
-								String noPlayerMsg = plugin.getConfig().getString(
-										"messages.error.no-player",
-										"<red>That player doesn't exist!</red>"
-								);
-								MsgUtility.send(sender, noPlayerMsg);
+								MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+								MsgUtility.send(sender, noPlayerMsg.render());
 								return Command.SINGLE_SUCCESS;
 							}
 
@@ -107,26 +89,18 @@ public class BalanceCommand {
 
 							// Check if the player exists (has played before or is online)
 							if (!target.isOnline() && !target.hasPlayedBefore()) {
-								String noPlayerMsg = plugin.getConfig().getString(
-										"messages.error.no-player",
-										"<red>That player doesn't exist!</red>"
-								);
-								MsgUtility.send(sender, noPlayerMsg);
+								MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+								MsgUtility.send(sender, noPlayerMsg.render());
 								return Command.SINGLE_SUCCESS;
 							}
 
 							double balance = plugin.getEconomyHandler().getBalance(target);
 							String formatted = plugin.getEconomyHandler().format(balance);
 
-							String othersBalanceMsg = plugin.getConfig().getString(
-									"commands.balance.messages.others-balance",
-									"<white><green><player>'s</green> balance: <green><balance></green></white>"
-							);
+							MessageTemplate othersBalanceMsg = plugin.getSettings().messages().othersBalance();
 							MsgUtility.send(
 									sender,
-									othersBalanceMsg,
-									Placeholder.unparsed("player", target.getName()),
-									Placeholder.unparsed("balance", formatted)
+									othersBalanceMsg.render(Variable.PLAYER, target.getName(), Variable.BALANCE, formatted)
 							);
 							return Command.SINGLE_SUCCESS;
 						})
@@ -0,0 +1,111 @@
+package co.xenastudios.economy.commands;
+
+import co.xenastudios.economy.EconomyPlugin;
+import co.xenastudios.economy.Settings;
+import co.xenastudios.economy.storage.Leaderboard;
+import co.xenastudios.economy.utilities.CurrencyFormatter;
+import co.xenastudios.economy.utilities.MessageTemplate.Variable;
+import co.xenastudios.economy.utilities.MsgUtility;
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.Commands;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Handles the /baltop [page] command for listing the richest players.
+ */
+public class BaltopCommand {
+
+	/**
+	 * Creates the /baltop [page] command node for registration.
+	 *
+	 * @param plugin The main plugin instance.
+	 * @return The constructed command node for registration.
+	 */
+	public static LiteralCommandNode<CommandSourceStack> createCommand(@NotNull final EconomyPlugin plugin) {
+		// Build the base /baltop command
+		LiteralArgumentBuilder<CommandSourceStack> baltopCommand =
+				Commands.literal("baltop");
+
+		// Restrict the command to those with permission
+		baltopCommand.requires(sender -> plugin.getSettings().commands().baltop().isPermitted(sender.getSender()));
+
+		// /baltop: the first page
+		baltopCommand.executes(ctx -> showPage(plugin, ctx.getSource().getSender(), 1));
+
+		// /baltop <page>
+		baltopCommand.then(
+				Commands.argument("page", IntegerArgumentType.integer(1))
+						.executes(ctx -> showPage(
+								plugin,
+								ctx.getSource().getSender(),
+								IntegerArgumentType.getInteger(ctx, "page")
+						))
+		);
+
+		// Build and return the complete command node
+		return baltopCommand.build();
+	}
+
+	/**
+	 * Sends one page of the leaderboard, followed by the sender's own rank if they have one.
+	 */
+	private static int showPage(@NotNull EconomyPlugin plugin, @NotNull CommandSender sender, int page) {
+		Settings settings = plugin.getSettings();
+		Settings.Messages messages = settings.messages();
+		Leaderboard leaderboard = plugin.getDataManager().getLeaderboard();
+		if (leaderboard == null || !leaderboard.isReady()) {
+			MsgUtility.send(sender, messages.baltopLoading().render());
+			return Command.SINGLE_SUCCESS;
+		}
+
+		int ranked = leaderboard.size();
+		if (ranked == 0) {
+			MsgUtility.send(sender, messages.baltopEmpty().render());
+			return Command.SINGLE_SUCCESS;
+		}
+
+		// Pages past the end show the last one
+		int pageSize = settings.commands().baltopPageSize();
+		int pages = (ranked - 1) / pageSize + 1;
+		page = Math.min(page, pages);
+		List<Leaderboard.Entry> entries = leaderboard.range((page - 1) * pageSize + 1, pageSize);
+
+		MsgUtility.send(
+				sender,
+				messages.baltopHeader().render(Variable.PAGE, String.valueOf(page), Variable.PAGES, String.valueOf(pages))
+		);
+		CurrencyFormatter formatter = settings.currency().formatter();
+		for (Leaderboard.Entry entry : entries) {
+			// Known from the server's user cache; accounts without a player show their UUID
+			String name = Bukkit.getOfflinePlayer(entry.account()).getName();
+			MsgUtility.send(
+					sender,
+					messages.baltopEntry().render(
+							Variable.RANK, String.valueOf(entry.rank()),
+							Variable.PLAYER, name != null ? name : entry.account().toString(),
+							Variable.BALANCE, formatter.format(entry.balance())
+					)
+			);
+		}
+
+		if (sender instanceof Player player) {
+			int rank = leaderboard.rank(player.getUniqueId());
+			if (rank > 0) {
+				MsgUtility.send(
+						sender,
+						messages.baltopRank().render(Variable.RANK, String.valueOf(rank), Variable.COUNT, String.valueOf(ranked))
+				);
+			}
+		}
+		return Command.SINGLE_SUCCESS;
+	}
+}
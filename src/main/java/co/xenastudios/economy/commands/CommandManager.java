@@ -1,11 +1,22 @@
 package co.xenastudios.economy.commands;
 
 import co.xenastudios.economy.EconomyPlugin;
+import co.xenastudios.economy.OperationStats;
+import co.xenastudios.economy.OperationStats.Operation;
+import co.xenastudios.economy.Settings;
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.tree.CommandNode;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
 import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * Handles registration of all plugin commands based on configuration.
+ * Every command is timed in the plugin's {@link OperationStats}; for commands that hand their work to
+ * another thread, that covers the part run on the server thread.
  */
 public class CommandManager {
 
@@ -16,38 +27,54 @@ public class CommandManager {
 	 * @param plugin The main plugin instance.
 	 */
 	public static void registerCommands(EconomyPlugin plugin) {
-		FileConfiguration config = plugin.getConfig();
-
 		plugin.getLifecycleManager().registerEventHandler(
 				LifecycleEvents.COMMANDS,
 				commands -> {
+					Settings.Commands settings = plugin.getSettings().commands();
+					OperationStats stats = plugin.getStats();
+
 					// Register each command if enabled in config (default: false)
-					if (config.getBoolean("commands.balance.enabled", false)) {
+					if (settings.balance().enabled()) {
 						commands.registrar().register(
-								BalanceCommand.createCommand(plugin),
+								timed(stats, Operation.COMMAND_BALANCE, BalanceCommand.createCommand(plugin)),
 								"Check your balance.",
-								config.getStringList("commands.balance.aliases")
+								settings.balance().aliases()
 						);
 					}
-					if (config.getBoolean("commands.economyadmin.enabled", false)) {
+					if (settings.economyAdmin().enabled()) {
 						commands.registrar().register(
-								EconomyAdminCommand.createCommand(plugin),
+								timed(stats, Operation.COMMAND_ECONOMYADMIN, EconomyAdminCommand.createCommand(plugin)),
 								"Manage your Economy plugin.",
-								config.getStringList("commands.economyadmin.aliases")
+								settings.economyAdmin().aliases()
 						);
 					}
-					if (config.getBoolean("commands.pay.enabled", false)) {
+					if (settings.pay().enabled()) {
 						commands.registrar().register(
-								PayCommand.createCommand(plugin),
+								timed(stats, Operation.COMMAND_PAY, PayCommand.createCommand(plugin)),
 								"Pay someone else.",
-								config.getStringList("commands.pay.aliases")
+								settings.pay().aliases()
 						);
 					}
-					if (config.getBoolean("commands.withdraw.enabled", false)) {
+					if (settings.withdraw().enabled()) {
 						commands.registrar().register(
-								WithdrawCommand.createCommand(plugin),
+								timed(stats, Operation.COMMAND_WITHDRAW, WithdrawCommand.createCommand(plugin)),
 								"Withdraw your balance into a banknote.",
-								config.getStringList("commands.withdraw.aliases")
+								settings.withdraw().aliases()
+						);
+					}
+					if (settings.redeem().enabled()) {
+						commands.registrar().register(
+								timed(stats, Operation.COMMAND_REDEEM, RedeemCommand.createCommand(plugin)),
+								"Redeem all of your banknotes at once.",
+								settings.redeem().aliases()
+						);
+					}
+					// Only with the leaderboard enabled, as nothing is ranked otherwise
+					if (settings.baltop().enabled() && plugin.getDataManager().getLeaderboard() != null) {
+						commands.registrar().register(
+								timed(stats, Operation.COMMAND_BALTOP, BaltopCommand.createCommand(plugin)),
+								"Show the richest players.",
+								settings.baltop().aliases()
 						);
 					}
 				}
@@ -56,4 +83,48 @@ public class CommandManager {
 		// Log command registration using the plugin's logger
 		plugin.getLogger().info("Commands registered successfully.");
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Copies a command tree so that running any of its commands is timed as the given operation.
+	 *
+	 * @param stats     The stats to record in.
+	 * @param operation The operation the command is timed as.
+	 * @param root      The command tree.
+	 * @return The timed copy of the tree.
+	 */
+	private static @NotNull LiteralCommandNode<CommandSourceStack> timed(
+			@NotNull OperationStats stats,
+			@NotNull Operation operation,
+			@NotNull LiteralCommandNode<CommandSourceStack> root
+	) {
+		LiteralArgumentBuilder<CommandSourceStack> builder = root.createBuilder();
+		timed(stats, operation, root, builder);
+		return builder.build();
+	}
+
+	private static void timed(
+			@NotNull OperationStats stats,
+			@NotNull Operation operation,
+			@NotNull CommandNode<CommandSourceStack> node,
+			@NotNull ArgumentBuilder<CommandSourceStack, ?> builder
+	) {
+		// The builder copies the node's requirement, suggestions and command, so only the command is replaced
+		Command<CommandSourceStack> command = node.getCommand();
+		if (command != null) {
+			builder.executes(context -> {
+				long start = System.nanoTime();
+				try {
+					return command.run(context);
+				} finally {
+					stats.record(operation, start);
+				}
+			});
+		}
+
+		for (CommandNode<CommandSourceStack> child : node.getChildren()) {
+			ArgumentBuilder<CommandSourceStack, ?> childBuilder = child.createBuilder();
+			timed(stats, operation, child, childBuilder);
+			builder.then(childBuilder.build());
+		}
+	}
+}
@@ -1,30 +1,62 @@
 package co.xenastudios.economy.commands;
 
+import co.xenastudios.economy.BasicEconomy;
 import co.xenastudios.economy.EconomyPlugin;
+import co.xenastudios.economy.OperationStats;
+import co.xenastudios.economy.Settings;
+import co.xenastudios.economy.storage.StorageBackend;
+import co.xenastudios.economy.storage.StorageMigration;
+import co.xenastudios.economy.storage.TransactionLog;
+import co.xenastudios.economy.utilities.CurrencyFormatter;
+import co.xenastudios.economy.utilities.LatencyHistogram;
+import co.xenastudios.economy.utilities.MessageTemplate;
+import co.xenastudios.economy.utilities.MessageTemplate.Variable;
+import co.xenastudios.economy.utilities.MoneyUtility;
 import co.xenastudios.economy.utilities.MsgUtility;
 import com.destroystokyo.paper.profile.PlayerProfile;
 import com.mojang.brigadier.Command;
 import com.mojang.brigadier.arguments.DoubleArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.tree.LiteralCommandNode;
 import io.papermc.paper.command.brigadier.CommandSourceStack;
 import io.papermc.paper.command.brigadier.Commands;
 import io.papermc.paper.command.brigadier.argument.ArgumentTypes;
 import io.papermc.paper.command.brigadier.argument.resolvers.PlayerProfileListResolver;
-import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 /**
  * Handles the /economyadmin command for administrative actions on the Economy plugin.
- * Subcommands: reload, set, give, take
+ * Subcommands: reload, set, give, take, migrate, history, stats
  */
 public class EconomyAdminCommand {
+	// Nanoseconds between migration progress messages
+	private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+	private static final int HISTORY_PAGE_SIZE = 10;
+	private static final DateTimeFormatter HISTORY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+			.withZone(ZoneId.systemDefault());
 
 	/**
 	 * Creates the /economyadmin command node for registration.
@@ -39,27 +71,21 @@ public class EconomyAdminCommand {
 		LiteralArgumentBuilder<CommandSourceStack> economyAdminCommand =
 				Commands.literal("economyadmin");
 
-		// Retrieve the required permission from the config
-		String permission = plugin.getConfig().getString("commands.economyadmin.permission");
-
 		// Restrict command usage to those with the permission, if set
-		if (permission != null && !permission.isEmpty()) {
-			economyAdminCommand.requires(
-					sender -> sender.getSender().hasPermission(permission)
-			);
-		}
+		economyAdminCommand.requires(
+				sender -> plugin.getSettings().commands().economyAdmin().isPermitted(sender.getSender())
+		);
 
 		// /economyadmin (usage message)
 		economyAdminCommand.executes(ctx -> {
 			CommandSender sender = ctx.getSource().getSender();
-			String usageMsg = plugin.getConfig().getString(
-					"messages.error.usage",
-					"<red>Usage: <usage></red>"
-			);
+			MessageTemplate usageMsg = plugin.getSettings().messages().usage();
 			MsgUtility.send(
 					sender,
-					usageMsg,
-					Placeholder.unparsed("usage", "/economyadmin reload|set|give|take <player> <amount>")
+					usageMsg.render(
+							Variable.USAGE,
+							"/economyadmin reload|set|give|take <player> <amount> | migrate <from> <to> | history <player> [page] | stats [dump|reset]"
+					)
 			);
 			return Command.SINGLE_SUCCESS;
 		});
@@ -70,13 +96,10 @@ public class EconomyAdminCommand {
 						.executes(ctx -> {
 							CommandSender sender = ctx.getSource().getSender();
 							plugin.reloadConfig();
+							plugin.reloadSettings();
 							plugin.getDataManager().reloadPlayerData();
-							plugin.getDataManager().reloadBanknoteData();
-							String reloadMsg = plugin.getConfig().getString(
-									"commands.economyadmin.messages.config-reloaded",
-									"<green>Economy's config has been reloaded.</green>"
-							);
-							MsgUtility.send(sender, reloadMsg);
+							MessageTemplate reloadMsg = plugin.getSettings().messages().configReloaded();
+							MsgUtility.send(sender, reloadMsg.render());
 							return Command.SINGLE_SUCCESS;
 						})
 		);
@@ -85,7 +108,7 @@ public class EconomyAdminCommand {
 		economyAdminCommand.then(
 				Commands.literal("set")
 						.then(Commands.argument("target", ArgumentTypes.playerProfiles())
-								.then(Commands.argument("amount", DoubleArgumentType.doubleArg(0))
+								.then(Commands.argument("amount", DoubleArgumentType.doubleArg(0, MoneyUtility.MAX_AMOUNT))
 										.executes(ctx -> {
 											CommandSender sender = ctx.getSource().getSender();
 											PlayerProfileListResolver profilesResolver = ctx.getArgument("target", PlayerProfileListResolver.class);
@@ -94,22 +117,16 @@ public class EconomyAdminCommand {
 											// Use the first found profile as the target
 											Iterator<PlayerProfile> iterator = foundProfiles.iterator();
 											if (!iterator.hasNext()) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
 											PlayerProfile profile = iterator.next();
 											String targetName = profile.getName();
 											if (targetName == null) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
@@ -117,32 +134,23 @@ public class EconomyAdminCommand {
 
 											// Check if the player exists (has played before or is online)
 											if (!target.isOnline() && !target.hasPlayedBefore()) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
 											double amount = DoubleArgumentType.getDouble(ctx, "amount");
-											// Set balance: withdraw all, then deposit the new amount
-											plugin.getEconomyHandler().withdrawPlayer(
-													target,
-													plugin.getEconomyHandler().getBalance(target)
-											);
-											plugin.getEconomyHandler().depositPlayer(target, amount);
+											EconomyResponse response = setBalance(plugin, sender, target, amount);
+											if (!response.transactionSuccess()) {
+												sendFailed(plugin, sender, target, response);
+												return Command.SINGLE_SUCCESS;
+											}
 
 											String formatted = plugin.getEconomyHandler().format(amount);
-											String setMsg = plugin.getConfig().getString(
-													"commands.economyadmin.messages.set-success",
-													"<green>Set <player>'s balance to <balance></green>"
-											);
+											MessageTemplate setMsg = plugin.getSettings().messages().setSuccess();
 											MsgUtility.send(
 													sender,
-													setMsg,
-													Placeholder.unparsed("player", target.getName()),
-													Placeholder.unparsed("balance", formatted)
+													setMsg.render(Variable.PLAYER, target.getName(), Variable.BALANCE, formatted)
 											);
 											return Command.SINGLE_SUCCESS;
 										})
@@ -154,7 +162,7 @@ public class EconomyAdminCommand {
 		economyAdminCommand.then(
 				Commands.literal("give")
 						.then(Commands.argument("target", ArgumentTypes.playerProfiles())
-								.then(Commands.argument("amount", DoubleArgumentType.doubleArg(0))
+								.then(Commands.argument("amount", DoubleArgumentType.doubleArg(0, MoneyUtility.MAX_AMOUNT))
 										.executes(ctx -> {
 											CommandSender sender = ctx.getSource().getSender();
 											PlayerProfileListResolver profilesResolver = ctx.getArgument("target", PlayerProfileListResolver.class);
@@ -163,22 +171,16 @@ public class EconomyAdminCommand {
 											// Use the first found profile as the target
 											Iterator<PlayerProfile> iterator = foundProfiles.iterator();
 											if (!iterator.hasNext()) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
 											PlayerProfile profile = iterator.next();
 											String targetName = profile.getName();
 											if (targetName == null) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
@@ -186,29 +188,24 @@ public class EconomyAdminCommand {
 
 											// Check if the player exists (has played before or is online)
 											if (!target.isOnline() && !target.hasPlayedBefore()) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
 											double amount = DoubleArgumentType.getDouble(ctx, "amount");
-											plugin.getEconomyHandler().depositPlayer(target, amount);
+											EconomyResponse response = give(plugin, sender, target, amount);
+											if (!response.transactionSuccess()) {
+												sendFailed(plugin, sender, target, response);
+												return Command.SINGLE_SUCCESS;
+											}
 
 											double newBalance = plugin.getEconomyHandler().getBalance(target);
 											String formatted = plugin.getEconomyHandler().format(newBalance);
-											String giveMsg = plugin.getConfig().getString(
-													"commands.economyadmin.messages.give-success",
-													"<green>Gave <amount> to <player>. New balance: <balance></green>"
-											);
+											MessageTemplate giveMsg = plugin.getSettings().messages().giveSuccess();
 											MsgUtility.send(
 													sender,
-													giveMsg,
-													Placeholder.unparsed("player", target.getName()),
-													Placeholder.unparsed("amount", plugin.getEconomyHandler().format(amount)),
-													Placeholder.unparsed("balance", formatted)
+													giveMsg.render(Variable.PLAYER, target.getName(), Variable.AMOUNT, plugin.getEconomyHandler().format(amount), Variable.BALANCE, formatted)
 											);
 											return Command.SINGLE_SUCCESS;
 										})
@@ -220,7 +217,7 @@ public class EconomyAdminCommand {
 		economyAdminCommand.then(
 				Commands.literal("take")
 						.then(Commands.argument("target", ArgumentTypes.playerProfiles())
-								.then(Commands.argument("amount", DoubleArgumentType.doubleArg(0))
+								.then(Commands.argument("amount", DoubleArgumentType.doubleArg(0, MoneyUtility.MAX_AMOUNT))
 										.executes(ctx -> {
 											CommandSender sender = ctx.getSource().getSender();
 											PlayerProfileListResolver profilesResolver = ctx.getArgument("target", PlayerProfileListResolver.class);
@@ -229,22 +226,16 @@ public class EconomyAdminCommand {
 											// Use the first found profile as the target
 											Iterator<PlayerProfile> iterator = foundProfiles.iterator();
 											if (!iterator.hasNext()) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
 											PlayerProfile profile = iterator.next();
 											String targetName = profile.getName();
 											if (targetName == null) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
@@ -252,29 +243,24 @@ public class EconomyAdminCommand {
 
 											// Check if the player exists (has played before or is online)
 											if (!target.isOnline() && !target.hasPlayedBefore()) {
-												String noPlayerMsg = plugin.getConfig().getString(
-														"messages.error.no-player",
-														"<red>That player doesn't exist!</red>"
-												);
-												MsgUtility.send(sender, noPlayerMsg);
+												MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+												MsgUtility.send(sender, noPlayerMsg.render());
 												return Command.SINGLE_SUCCESS;
 											}
 
 											double amount = DoubleArgumentType.getDouble(ctx, "amount");
-											plugin.getEconomyHandler().withdrawPlayer(target, amount);
+											EconomyResponse response = take(plugin, sender, target, amount);
+											if (!response.transactionSuccess()) {
+												sendFailed(plugin, sender, target, response);
+												return Command.SINGLE_SUCCESS;
+											}
 
 											double newBalance = plugin.getEconomyHandler().getBalance(target);
 											String formatted = plugin.getEconomyHandler().format(newBalance);
-											String takeMsg = plugin.getConfig().getString(
-													"commands.economyadmin.messages.take-success",
-													"<green>Took <amount> from <player>. New balance: <balance></green>"
-											);
+											MessageTemplate takeMsg = plugin.getSettings().messages().takeSuccess();
 											MsgUtility.send(
 													sender,
-													takeMsg,
-													Placeholder.unparsed("player", target.getName()),
-													Placeholder.unparsed("amount", plugin.getEconomyHandler().format(amount)),
-													Placeholder.unparsed("balance", formatted)
+													takeMsg.render(Variable.PLAYER, target.getName(), Variable.AMOUNT, plugin.getEconomyHandler().format(amount), Variable.BALANCE, formatted)
 											);
 											return Command.SINGLE_SUCCESS;
 										})
@@ -282,7 +268,303 @@ public class EconomyAdminCommand {
 						)
 		);
 
+		// /economyadmin migrate <from> <to>: copies all data into another storage backend
+		LiteralArgumentBuilder<CommandSourceStack> migrateCommand = Commands.literal("migrate");
+		for (StorageBackend.Type from : StorageBackend.Type.values()) {
+			LiteralArgumentBuilder<CommandSourceStack> fromNode = Commands.literal(from.configName());
+			for (StorageBackend.Type to : StorageBackend.Type.values()) {
+				if (to == from || to.sharesFilesWith(from)) continue;
+				fromNode.then(
+						Commands.literal(to.configName())
+								.executes(ctx -> migrate(plugin, ctx.getSource().getSender(), from, to))
+				);
+			}
+			migrateCommand.then(fromNode);
+		}
+		economyAdminCommand.then(migrateCommand);
+
+		// /economyadmin history <player> [page]: lists a player's transactions, newest first
+		economyAdminCommand.then(
+				Commands.literal("history")
+						.then(Commands.argument("target", ArgumentTypes.playerProfiles())
+								.executes(ctx -> history(plugin, ctx.getSource(), ctx.getArgument("target", PlayerProfileListResolver.class), 1))
+								.then(Commands.argument("page", IntegerArgumentType.integer(1))
+										.executes(ctx -> history(
+												plugin,
+												ctx.getSource(),
+												ctx.getArgument("target", PlayerProfileListResolver.class),
+												IntegerArgumentType.getInteger(ctx, "page")
+										))
+								)
+						)
+		);
+
+		// /economyadmin stats [dump|reset]: shows, writes out or clears the operation latencies
+		economyAdminCommand.then(
+				Commands.literal("stats")
+						.executes(ctx -> stats(plugin, ctx.getSource().getSender()))
+						.then(Commands.literal("dump")
+								.executes(ctx -> dumpStats(plugin, ctx.getSource().getSender()))
+						)
+						.then(Commands.literal("reset")
+								.executes(ctx -> {
+									plugin.getStats().reset();
+									MsgUtility.send(ctx.getSource().getSender(), plugin.getSettings().messages().statsReset().render());
+									return Command.SINGLE_SUCCESS;
+								})
+						)
+		);
+
 		// Build and return the complete command node
 		return economyAdminCommand.build();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Runs the migration on its own thread, reporting progress to the sender at most every few seconds.
+	 */
+	private static int migrate(
+			@NotNull EconomyPlugin plugin,
+			@NotNull CommandSender sender,
+			@NotNull StorageBackend.Type from,
+			@NotNull StorageBackend.Type to
+	) {
+		Settings.Messages messages = plugin.getSettings().messages();
+		MsgUtility.send(sender, messages.migrateStarted().render(Variable.FROM, from.configName(), Variable.TO, to.configName()));
+
+		Thread thread = new Thread(() -> {
+			long[] lastReport = {System.nanoTime()};
+			try {
+				StorageMigration.Totals totals = plugin.getDataManager().migrateStorage(from, to, (accounts, banknotes, perSecond) -> {
+					long now = System.nanoTime();
+					if (now - lastReport[0] < PROGRESS_INTERVAL) return;
+					lastReport[0] = now;
+					MsgUtility.send(sender, messages.migrateProgress().render(
+							Variable.COUNT, String.valueOf(accounts),
+							Variable.BANKNOTES, String.valueOf(banknotes),
+							Variable.RATE, String.valueOf(Math.round(perSecond))
+					));
+				});
+				MsgUtility.send(sender, messages.migrateDone().render(
+						Variable.COUNT, String.valueOf(totals.accounts()),
+						Variable.AMOUNT, plugin.getEconomyHandler().format(MoneyUtility.toMajor(totals.supply())),
+						Variable.BANKNOTES, String.valueOf(totals.banknotes())
+				));
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to migrate from " + from.configName() + " to " + to.configName() + ":", e);
+				MsgUtility.send(sender, messages.migrateFailed().render(Variable.REASON, String.valueOf(e.getMessage())));
+			}
+		}, "Economy-Migration");
+		thread.setDaemon(true);
+		thread.start();
+		return Command.SINGLE_SUCCESS;
+	}
+
+	/**
+	 * Sets a balance as one change when the economy provider is our own, recorded as set by the sender.
+	 *
+	 * @return The result of the change.
+	 */
+	private static @NotNull EconomyResponse setBalance(
+			@NotNull EconomyPlugin plugin,
+			@NotNull CommandSender sender,
+			@NotNull OfflinePlayer target,
+			double amount
+	) {
+		Economy economy = plugin.getEconomyHandler();
+		if (economy instanceof BasicEconomy basicEconomy) {
+			return basicEconomy.setBalance(target, amount, actor(sender));
+		}
+
+		// Another provider replaced ours: withdraw all, then deposit the new amount
+		EconomyResponse withdrawal = economy.withdrawPlayer(target, economy.getBalance(target));
+		if (!withdrawal.transactionSuccess()) return withdrawal;
+		return economy.depositPlayer(target, amount);
+	}
+
+	/**
+	 * Adds money to a balance, recorded as given by the sender when the economy provider is our own.
+	 *
+	 * @return The result of the change.
+	 */
+	private static @NotNull EconomyResponse give(
+			@NotNull EconomyPlugin plugin,
+			@NotNull CommandSender sender,
+			@NotNull OfflinePlayer target,
+			double amount
+	) {
+		Economy economy = plugin.getEconomyHandler();
+		if (economy instanceof BasicEconomy basicEconomy) {
+			return basicEconomy.depositPlayer(target, amount, TransactionLog.Type.ADMIN_GIVE, actor(sender));
+		}
+		return economy.depositPlayer(target, amount);
+	}
+
+	/**
+	 * Removes money from a balance, recorded as taken by the sender when the economy provider is our own.
+	 *
+	 * @return The result of the change.
+	 */
+	private static @NotNull EconomyResponse take(
+			@NotNull EconomyPlugin plugin,
+			@NotNull CommandSender sender,
+			@NotNull OfflinePlayer target,
+			double amount
+	) {
+		Economy economy = plugin.getEconomyHandler();
+		if (economy instanceof BasicEconomy basicEconomy) {
+			return basicEconomy.withdrawPlayer(target, amount, TransactionLog.Type.ADMIN_TAKE, actor(sender));
+		}
+		return economy.withdrawPlayer(target, amount);
+	}
+
+	/**
+	 * Tells the sender why a set, give or take left the balance unchanged.
+	 */
+	private static void sendFailed(
+			@NotNull EconomyPlugin plugin,
+			@NotNull CommandSender sender,
+			@NotNull OfflinePlayer target,
+			@NotNull EconomyResponse response
+	) {
+		MessageTemplate failedMsg = plugin.getSettings().messages().changeFailed();
+		MsgUtility.send(
+				sender,
+				failedMsg.render(Variable.PLAYER, target.getName(), Variable.REASON, String.valueOf(response.errorMessage))
+		);
+	}
+
+	/**
+	 * @return The UUID of the player running an admin command, or null for the console.
+	 */
+	private static @Nullable UUID actor(@NotNull CommandSender sender) {
+		return sender instanceof Player player ? player.getUniqueId() : null;
+	}
+
+	/**
+	 * Reads a page of a player's transactions on its own thread, as older pages come from disk.
+	 */
+	private static int history(
+			@NotNull EconomyPlugin plugin,
+			@NotNull CommandSourceStack source,
+			@NotNull PlayerProfileListResolver profilesResolver,
+			int page
+	) throws CommandSyntaxException {
+		CommandSender sender = source.getSender();
+		Settings.Messages messages = plugin.getSettings().messages();
+		TransactionLog history = plugin.getDataManager().getHistory();
+		if (history == null) {
+			MsgUtility.send(sender, messages.historyDisabled().render());
+			return Command.SINGLE_SUCCESS;
+		}
+
+		// Use the first found profile as the target
+		Iterator<PlayerProfile> iterator = profilesResolver.resolve(source).iterator();
+		PlayerProfile profile = iterator.hasNext() ? iterator.next() : null;
+		if (profile == null || profile.getName() == null) {
+			MsgUtility.send(sender, messages.noPlayer().render());
+			return Command.SINGLE_SUCCESS;
+		}
+		OfflinePlayer target = Bukkit.getOfflinePlayer(profile.getName());
+		if (!target.isOnline() && !target.hasPlayedBefore()) {
+			MsgUtility.send(sender, messages.noPlayer().render());
+			return Command.SINGLE_SUCCESS;
+		}
+		String targetName = String.valueOf(target.getName());
+
+		Thread thread = new Thread(() -> {
+			List<TransactionLog.Transaction> transactions;
+			try {
+				transactions = history.read(target.getUniqueId(), (page - 1) * HISTORY_PAGE_SIZE, HISTORY_PAGE_SIZE);
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to read the transaction history of " + targetName + ":", e);
+				MsgUtility.send(sender, messages.historyFailed().render(Variable.REASON, String.valueOf(e.getMessage())));
+				return;
+			}
+			if (transactions.isEmpty()) {
+				MsgUtility.send(sender, messages.historyEmpty().render(Variable.PLAYER, targetName));
+				return;
+			}
+
+			MsgUtility.send(sender, messages.historyHeader().render(Variable.PLAYER, targetName, Variable.PAGE, String.valueOf(page)));
+			CurrencyFormatter formatter = plugin.getSettings().currency().formatter();
+			Map<Variable, String> values = new EnumMap<>(Variable.class);
+			for (TransactionLog.Transaction transaction : transactions) {
+				String amount = formatter.format(transaction.amount());
+				values.put(Variable.TIME, HISTORY_TIME.format(Instant.ofEpochMilli(transaction.time())));
+				values.put(Variable.TYPE, transaction.type().label());
+				values.put(Variable.AMOUNT, transaction.amount() > 0 ? "+" + amount : amount);
+				values.put(Variable.BALANCE, formatter.format(transaction.balance()));
+				values.put(Variable.PLAYER, otherParty(transaction));
+				MsgUtility.send(sender, messages.historyEntry().render(values));
+			}
+		}, "Economy-HistoryQuery");
+		thread.setDaemon(true);
+		thread.start();
+		return Command.SINGLE_SUCCESS;
+	}
+
+	/**
+	 * Lists the count, median, 99th percentile and maximum latency of every operation run so far.
+	 */
+	private static int stats(@NotNull EconomyPlugin plugin, @NotNull CommandSender sender) {
+		Settings.Messages messages = plugin.getSettings().messages();
+		OperationStats stats = plugin.getStats();
+		Map<Variable, String> values = new EnumMap<>(Variable.class);
+		boolean header = false;
+		for (OperationStats.Operation operation : OperationStats.Operation.values()) {
+			LatencyHistogram.Snapshot snapshot = stats.snapshot(operation);
+			if (snapshot.count() == 0) continue;
+
+			if (!header) {
+				MsgUtility.send(sender, messages.statsHeader().render());
+				header = true;
+			}
+			values.put(Variable.OPERATION, operation.label());
+			values.put(Variable.COUNT, String.valueOf(snapshot.count()));
+			values.put(Variable.P50, OperationStats.formatNanos(snapshot.percentile(50)));
+			values.put(Variable.P99, OperationStats.formatNanos(snapshot.percentile(99)));
+			values.put(Variable.MAX, OperationStats.formatNanos(snapshot.maxNanos()));
+			MsgUtility.send(sender, messages.statsEntry().render(values));
+		}
+		if (!header) {
+			MsgUtility.send(sender, messages.statsEmpty().render());
+		}
+		return Command.SINGLE_SUCCESS;
+	}
+
+	/**
+	 * Writes the full latency table to a file under stats/ on its own thread.
+	 */
+	private static int dumpStats(@NotNull EconomyPlugin plugin, @NotNull CommandSender sender) {
+		Settings.Messages messages = plugin.getSettings().messages();
+		Path directory = plugin.getDataFolder().toPath().resolve("stats");
+		Thread thread = new Thread(() -> {
+			try {
+				Path file = plugin.getStats().dump(directory);
+				MsgUtility.send(sender, messages.statsDumped().render(Variable.FILE, "stats/" + file.getFileName()));
+			} catch (IOException e) {
+				plugin.getLogger().log(Level.WARNING, "Failed to write the operation stats:", e);
+				MsgUtility.send(sender, messages.statsDumpFailed().render(Variable.REASON, String.valueOf(e.getMessage())));
+			}
+		}, "Economy-StatsDump");
+		thread.setDaemon(true);
+		thread.start();
+		return Command.SINGLE_SUCCESS;
+	}
+
+	/**
+	 * @return The name of a transaction's other party: a player's name, a banknote's UUID, or the console.
+	 */
+	private static @NotNull String otherParty(@NotNull TransactionLog.Transaction transaction) {
+		UUID other = transaction.other();
+		return switch (transaction.type()) {
+			case PAY_SENT, PAY_RECEIVED, ADMIN_SET, ADMIN_GIVE, ADMIN_TAKE -> {
+				if (other == null) yield "console";
+				String name = Bukkit.getOfflinePlayer(other).getName();
+				yield name != null ? name : other.toString();
+			}
+			case BANKNOTE_ISSUE, BANKNOTE_REDEEM -> other != null ? other.toString() : "";
+			case DEPOSIT, WITHDRAW -> "";
+		};
+	}
+}
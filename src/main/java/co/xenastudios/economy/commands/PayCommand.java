@@ -1,6 +1,10 @@
 package co.xenastudios.economy.commands;
 
+import co.xenastudios.economy.BasicEconomy;
 import co.xenastudios.economy.EconomyPlugin;
+import co.xenastudios.economy.utilities.MessageTemplate;
+import co.xenastudios.economy.utilities.MessageTemplate.Variable;
+import co.xenastudios.economy.utilities.MoneyUtility;
 import co.xenastudios.economy.utilities.MsgUtility;
 import com.destroystokyo.paper.profile.PlayerProfile;
 import com.mojang.brigadier.Command;
@@ -11,7 +15,7 @@ import io.papermc.paper.command.brigadier.CommandSourceStack;
 import io.papermc.paper.command.brigadier.Commands;
 import io.papermc.paper.command.brigadier.argument.ArgumentTypes;
 import io.papermc.paper.command.brigadier.argument.resolvers.PlayerProfileListResolver;
-import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
@@ -33,25 +37,20 @@ public class PayCommand {
 	 * @return The constructed command node for registration.
 	 */
 	public static LiteralCommandNode<CommandSourceStack> createCommand(@NotNull final EconomyPlugin plugin) {
-		// Permission from config
-		String permission = plugin.getConfig().getString("commands.pay.permission", "economy.command.pay");
-
 		// Build the base /pay command
 		LiteralArgumentBuilder<CommandSourceStack> payCommand =
 				Commands.literal("pay")
-						.requires(sender -> sender.getSender() instanceof Player && sender.getSender().hasPermission(permission))
+						.requires(sender -> sender.getSender() instanceof Player
+								&& plugin.getSettings().commands().pay().isPermitted(sender.getSender()))
 						.then(
 								Commands.argument("target", ArgumentTypes.playerProfiles())
 										.then(
-												Commands.argument("amount", DoubleArgumentType.doubleArg(0.01))
+												Commands.argument("amount", DoubleArgumentType.doubleArg(0.01, MoneyUtility.MAX_AMOUNT))
 														.executes(ctx -> {
 															CommandSender sender = ctx.getSource().getSender();
 															if (!(sender instanceof Player player)) {
-																String playerOnlyMsg = plugin.getConfig().getString(
-																		"messages.error.player-only",
-																		"<red>Only a player can execute this command!</red>"
-																);
-																MsgUtility.send(sender, playerOnlyMsg);
+																MessageTemplate playerOnlyMsg = plugin.getSettings().messages().playerOnly();
+																MsgUtility.send(sender, playerOnlyMsg.render());
 																return Command.SINGLE_SUCCESS;
 															}
 
@@ -60,22 +59,16 @@ public class PayCommand {
 															Collection<PlayerProfile> foundProfiles = profilesResolver.resolve(ctx.getSource());
 															Iterator<PlayerProfile> iterator = foundProfiles.iterator();
 															if (!iterator.hasNext()) {
-																String noPlayerMsg = plugin.getConfig().getString(
-																		"messages.error.no-player",
-																		"<red>That player doesn't exist!</red>"
-																);
-																MsgUtility.send(player, noPlayerMsg);
+																MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+																MsgUtility.send(player, noPlayerMsg.render());
 																return Command.SINGLE_SUCCESS;
 															}
 
 															PlayerProfile profile = iterator.next();
 															String targetName = profile.getName();
 															if (targetName == null) {
-																String noPlayerMsg = plugin.getConfig().getString(
-																		"messages.error.no-player",
-																		"<red>That player doesn't exist!</red>"
-																);
-																MsgUtility.send(player, noPlayerMsg);
+																MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+																MsgUtility.send(player, noPlayerMsg.render());
 																return Command.SINGLE_SUCCESS;
 															}
 
@@ -83,65 +76,42 @@ public class PayCommand {
 
 															// Prevent paying self
 															if (target.getUniqueId().equals(player.getUniqueId())) {
-																String selfMsg = plugin.getConfig().getString(
-																		"commands.pay.messages.error.self",
-																		"<red>You cannot pay yourself!</red>"
-																);
-																MsgUtility.send(player, selfMsg);
+																MessageTemplate selfMsg = plugin.getSettings().messages().paySelf();
+																MsgUtility.send(player, selfMsg.render());
 																return Command.SINGLE_SUCCESS;
 															}
 
 															// Check if the player exists (has played before or is online)
 															if (!target.isOnline() && !target.hasPlayedBefore()) {
-																String noPlayerMsg = plugin.getConfig().getString(
-																		"messages.error.no-player",
-																		"<red>That player doesn't exist!</red>"
-																);
-																MsgUtility.send(player, noPlayerMsg);
+																MessageTemplate noPlayerMsg = plugin.getSettings().messages().noPlayer();
+																MsgUtility.send(player, noPlayerMsg.render());
 																return Command.SINGLE_SUCCESS;
 															}
 
 															double amount = DoubleArgumentType.getDouble(ctx, "amount");
 
-															// Check sender's balance
-															if (!plugin.getEconomyHandler().has(player, amount)) {
-																String notEnoughMsg = plugin.getConfig().getString(
-																		"messages.error.not-enough",
-																		"<red>You do not have enough money!</red>"
-																);
-																MsgUtility.send(player, notEnoughMsg);
+															// Move the money from sender to target in one transaction
+															if (!transfer(plugin, player, target, amount)) {
+																MessageTemplate notEnoughMsg = plugin.getSettings().messages().notEnough();
+																MsgUtility.send(player, notEnoughMsg.render());
 																return Command.SINGLE_SUCCESS;
 															}
 
-															// Withdraw from sender and deposit to target
-															plugin.getEconomyHandler().withdrawPlayer(player, amount);
-															plugin.getEconomyHandler().depositPlayer(target, amount);
-
 															String formatted = plugin.getEconomyHandler().format(amount);
 
 															// Notify sender
-															String sentMsg = plugin.getConfig().getString(
-																	"commands.pay.messages.sent",
-																	"<green>Sent <amount> to <player>.</green>"
-															);
+															MessageTemplate sentMsg = plugin.getSettings().messages().paySent();
 															MsgUtility.send(
 																	player,
-																	sentMsg,
-																	Placeholder.unparsed("amount", formatted),
-																	Placeholder.unparsed("player", target.getName())
+																	sentMsg.render(Variable.AMOUNT, formatted, Variable.PLAYER, target.getName())
 															);
 
 															// Notify target if online
 															if (target.isOnline() && target.getPlayer() != null) {
-																String receivedMsg = plugin.getConfig().getString(
-																		"commands.pay.messages.received",
-																		"<green>You received <amount> from <player>.</green>"
-																);
+																MessageTemplate receivedMsg = plugin.getSettings().messages().payReceived();
 																MsgUtility.send(
 																		target.getPlayer(),
-																		receivedMsg,
-																		Placeholder.unparsed("amount", formatted),
-																		Placeholder.unparsed("player", player.getName())
+																		receivedMsg.render(Variable.AMOUNT, formatted, Variable.PLAYER, player.getName())
 																);
 															}
 
@@ -153,4 +123,32 @@ public class PayCommand {
 		// Build and return the complete command node
 		return payCommand.build();
 	}
+
+	/**
+	 * Moves money between two players, atomically when the economy provider is our own.
+	 *
+	 * @param plugin The main plugin instance.
+	 * @param from   The paying player.
+	 * @param to     The player being paid.
+	 * @param amount The amount to pay.
+	 * @return true if the payment went through
+	 */
+	private static boolean transfer(
+			@NotNull EconomyPlugin plugin,
+			@NotNull OfflinePlayer from,
+			@NotNull OfflinePlayer to,
+			double amount
+	) {
+		Economy economy = plugin.getEconomyHandler();
+		if (economy instanceof BasicEconomy basicEconomy) {
+			return basicEconomy.transfer(from, to, amount).transactionSuccess();
+		}
+
+		// Another provider replaced ours, so fall back to separate Vault calls
+		if (!economy.has(from, amount) || !economy.withdrawPlayer(from, amount).transactionSuccess()) {
+			return false;
+		}
+		economy.depositPlayer(to, amount);
+		return true;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package co.xenastudios.economy.commands;
+
+import co.xenastudios.economy.BanknoteRedeemer;
+import co.xenastudios.economy.EconomyPlugin;
+import co.xenastudios.economy.utilities.MessageTemplate;
+import co.xenastudios.economy.utilities.MessageTemplate.Variable;
+import co.xenastudios.economy.utilities.MsgUtility;
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.Commands;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Handles the /redeem all command for cashing in every banknote at once.
+ */
+public class RedeemCommand {
+
+	/**
+	 * Creates the /redeem all command node for registration.
+	 *
+	 * @param plugin The main plugin instance.
+	 * @return The constructed command node for registration.
+	 */
+	public static LiteralCommandNode<CommandSourceStack> createCommand(@NotNull final EconomyPlugin plugin) {
+		BanknoteRedeemer redeemer = new BanknoteRedeemer(plugin);
+
+		// Build the base /redeem command
+		LiteralArgumentBuilder<CommandSourceStack> redeemCommand =
+				Commands.literal("redeem")
+						.requires(sender -> sender.getSender() instanceof Player
+								&& plugin.getSettings().commands().redeem().isPermitted(sender.getSender()));
+
+		// /redeem (usage message)
+		redeemCommand.executes(ctx -> {
+			CommandSender sender = ctx.getSource().getSender();
+			MessageTemplate usageMsg = plugin.getSettings().messages().usage();
+			MsgUtility.send(sender, usageMsg.render(Variable.USAGE, "/redeem all"));
+			return Command.SINGLE_SUCCESS;
+		});
+
+		// /redeem all: redeems every banknote in the inventory as one batch
+		redeemCommand.then(
+				Commands.literal("all")
+						.executes(ctx -> {
+							CommandSender sender = ctx.getSource().getSender();
+							if (!(sender instanceof Player player)) {
+								MessageTemplate playerOnlyMsg = plugin.getSettings().messages().playerOnly();
+								MsgUtility.send(sender, playerOnlyMsg.render());
+								return Command.SINGLE_SUCCESS;
+							}
+
+							redeemer.redeemAll(player);
+							return Command.SINGLE_SUCCESS;
+						})
+		);
+
+		// Build and return the complete command node
+		return redeemCommand.build();
+	}
+}
@@ -1,37 +1,42 @@
 package co.xenastudios.economy.commands;
 
+import co.xenastudios.economy.BanknoteKeys;
+import co.xenastudios.economy.BasicEconomy;
+import co.xenastudios.economy.DataManager;
 import co.xenastudios.economy.EconomyPlugin;
+import co.xenastudios.economy.Settings;
+import co.xenastudios.economy.storage.TransactionLog;
+import co.xenastudios.economy.utilities.MessageTemplate;
+import co.xenastudios.economy.utilities.MessageTemplate.Variable;
+import co.xenastudios.economy.utilities.MoneyUtility;
 import co.xenastudios.economy.utilities.MsgUtility;
 import com.mojang.brigadier.Command;
 import com.mojang.brigadier.arguments.DoubleArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.tree.LiteralCommandNode;
 import io.papermc.paper.command.brigadier.CommandSourceStack;
 import io.papermc.paper.command.brigadier.Commands;
-import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
-import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
+import net.milkbowl.vault.economy.Economy;
 import org.bukkit.command.CommandSender;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
- * Handles the /withdraw <amount> command for creating banknotes.
+ * Handles the /withdraw <amount> [count] command for creating banknotes.
  */
 public class WithdrawCommand {
+	// Banknotes never stack, so anything past a full inventory is dropped at the player's feet
+	private static final int MAX_COUNT = 256;
 
 	/**
-	 * Creates the /withdraw <amount> command node for registration.
+	 * Creates the /withdraw <amount> [count] command node for registration.
 	 *
 	 * @param plugin The main plugin instance.
 	 * @return The constructed command node for registration.
@@ -43,106 +48,157 @@ public class WithdrawCommand {
 		LiteralArgumentBuilder<CommandSourceStack> withdrawCommand =
 				Commands.literal("withdraw")
 						// Only allow players to use this command
-						.requires(sender -> sender.getSender() instanceof Player)
+						.requires(sender -> sender.getSender() instanceof Player
+								&& plugin.getSettings().commands().withdraw().isPermitted(sender.getSender()))
 						.then(
-								Commands.argument("amount", DoubleArgumentType.doubleArg(0.01))
-										.executes(ctx -> {
-											CommandSender sender = ctx.getSource().getSender();
-
-											// Ensure the sender is a player
-											if (!(sender instanceof Player player)) {
-												String playerOnlyMsg = plugin.getConfig().getString(
-														"messages.error.player-only",
-														"<red>Only a player can execute this command!</red>"
-												);
-												MsgUtility.send(sender, playerOnlyMsg);
-												return Command.SINGLE_SUCCESS;
-											}
-
-											double amount = DoubleArgumentType.getDouble(ctx, "amount");
-											String formattedAmount = plugin.getEconomyHandler().format(amount);
-
-											// Check if the player has enough balance
-											if (!plugin.getEconomyHandler().has(player, amount)) {
-												String notEnoughMsg = plugin.getConfig().getString(
-														"messages.error.not-enough",
-														"<red>You do not have enough money!</red>"
-												);
-												MsgUtility.send(player, notEnoughMsg);
-												return Command.SINGLE_SUCCESS;
-											}
-
-											// Withdraw the amount from the player's balance
-											plugin.getEconomyHandler().withdrawPlayer(player, amount);
-
-											// Generate a unique UUID for the banknote
-											UUID noteUUID = UUID.randomUUID();
-
-											// Store the banknote in the data file using DataManager
-											plugin.getDataManager().saveBanknote(noteUUID, amount);
-
-											// --- Create the banknote item using config ---
-											FileConfiguration config = plugin.getConfig();
-											String title = config.getString(
-													"banknotes.item.title",
-													"<!i><green><b>Banknote</b></green>"
-											);
-											List<String> loreList = config.getStringList("banknotes.item.lore");
-											if (loreList.isEmpty()) {
-												loreList = List.of(
-														"<!i><dark_gray>Economy Item</dark_gray>",
-														"",
-														"<!i><green>Information:</green>",
-														"<!i><gray>»</gray> <white>Amount:</white> <green><amount></green>",
-														"",
-														"<!i><green>Right-Click to Redeem</green>"
-												);
-											}
-
-											// Parse title and lore with MiniMessage and <amount> placeholder
-											MiniMessage mm = MiniMessage.miniMessage();
-											Component displayName = mm.deserialize(
-													title,
-													Placeholder.unparsed("amount", formattedAmount)
-											);
-											List<Component> lore = loreList.stream()
-													.map(line -> mm.deserialize(
-															line,
-															Placeholder.unparsed("amount", formattedAmount)
-													))
-													.collect(Collectors.toList());
-
-											// Create the banknote item
-											ItemStack note = new ItemStack(Material.PAPER);
-											ItemMeta meta = note.getItemMeta();
-											meta.displayName(displayName);
-											meta.lore(lore);
-											meta.getPersistentDataContainer().set(
-													new NamespacedKey(plugin, "banknote_uuid"),
-													PersistentDataType.STRING,
-													noteUUID.toString()
-											);
-											note.setItemMeta(meta);
-
-											// Give the banknote to the player
-											player.getInventory().addItem(note);
-
-											// Send confirmation message
-											String withdrawnMsg = config.getString(
-													"commands.withdraw.messages.withdrawn",
-													"<green>Withdrawn <amount> as a banknote!</green>"
-											);
-											MsgUtility.send(
-													player,
-													withdrawnMsg,
-													Placeholder.unparsed("amount", formattedAmount)
-											);
-
-											return Command.SINGLE_SUCCESS;
-										})
+								Commands.argument("amount", DoubleArgumentType.doubleArg(0.01, MoneyUtility.MAX_AMOUNT))
+										// /withdraw <amount>: a single banknote
+										.executes(ctx -> withdraw(
+												plugin,
+												ctx.getSource().getSender(),
+												DoubleArgumentType.getDouble(ctx, "amount"),
+												1
+										))
+										// /withdraw <amount> <count>: a batch of identical banknotes
+										.then(
+												Commands.argument("count", IntegerArgumentType.integer(1, MAX_COUNT))
+														.executes(ctx -> withdraw(
+																plugin,
+																ctx.getSource().getSender(),
+																DoubleArgumentType.getDouble(ctx, "amount"),
+																IntegerArgumentType.getInteger(ctx, "count")
+														))
+										)
 						);
 
 		// Build and return the complete command node
 		return withdrawCommand.build();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Debits the whole batch once, then hands out copies of one banknote item,
+	 * each differing only in its UUID (and signature, for signed notes).
+	 */
+	private static int withdraw(@NotNull EconomyPlugin plugin, @NotNull CommandSender sender, double amount, int count) {
+		// Ensure the sender is a player
+		if (!(sender instanceof Player player)) {
+			MessageTemplate playerOnlyMsg = plugin.getSettings().messages().playerOnly();
+			MsgUtility.send(sender, playerOnlyMsg.render());
+			return Command.SINGLE_SUCCESS;
+		}
+
+		// Every note is worth the amount in whole minor units, so the total is exact; a total past
+		// the largest balance, or one that rounds to nothing, is more than anyone can have
+		long amountMinor = MoneyUtility.isValid(amount) ? MoneyUtility.toMinor(amount) : 0L;
+		long totalMinor;
+		try {
+			totalMinor = Math.multiplyExact(amountMinor, count);
+		} catch (ArithmeticException e) {
+			totalMinor = 0L;
+		}
+		if (amountMinor <= 0L || totalMinor <= 0L || totalMinor > MoneyUtility.MAX_MINOR) {
+			MessageTemplate notEnoughMsg = plugin.getSettings().messages().notEnough();
+			MsgUtility.send(player, notEnoughMsg.render());
+			return Command.SINGLE_SUCCESS;
+		}
+		amount = MoneyUtility.toMajor(amountMinor);
+		double total = MoneyUtility.toMajor(totalMinor);
+		String formattedAmount = plugin.getEconomyHandler().format(amount);
+
+		// The notes' UUIDs are chosen up front, so a single note is recorded in the history with its withdrawal
+		List<UUID> noteUUIDs = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			noteUUIDs.add(UUID.randomUUID());
+		}
+
+		// Check the balance before anything is stored
+		Economy economy = plugin.getEconomyHandler();
+		if (!economy.has(player, total)) {
+			MessageTemplate notEnoughMsg = plugin.getSettings().messages().notEnough();
+			MsgUtility.send(player, notEnoughMsg.render());
+			return Command.SINGLE_SUCCESS;
+		}
+
+		// Record every stored banknote with one write before any money is taken, so a failed write costs nothing
+		Settings.Banknotes banknotes = plugin.getSettings().banknotes();
+		DataManager dataManager = plugin.getDataManager();
+		if (!banknotes.signed() && !dataManager.issueBanknotes(noteUUIDs, amount)) {
+			MessageTemplate failedMsg = plugin.getSettings().messages().withdrawFailed();
+			MsgUtility.send(player, failedMsg.render());
+			return Command.SINGLE_SUCCESS;
+		}
+
+		// Withdraw the whole batch at once
+		if (!withdrawTotal(economy, player, total, noteUUIDs)) {
+			// Nobody holds the notes yet, so they are simply redeemed again
+			if (!banknotes.signed()) {
+				dataManager.redeemBanknotes(noteUUIDs);
+			}
+			MessageTemplate notEnoughMsg = plugin.getSettings().messages().notEnough();
+			MsgUtility.send(player, notEnoughMsg.render());
+			return Command.SINGLE_SUCCESS;
+		}
+
+		// Build the item once from the parsed template; each banknote is a copy with its own data
+		ItemStack template = banknotes.createItem(formattedAmount);
+		long issuedAt = System.currentTimeMillis();
+
+		ItemStack[] notes = new ItemStack[count];
+		for (int i = 0; i < count; i++) {
+			UUID noteUUID = noteUUIDs.get(i);
+
+			ItemStack note = template.clone();
+			note.editPersistentDataContainer(data -> {
+				data.set(BanknoteKeys.UUID, PersistentDataType.STRING, noteUUID.toString());
+				if (banknotes.signed()) {
+					// Signed notes carry their own amount, so nothing is stored until redeemed
+					data.set(BanknoteKeys.AMOUNT, PersistentDataType.LONG, amountMinor);
+					data.set(BanknoteKeys.ISSUED, PersistentDataType.LONG, issuedAt);
+					data.set(
+							BanknoteKeys.SIGNATURE,
+							PersistentDataType.BYTE_ARRAY,
+							plugin.getBanknoteSigner().sign(noteUUID, amountMinor, issuedAt)
+					);
+				}
+			});
+			notes[i] = note;
+		}
+
+		// Give the banknotes to the player, dropping whatever does not fit
+		for (ItemStack leftover : player.getInventory().addItem(notes).values()) {
+			player.getWorld().dropItem(player.getLocation(), leftover);
+		}
+
+		// Send confirmation message
+		if (count == 1) {
+			MessageTemplate withdrawnMsg = plugin.getSettings().messages().withdrawn();
+			MsgUtility.send(player, withdrawnMsg.render(Variable.AMOUNT, formattedAmount));
+		} else {
+			MessageTemplate withdrawnMsg = plugin.getSettings().messages().withdrawnBatch();
+			MsgUtility.send(
+					player,
+					withdrawnMsg.render(Variable.AMOUNT, formattedAmount, Variable.COUNT, String.valueOf(count))
+			);
+		}
+		return Command.SINGLE_SUCCESS;
+	}
+
+	/**
+	 * Withdraws the total of a batch, recorded in the transaction history along with the note
+	 * when there is only one.
+	 *
+	 * @return true if the withdrawal went through
+	 */
+	private static boolean withdrawTotal(
+			@NotNull Economy economy,
+			@NotNull Player player,
+			double total,
+			@NotNull List<UUID> noteUUIDs
+	) {
+		if (economy instanceof BasicEconomy basicEconomy) {
+			UUID note = noteUUIDs.size() == 1 ? noteUUIDs.get(0) : null;
+			return basicEconomy.withdrawPlayer(player, total, TransactionLog.Type.BANKNOTE_ISSUE, note).transactionSuccess();
+		}
+		return economy.withdrawPlayer(player, total).transactionSuccess();
+	}
+}
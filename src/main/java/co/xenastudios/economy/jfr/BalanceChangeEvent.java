@@ -0,0 +1,67 @@
+package co.xenastudios.economy.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * A deposit, withdrawal or admin change of one balance, from the call to the commit of the change.
+ */
+@Name("co.xenastudios.economy.BalanceChange")
+@Label("Balance Change")
+@Category({"Economy", "Transactions"})
+@Description("A deposit, withdrawal or admin change of one balance, including the wait for its commit")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class BalanceChangeEvent extends Event {
+	@Label("Type")
+	private String type;
+
+	@Label("Account")
+	private String account;
+
+	@Label("Amount")
+	@Description("The signed change in minor units")
+	private long amount;
+
+	@Label("Balance")
+	@Description("The balance after the change in minor units, or the unchanged one if it failed")
+	private long balance;
+
+	@Label("Success")
+	private boolean success;
+
+	@Label("Lock Wait")
+	@Description("Time spent waiting for the account's lock")
+	@Timespan(Timespan.NANOSECONDS)
+	private long lockWait;
+
+	/**
+	 * Fills in and commits the event, if it is being recorded and took long enough.
+	 *
+	 * @param type     The kind of change.
+	 * @param account  The account.
+	 * @param amount   The signed change in minor units.
+	 * @param balance  The balance after the change in minor units.
+	 * @param success  Whether the balance changed.
+	 * @param lockWait The nanoseconds spent waiting for the account's lock.
+	 */
+	public void commit(@NotNull String type, @NotNull UUID account, long amount, long balance, boolean success, long lockWait) {
+		if (!shouldCommit()) return;
+		this.type = type;
+		this.account = account.toString();
+		this.amount = amount;
+		this.balance = balance;
+		this.success = success;
+		this.lockWait = lockWait;
+		commit();
+	}
+}
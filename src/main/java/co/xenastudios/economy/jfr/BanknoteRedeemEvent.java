@@ -0,0 +1,49 @@
+package co.xenastudios.economy.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * A redemption of one banknote or of every banknote a player carries.
+ */
+@Name("co.xenastudios.economy.BanknoteRedeem")
+@Label("Banknote Redemption")
+@Category({"Economy", "Banknotes"})
+@Description("A redemption of one banknote, or of every banknote in an inventory at once")
+@StackTrace(false)
+@Threshold("0 ms")
+public final class BanknoteRedeemEvent extends Event {
+	@Label("Player")
+	private String player;
+
+	@Label("Notes")
+	@Description("The number of notes redeemed")
+	private int notes;
+
+	@Label("Amount")
+	@Description("The total paid out in minor units")
+	private long amount;
+
+	/**
+	 * Fills in and commits the event, if it is being recorded.
+	 *
+	 * @param player The redeeming player.
+	 * @param notes  The number of notes redeemed.
+	 * @param amount The total paid out in minor units.
+	 */
+	public void commit(@NotNull UUID player, int notes, long amount) {
+		if (!shouldCommit()) return;
+		this.player = player.toString();
+		this.notes = notes;
+		this.amount = amount;
+		commit();
+	}
+}
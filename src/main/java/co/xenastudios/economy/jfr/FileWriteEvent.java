@@ -0,0 +1,54 @@
+package co.xenastudios.economy.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A balance file written in full and moved into place, or a batch of journal records written and flushed.
+ */
+@Name("co.xenastudios.economy.FileWrite")
+@Label("Data File Write")
+@Category({"Economy", "Storage"})
+@Description("A balance file written in full, or a batch of journal records, including the flush to disk")
+@Threshold("0 ms")
+public final class FileWriteEvent extends Event {
+	@Label("File")
+	private String file;
+
+	@Label("Bytes Written")
+	@DataAmount(DataAmount.BYTES)
+	private long bytes;
+
+	@Label("Forced")
+	@Description("Whether the file was flushed to disk")
+	private boolean forced;
+
+	@Label("Force Time")
+	@Description("Time spent flushing the file to disk")
+	@Timespan(Timespan.NANOSECONDS)
+	private long forceTime;
+
+	/**
+	 * Fills in and commits the event, if it is being recorded and took long enough.
+	 *
+	 * @param file      The name of the file.
+	 * @param bytes     The number of bytes written.
+	 * @param forced    Whether the file was flushed to disk.
+	 * @param forceTime The nanoseconds the flush took.
+	 */
+	public void commit(@NotNull String file, long bytes, boolean forced, long forceTime) {
+		if (!shouldCommit()) return;
+		this.file = file;
+		this.bytes = bytes;
+		this.forced = forced;
+		this.forceTime = forceTime;
+		commit();
+	}
+}
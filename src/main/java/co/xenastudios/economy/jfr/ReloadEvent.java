@@ -0,0 +1,44 @@
+package co.xenastudios.economy.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A reload of the balances from the storage backend, as run by /economyadmin reload.
+ */
+@Name("co.xenastudios.economy.Reload")
+@Label("Balance Reload")
+@Category({"Economy", "Storage"})
+@Description("A reload of the balances from the storage backend")
+@Threshold("0 ms")
+public final class ReloadEvent extends Event {
+	@Label("Storage")
+	private String storage;
+
+	@Label("Accounts")
+	@Description("The number of accounts read, or -1 when they are read again on next use instead")
+	private int accounts;
+
+	@Label("Success")
+	private boolean success;
+
+	/**
+	 * Fills in and commits the event, if it is being recorded.
+	 *
+	 * @param storage  The backend reloaded from.
+	 * @param accounts The number of accounts read, or -1 if accounts load on demand.
+	 * @param success  Whether the balances were reloaded.
+	 */
+	public void commit(@NotNull String storage, int accounts, boolean success) {
+		if (!shouldCommit()) return;
+		this.storage = storage;
+		this.accounts = accounts;
+		this.success = success;
+		commit();
+	}
+}
@@ -0,0 +1,58 @@
+package co.xenastudios.economy.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A save of the balances to the storage backend, from the in-memory copy to the end of the write.
+ */
+@Name("co.xenastudios.economy.SnapshotSave")
+@Label("Balance Save")
+@Category({"Economy", "Storage"})
+@Description("A save of the balances to the storage backend")
+@Threshold("0 ms")
+public final class SnapshotSaveEvent extends Event {
+	@Label("Storage")
+	private String storage;
+
+	@Label("Accounts")
+	@Description("The number of accounts in memory when the copy was taken")
+	private int accounts;
+
+	@Label("Changed")
+	@Description("The number of accounts changed since the last save")
+	private int changed;
+
+	@Label("Copy Time")
+	@Description("Time the copy held up balance changes")
+	@Timespan(Timespan.NANOSECONDS)
+	private long copyTime;
+
+	@Label("Success")
+	private boolean success;
+
+	/**
+	 * Fills in and commits the event, if it is being recorded.
+	 *
+	 * @param storage  The backend saved to.
+	 * @param accounts The number of accounts copied.
+	 * @param changed  The number of changed accounts.
+	 * @param copyTime The nanoseconds balance changes waited for the copy.
+	 * @param success  Whether the save was written.
+	 */
+	public void commit(@NotNull String storage, int accounts, int changed, long copyTime, boolean success) {
+		if (!shouldCommit()) return;
+		this.storage = storage;
+		this.accounts = accounts;
+		this.changed = changed;
+		this.copyTime = copyTime;
+		this.success = success;
+		commit();
+	}
+}
@@ -0,0 +1,61 @@
+package co.xenastudios.economy.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * A transfer between two accounts, from the call to the commit of both balances.
+ */
+@Name("co.xenastudios.economy.Transfer")
+@Label("Transfer")
+@Category({"Economy", "Transactions"})
+@Description("A transfer between two accounts, including the wait for its commit")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class TransferEvent extends Event {
+	@Label("From")
+	private String from;
+
+	@Label("To")
+	private String to;
+
+	@Label("Amount")
+	@Description("The amount in minor units")
+	private long amount;
+
+	@Label("Status")
+	private String status;
+
+	@Label("Lock Wait")
+	@Description("Time spent waiting for both accounts' locks")
+	@Timespan(Timespan.NANOSECONDS)
+	private long lockWait;
+
+	/**
+	 * Fills in and commits the event, if it is being recorded and took long enough.
+	 *
+	 * @param from     The sending account.
+	 * @param to       The receiving account.
+	 * @param amount   The amount in minor units.
+	 * @param status   The outcome.
+	 * @param lockWait The nanoseconds spent waiting for the accounts' locks.
+	 */
+	public void commit(@NotNull UUID from, @NotNull UUID to, long amount, @NotNull String status, long lockWait) {
+		if (!shouldCommit()) return;
+		this.from = from.toString();
+		this.to = to.toString();
+		this.amount = amount;
+		this.status = status;
+		this.lockWait = lockWait;
+		commit();
+	}
+}
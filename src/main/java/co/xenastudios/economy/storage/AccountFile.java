@@ -0,0 +1,546 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Account balances in a memory-mapped file of fixed-size records, located through open addressing.
+ * <p>
+ * The file is a one-page header followed by a hash table of 32-byte records: the two halves of the
+ * account UUID, the balance in minor units, and a version counting the writes to it, 0 marking an
+ * empty slot. Opening maps the table without reading it, a lookup probes a few records, and an update
+ * is an in-place write of the balance and version into the mapping, which the OS writes back.
+ * <p>
+ * The table is never rewritten in place: growing or replacing it builds a new table further along
+ * the file, and a single 8-byte write to the header then switches to it, so a crash leaves either
+ * table intact. The space the old tables leave behind is reclaimed when the file is next opened.
+ */
+final class AccountFile implements Closeable {
+	private static final int MAGIC = 0x45434F41; // "ECOA"
+	private static final int VERSION = 1;
+
+	// The header fills the first page, so every table starts page-aligned
+	private static final int HEADER_SIZE = 4096;
+	// magic + version, then the table pointer and the account count
+	private static final int TABLE_POINTER = Integer.BYTES * 2;
+	private static final int COUNT = TABLE_POINTER + Long.BYTES;
+
+	// Each record is four longs: UUID high bits, UUID low bits, balance, version
+	private static final int RECORD_SIZE = Long.BYTES * 4;
+	private static final int BALANCE = Long.BYTES * 2;
+	private static final int RECORD_VERSION = Long.BYTES * 3;
+
+	private static final int MIN_SHIFT = 12;
+	private static final int MAX_SHIFT = 30;
+	private static final double MAX_LOAD = 0.6;
+
+	// Records per mapping, as one MappedByteBuffer cannot span more than 2 GiB
+	private static final int SEGMENT_SHIFT = 25;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+	private final Path file;
+	private final Logger logger;
+	private final boolean durable;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Guarded by the lock
+	private Table table;
+	private int count;
+	private long fileEnd;
+	private boolean closed;
+
+	private AccountFile(@NotNull Path file, @NotNull Logger logger, boolean durable, @NotNull FileChannel channel) throws IOException {
+		this.file = file;
+		this.logger = logger;
+		this.durable = durable;
+		this.channel = channel;
+		this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_SIZE);
+	}
+
+	/**
+	 * Opens the file, creating an empty table if there is none yet.
+	 *
+	 * @param file    The account file.
+	 * @param logger  The logger for growth and compaction messages.
+	 * @param durable Whether {@link #force()} forces writes to disk.
+	 * @return The opened file.
+	 * @throws IOException If the file could not be read or created, or is not a valid account file.
+	 */
+	static @NotNull AccountFile open(@NotNull Path file, @NotNull Logger logger, boolean durable) throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		if (!Files.exists(file)) {
+			create(file);
+		} else {
+			compactIfNeeded(file, logger);
+		}
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			AccountFile accounts = new AccountFile(file, logger, durable, channel);
+			long pointer = accounts.header.getLong(TABLE_POINTER);
+			accounts.table = Table.map(channel, pointer & -HEADER_SIZE, (int) (pointer & (HEADER_SIZE - 1)));
+			accounts.count = (int) accounts.header.getLong(COUNT);
+			accounts.fileEnd = accounts.table.end();
+			return accounts;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads every account in a file, for importing it into another backend.
+	 *
+	 * @param file     The account file.
+	 * @param logger   The logger for compaction messages.
+	 * @param consumer The entry consumer.
+	 * @throws IOException If the file could not be read or is not a valid account file.
+	 */
+	static void read(@NotNull Path file, @NotNull Logger logger, @NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		try (AccountFile accounts = open(file, logger, false)) {
+			accounts.forEach(consumer);
+		}
+	}
+
+	/**
+	 * Gets a balance.
+	 *
+	 * @param account The account UUID.
+	 * @return The balance in minor units, or null if the account is not in the file.
+	 * @throws IOException If the file is closed.
+	 */
+	@Nullable Long get(@NotNull UUID account) throws IOException {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			int slot = table.find(account.getMostSignificantBits(), account.getLeastSignificantBits());
+			return slot >= 0 ? table.balance(slot) : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sets a balance in place, adding the account if it is not in the file yet.
+	 * The write reaches the disk when the OS writes the page back, or on {@link #force()}.
+	 *
+	 * @param mostSigBits  The most significant bits of the account UUID.
+	 * @param leastSigBits The least significant bits of the account UUID.
+	 * @param balance      The balance in minor units.
+	 * @throws IOException If the file is closed or could not grow.
+	 */
+	void put(long mostSigBits, long leastSigBits, long balance) throws IOException {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			int slot = table.find(mostSigBits, leastSigBits);
+			if (slot >= 0) {
+				table.update(slot, balance);
+				return;
+			}
+
+			if (count + 1 > table.capacity() * MAX_LOAD) {
+				Table grown = rehash(table);
+				switchTo(grown, count);
+				logger.info("Grew " + file.getFileName() + " to " + grown.capacity() + " slots for " + count + " accounts.");
+				slot = table.find(mostSigBits, leastSigBits);
+			}
+
+			// Counted first, so a crash can only leave the count too high, which merely grows the table sooner
+			header.putLong(COUNT, ++count);
+			table.insert(~slot, mostSigBits, leastSigBits, balance, 1L);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Passes every account to the consumer, in slot order.
+	 *
+	 * @param consumer The entry consumer.
+	 * @throws IOException If the file is closed.
+	 */
+	void forEach(@NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			table.forEach(consumer);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The number of accounts.
+	 */
+	int size() {
+		lock.readLock().lock();
+		try {
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Forces every write so far to disk, if the file was opened durable.
+	 *
+	 * @throws IOException If the file is closed.
+	 */
+	void force() throws IOException {
+		if (!durable) return;
+
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			table.force();
+			header.force();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Starts building a new table of accounts, which replaces the current one once committed.
+	 * Until then, reads and writes go to the current table; writes made before the commit are lost with it.
+	 *
+	 * @return The writer, which the caller must close.
+	 * @throws IOException If the file is closed or the new table could not be mapped.
+	 */
+	@NotNull StorageBackend.BalanceWriter replace() throws IOException {
+		Table first;
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			first = allocate(MIN_SHIFT);
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		return new StorageBackend.BalanceWriter() {
+			private Table target = first;
+			private int written;
+			private boolean finished;
+
+			@Override
+			public void write(long mostSigBits, long leastSigBits, long balance) throws IOException {
+				int slot = target.find(mostSigBits, leastSigBits);
+				if (slot >= 0) {
+					target.update(slot, balance);
+					return;
+				}
+
+				if (written + 1 > target.capacity() * MAX_LOAD) {
+					target = rehash(target);
+					slot = target.find(mostSigBits, leastSigBits);
+				}
+				target.insert(~slot, mostSigBits, leastSigBits, balance, 1L);
+				written++;
+			}
+
+			@Override
+			public void commit() throws IOException {
+				target.force();
+				lock.writeLock().lock();
+				try {
+					checkOpen();
+					switchTo(target, written);
+				} finally {
+					lock.writeLock().unlock();
+				}
+				finished = true;
+			}
+
+			@Override
+			public void close() {
+				// An uncommitted table is left as unused space, reclaimed on the next open
+				finished = true;
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (closed) return;
+			closed = true;
+			if (durable) {
+				table.force();
+				header.force();
+			}
+			// The mappings stay valid until collected, but nothing reaches them past the closed check
+			channel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (closed) throw new IOException(file.getFileName() + " is closed");
+	}
+
+	/**
+	 * Maps a new, empty table past the end of the last one.
+	 */
+	private @NotNull Table allocate(int shift) throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (shift > MAX_SHIFT) {
+				throw new IOException(file.getFileName() + " cannot hold more than " + (1 << MAX_SHIFT) + " slots");
+			}
+			Table allocated = Table.map(channel, fileEnd, shift);
+			fileEnd = allocated.end();
+			return allocated;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Copies every record into a new table twice the size, forcing it to disk before it is used.
+	 */
+	private @NotNull Table rehash(@NotNull Table source) throws IOException {
+		Table target = allocate(source.shift + 1);
+		for (int slot = 0; slot < source.capacity(); slot++) {
+			long version = source.version(slot);
+			if (version == 0L) continue;
+
+			long mostSigBits = source.mostSigBits(slot);
+			long leastSigBits = source.leastSigBits(slot);
+			target.insert(~target.find(mostSigBits, leastSigBits), mostSigBits, leastSigBits, source.balance(slot), version);
+		}
+		target.force();
+		return target;
+	}
+
+	/**
+	 * Points the header at a table that is already on disk.
+	 */
+	private void switchTo(@NotNull Table target, int accounts) {
+		header.putLong(TABLE_POINTER, target.offset | target.shift);
+		header.putLong(COUNT, accounts);
+		header.force();
+		table = target;
+		count = accounts;
+	}
+
+	/**
+	 * Writes an empty file beside the target and moves it into place, so a crash never leaves half a header.
+	 */
+	private static void create(@NotNull Path file) throws IOException {
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel created = FileChannel.open(
+				tempFile,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		)) {
+			writeHeader(created, HEADER_SIZE | MIN_SHIFT, 0L);
+			// Writing the last byte sizes the file; the records before it read back as zero, i.e. empty
+			created.write(ByteBuffer.allocate(1), HEADER_SIZE + ((long) RECORD_SIZE << MIN_SHIFT) - 1);
+			created.force(true);
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Checks the header, and if the file holds anything besides the current table, copies the table
+	 * into a new file right after the header. Done before the file is mapped, as a mapped file cannot
+	 * be replaced on every platform.
+	 */
+	private static void compactIfNeeded(@NotNull Path file, @NotNull Logger logger) throws IOException {
+		long offset;
+		int shift;
+		long accounts;
+		long length;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(COUNT + Long.BYTES);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new IOException(file.getFileName() + " is too short for its header");
+				}
+			}
+			length = channel.size();
+
+			long pointer = buffer.getLong(TABLE_POINTER);
+			offset = pointer & -HEADER_SIZE;
+			shift = (int) (pointer & (HEADER_SIZE - 1));
+			accounts = buffer.getLong(COUNT);
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IOException(file.getFileName() + " is not an account file");
+			}
+			int version = buffer.getInt(Integer.BYTES);
+			if (version != VERSION) {
+				throw new IOException(file.getFileName() + " has unsupported format version " + version);
+			}
+			if (shift < MIN_SHIFT || shift > MAX_SHIFT || offset < HEADER_SIZE
+					|| offset + ((long) RECORD_SIZE << shift) > length
+					|| accounts < 0 || accounts > 1L << shift) {
+				throw new IOException(file.getFileName() + " has an invalid header");
+			}
+		}
+
+		long tableSize = (long) RECORD_SIZE << shift;
+		if (offset == HEADER_SIZE && length == HEADER_SIZE + tableSize) return;
+
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+			 FileChannel target = FileChannel.open(
+					 tempFile,
+					 StandardOpenOption.CREATE,
+					 StandardOpenOption.WRITE,
+					 StandardOpenOption.TRUNCATE_EXISTING
+			 )) {
+			writeHeader(target, HEADER_SIZE | shift, accounts);
+			long copied = 0L;
+			while (copied < tableSize) {
+				copied += source.transferTo(offset + copied, tableSize - copied, target.position(HEADER_SIZE + copied));
+			}
+			target.force(true);
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		logger.info("Compacted " + file.getFileName() + ", reclaiming " + ((length - HEADER_SIZE - tableSize) >> 20) + " MiB.");
+	}
+
+	private static void writeHeader(@NotNull FileChannel target, long tablePointer, long accounts) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(COUNT + Long.BYTES)
+				.putInt(MAGIC)
+				.putInt(VERSION)
+				.putLong(tablePointer)
+				.putLong(accounts)
+				.flip();
+		long position = 0L;
+		while (buffer.hasRemaining()) {
+			position += target.write(buffer, position);
+		}
+	}
+
+	/**
+	 * One hash table in the file, mapped a segment at a time.
+	 */
+	private static final class Table {
+		private final long offset;
+		private final int shift;
+		private final MappedByteBuffer[] segments;
+
+		private Table(long offset, int shift, @NotNull MappedByteBuffer[] segments) {
+			this.offset = offset;
+			this.shift = shift;
+			this.segments = segments;
+		}
+
+		/**
+		 * Maps a table, growing the file to fit it; new records read back as zero, i.e. empty.
+		 */
+		static @NotNull Table map(@NotNull FileChannel channel, long offset, int shift) throws IOException {
+			int segmentShift = Math.min(shift, SEGMENT_SHIFT);
+			MappedByteBuffer[] segments = new MappedByteBuffer[1 << (shift - segmentShift)];
+			long segmentSize = (long) RECORD_SIZE << segmentShift;
+			for (int i = 0; i < segments.length; i++) {
+				segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset + i * segmentSize, segmentSize);
+			}
+			return new Table(offset, shift, segments);
+		}
+
+		int capacity() {
+			return 1 << shift;
+		}
+
+		long end() {
+			return offset + ((long) RECORD_SIZE << shift);
+		}
+
+		/**
+		 * Probes the table for an account.
+		 *
+		 * @return The account's slot, or the bitwise complement of the free slot where it would go.
+		 */
+		int find(long mostSigBits, long leastSigBits) {
+			int mask = capacity() - 1;
+			for (int slot = BalanceTable.hash(mostSigBits, leastSigBits) & mask; ; slot = (slot + 1) & mask) {
+				MappedByteBuffer segment = segment(slot);
+				int position = position(slot);
+				if (segment.getLong(position + RECORD_VERSION) == 0L) return ~slot;
+				if (segment.getLong(position) == mostSigBits && segment.getLong(position + Long.BYTES) == leastSigBits) {
+					return slot;
+				}
+			}
+		}
+
+		long mostSigBits(int slot) {
+			return segment(slot).getLong(position(slot));
+		}
+
+		long leastSigBits(int slot) {
+			return segment(slot).getLong(position(slot) + Long.BYTES);
+		}
+
+		long balance(int slot) {
+			return segment(slot).getLong(position(slot) + BALANCE);
+		}
+
+		long version(int slot) {
+			return segment(slot).getLong(position(slot) + RECORD_VERSION);
+		}
+
+		void update(int slot, long balance) {
+			MappedByteBuffer segment = segment(slot);
+			int position = position(slot);
+			segment.putLong(position + BALANCE, balance);
+			segment.putLong(position + RECORD_VERSION, segment.getLong(position + RECORD_VERSION) + 1);
+		}
+
+		void insert(int slot, long mostSigBits, long leastSigBits, long balance, long version) {
+			MappedByteBuffer segment = segment(slot);
+			int position = position(slot);
+			segment.putLong(position, mostSigBits);
+			segment.putLong(position + Long.BYTES, leastSigBits);
+			segment.putLong(position + BALANCE, balance);
+			// Written last, as a non-zero version is what marks the slot taken
+			segment.putLong(position + RECORD_VERSION, version);
+		}
+
+		void forEach(@NotNull BalanceTable.EntryConsumer consumer) {
+			for (MappedByteBuffer segment : segments) {
+				for (int position = 0; position < segment.capacity(); position += RECORD_SIZE) {
+					if (segment.getLong(position + RECORD_VERSION) == 0L) continue;
+					consumer.accept(
+							segment.getLong(position),
+							segment.getLong(position + Long.BYTES),
+							segment.getLong(position + BALANCE)
+					);
+				}
+			}
+		}
+
+		void force() {
+			for (MappedByteBuffer segment : segments) {
+				segment.force();
+			}
+		}
+
+		private @NotNull MappedByteBuffer segment(int slot) {
+			return segments[slot >>> SEGMENT_SHIFT];
+		}
+
+		private static int position(int slot) {
+			return (slot & SEGMENT_MASK) * RECORD_SIZE;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that accounts are striped across by UUID.
+ * <p>
+ * Operations on accounts in different stripes proceed in parallel, while a read-modify-write
+ * on one account is still serialized. The stripe count bounds memory regardless of account count.
+ */
+public final class AccountLocks {
+	private final ReentrantLock[] stripes;
+	private final int mask;
+
+	/**
+	 * @param stripes The minimum number of stripes, rounded up to a power of two.
+	 */
+	public AccountLocks(int stripes) {
+		int count = Integer.highestOneBit(Math.max(2, stripes) - 1) << 1;
+		this.stripes = new ReentrantLock[count];
+		for (int i = 0; i < count; i++) {
+			this.stripes[i] = new ReentrantLock();
+		}
+		this.mask = count - 1;
+	}
+
+	/**
+	 * Gets the lock guarding an account.
+	 *
+	 * @param account The account UUID.
+	 * @return The account's lock.
+	 */
+	public @NotNull ReentrantLock lockFor(@NotNull UUID account) {
+		return stripes[stripe(account)];
+	}
+
+	/**
+	 * Locks two accounts, taking their stripes in ascending order so that two callers locking
+	 * the same pair in opposite order cannot deadlock.
+	 *
+	 * @param first  The first account UUID.
+	 * @param second The second account UUID.
+	 */
+	public void lockBoth(@NotNull UUID first, @NotNull UUID second) {
+		int a = stripe(first);
+		int b = stripe(second);
+		stripes[Math.min(a, b)].lock();
+		stripes[Math.max(a, b)].lock();
+	}
+
+	/**
+	 * Unlocks two accounts locked with {@link #lockBoth(UUID, UUID)}.
+	 *
+	 * @param first  The first account UUID.
+	 * @param second The second account UUID.
+	 */
+	public void unlockBoth(@NotNull UUID first, @NotNull UUID second) {
+		int a = stripe(first);
+		int b = stripe(second);
+		stripes[Math.max(a, b)].unlock();
+		stripes[Math.min(a, b)].unlock();
+	}
+
+	/**
+	 * Gets the index of the stripe an account belongs to.
+	 * Locks for several accounts must be taken in ascending stripe order to avoid deadlocks.
+	 *
+	 * @param account The account UUID.
+	 * @return The stripe index.
+	 */
+	public int stripe(@NotNull UUID account) {
+		long h = account.getMostSignificantBits() ^ account.getLeastSignificantBits();
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+
+	/**
+	 * Gets a stripe's lock by index.
+	 *
+	 * @param stripe The stripe index.
+	 * @return The stripe's lock.
+	 */
+	public @NotNull ReentrantLock stripeLock(int stripe) {
+		return stripes[stripe];
+	}
+}
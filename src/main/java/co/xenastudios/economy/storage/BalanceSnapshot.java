@@ -0,0 +1,225 @@
+package co.xenastudios.economy.storage;
+
+import co.xenastudios.economy.jfr.FileWriteEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The compact binary form of a full set of balances.
+ * <p>
+ * A fixed header holds a magic number, the format version, the number of accounts and a CRC32 of
+ * everything after the header. Each account follows as its 16-byte UUID and its balance as a
+ * zigzag varint, so a typical account takes 18 to 21 bytes. Reading is one sequential pass
+ * straight into the consumer, with no intermediate objects per account.
+ */
+public final class BalanceSnapshot {
+	private static final int MAGIC = 0x45434F42; // "ECOB"
+	private static final int VERSION = 1;
+
+	// magic + version + count + crc
+	static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES;
+	// uuid + the longest varint
+	private static final int MAX_RECORD_SIZE = Long.BYTES * 2 + 10;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private BalanceSnapshot() {
+		throw new UnsupportedOperationException("Utility class");
+	}
+
+	/**
+	 * Reads the number of accounts from a snapshot's header, without reading the accounts.
+	 *
+	 * @param file The snapshot file.
+	 * @return The number of accounts.
+	 * @throws IOException If the header could not be read or is invalid.
+	 */
+	public static long count(@NotNull Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return readHeader(channel, file).getLong(Integer.BYTES * 2);
+		}
+	}
+
+	/**
+	 * Reads every account in a snapshot. Accounts are passed on as they are read and the checksum is
+	 * only known at the end, so if this throws, the caller must discard what it was given.
+	 *
+	 * @param file     The snapshot file.
+	 * @param consumer The entry consumer.
+	 * @throws IOException If the snapshot could not be read, is truncated or fails its checksum.
+	 */
+	public static void read(@NotNull Path file, @NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel, file);
+			long count = header.getLong(Integer.BYTES * 2);
+			int expectedCrc = header.getInt(Integer.BYTES * 2 + Long.BYTES);
+
+			CRC32 crc = new CRC32();
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			buffer.flip();
+			boolean eof = false;
+			for (long i = 0; i < count; i++) {
+				// Refill once a whole record may no longer be buffered
+				if (buffer.remaining() < MAX_RECORD_SIZE && !eof) {
+					buffer.compact();
+					int start = buffer.position();
+					while (buffer.hasRemaining()) {
+						if (channel.read(buffer) < 0) {
+							eof = true;
+							break;
+						}
+					}
+					crc.update(buffer.array(), start, buffer.position() - start);
+					buffer.flip();
+				}
+
+				if (buffer.remaining() < Long.BYTES * 2 + 1) {
+					throw new EOFException(file.getFileName() + " is truncated after " + i + " of " + count + " accounts");
+				}
+				long mostSigBits = buffer.getLong();
+				long leastSigBits = buffer.getLong();
+				consumer.accept(mostSigBits, leastSigBits, readVarLong(buffer, file));
+			}
+
+			if (buffer.hasRemaining() || (!eof && channel.position() != channel.size())) {
+				throw new IOException(file.getFileName() + " has data past its last account");
+			}
+			if ((int) crc.getValue() != expectedCrc) {
+				throw new IOException(file.getFileName() + " failed its checksum");
+			}
+		}
+	}
+
+	/**
+	 * Starts writing a snapshot to a temporary file, which is moved over the target once committed.
+	 *
+	 * @param file    The snapshot file.
+	 * @param durable Whether the file is fsynced before it replaces the old one.
+	 * @return The writer, which the caller must close.
+	 * @throws IOException If the temporary file could not be created.
+	 */
+	public static @NotNull StorageBackend.BalanceWriter write(@NotNull Path file, boolean durable) throws IOException {
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		FileChannel channel = FileChannel.open(
+				tempFile,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		);
+		channel.position(HEADER_SIZE);
+		FileWriteEvent event = new FileWriteEvent();
+		event.begin();
+
+		return new StorageBackend.BalanceWriter() {
+			private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			private final CRC32 crc = new CRC32();
+			private long count;
+			private boolean finished;
+
+			@Override
+			public void write(long mostSigBits, long leastSigBits, long balance) throws IOException {
+				if (buffer.remaining() < MAX_RECORD_SIZE) {
+					flush();
+				}
+				buffer.putLong(mostSigBits);
+				buffer.putLong(leastSigBits);
+				writeVarLong(buffer, balance);
+				count++;
+			}
+
+			private void flush() throws IOException {
+				crc.update(buffer.array(), 0, buffer.position());
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				buffer.clear();
+			}
+
+			@Override
+			public void commit() throws IOException {
+				flush();
+
+				// The header goes in last, once the count and checksum are known
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(VERSION).putLong(count).putInt((int) crc.getValue()).flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				long forcing = System.nanoTime();
+				if (durable) {
+					channel.force(true);
+				}
+				long forceTime = System.nanoTime() - forcing;
+				long bytes = channel.size();
+				channel.close();
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				finished = true;
+				event.commit(file.getFileName().toString(), bytes, durable, forceTime);
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (finished) return;
+				finished = true;
+				channel.close();
+				Files.deleteIfExists(tempFile);
+			}
+		};
+	}
+
+	private static @NotNull ByteBuffer readHeader(@NotNull FileChannel channel, @NotNull Path file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining()) {
+			if (channel.read(header) < 0) {
+				throw new EOFException(file.getFileName() + " is too short for its header");
+			}
+		}
+		header.flip();
+
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException(file.getFileName() + " is not a balance snapshot");
+		}
+		int version = header.getInt(Integer.BYTES);
+		if (version != VERSION) {
+			throw new IOException(file.getFileName() + " has unsupported format version " + version);
+		}
+		return header;
+	}
+
+	/**
+	 * Writes a value as a zigzag varint: seven bits per byte, small magnitudes of either sign first.
+	 */
+	private static void writeVarLong(@NotNull ByteBuffer buffer, long value) {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		buffer.put((byte) zigzag);
+	}
+
+	private static long readVarLong(@NotNull ByteBuffer buffer, @NotNull Path file) throws IOException {
+		long zigzag = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			if (!buffer.hasRemaining()) {
+				throw new EOFException(file.getFileName() + " is truncated mid-account");
+			}
+			byte b = buffer.get();
+			zigzag |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+		throw new IOException(file.getFileName() + " holds an invalid balance");
+	}
+}
@@ -0,0 +1,371 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory table of account balances, keyed by the two halves of the account UUID.
+ * <p>
+ * Balances are stored as {@code long} minor units in one flat primitive array using open addressing
+ * with linear probing, so lookups allocate nothing and each account costs a few dozen bytes.
+ * Reads, and updates of accounts already in the table, are optimistic and lock-free unless they
+ * race an insert that resizes the table; only inserts take the exclusive lock.
+ */
+public final class BalanceTable {
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final double MAX_LOAD = 0.6;
+
+	// Each slot is three longs: UUID high bits, UUID low bits, balance; the all-zero key marks an empty slot
+	private static final int STRIDE = 3;
+
+	private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * Receives table entries during iteration.
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer {
+		void accept(long mostSigBits, long leastSigBits, long balance);
+	}
+
+	private final StampedLock lock = new StampedLock();
+
+	private long[] slots;
+	private int capacity;
+	private int size;
+
+	// The nil UUID collides with the empty marker, so it lives outside the slot array
+	private boolean hasZeroKey;
+	private long zeroValue;
+
+	public BalanceTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize The number of accounts to size the table for.
+	 */
+	public BalanceTable(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	private BalanceTable(long @NotNull [] slots, int capacity) {
+		this.slots = slots;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Gets a balance.
+	 *
+	 * @param mostSigBits  The most significant bits of the account UUID.
+	 * @param leastSigBits The least significant bits of the account UUID.
+	 * @param defaultValue The value returned if the account has no balance.
+	 * @return The balance in minor units.
+	 */
+	public long get(long mostSigBits, long leastSigBits, long defaultValue) {
+		long stamp = lock.tryOptimisticRead();
+		long value = find(mostSigBits, leastSigBits, defaultValue);
+		if (lock.validate(stamp)) {
+			return value;
+		}
+
+		stamp = lock.readLock();
+		try {
+			return find(mostSigBits, leastSigBits, defaultValue);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Sets a balance, adding the account if it is not in the table yet.
+	 *
+	 * @param mostSigBits  The most significant bits of the account UUID.
+	 * @param leastSigBits The least significant bits of the account UUID.
+	 * @param value        The balance in minor units.
+	 */
+	public void put(long mostSigBits, long leastSigBits, long value) {
+		if ((mostSigBits | leastSigBits) != 0 && tryUpdate(mostSigBits, leastSigBits, value)) {
+			return;
+		}
+
+		long stamp = lock.writeLock();
+		try {
+			if ((mostSigBits | leastSigBits) == 0) {
+				if (!hasZeroKey) {
+					hasZeroKey = true;
+					size++;
+				}
+				zeroValue = value;
+				return;
+			}
+
+			int index = index(mostSigBits, leastSigBits);
+			if (index >= 0) {
+				SLOTS.setVolatile(slots, index + 2, value);
+				return;
+			}
+
+			insert(~index, mostSigBits, leastSigBits, value);
+			if (++size > capacity * MAX_LOAD) {
+				resize(capacity * 2);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Checks whether an account is in the table.
+	 *
+	 * @param mostSigBits  The most significant bits of the account UUID.
+	 * @param leastSigBits The least significant bits of the account UUID.
+	 * @return true if the account has a balance in the table
+	 */
+	public boolean contains(long mostSigBits, long leastSigBits) {
+		long stamp = lock.readLock();
+		try {
+			if ((mostSigBits | leastSigBits) == 0) return hasZeroKey;
+			return index(mostSigBits, leastSigBits) >= 0;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Removes accounts, shrinking the table to fit the rest.
+	 * The slots are rebuilt into a new array once for all of them, as for a resize, so lock-free
+	 * updates racing the removal are redone rather than written into a slot another account moved to.
+	 *
+	 * @param accounts The account UUIDs.
+	 * @return The number of accounts removed.
+	 */
+	public int removeAll(@NotNull Set<UUID> accounts) {
+		long stamp = lock.writeLock();
+		try {
+			// Found before any is cleared, as clearing a slot would cut the probe chains of the others
+			int[] removed = new int[accounts.size()];
+			int count = 0;
+			for (UUID account : accounts) {
+				long mostSigBits = account.getMostSignificantBits();
+				long leastSigBits = account.getLeastSignificantBits();
+				if ((mostSigBits | leastSigBits) == 0) {
+					if (hasZeroKey) {
+						hasZeroKey = false;
+						zeroValue = 0;
+						size--;
+					}
+					continue;
+				}
+
+				int index = index(mostSigBits, leastSigBits);
+				if (index >= 0) {
+					removed[count++] = index;
+				}
+			}
+			if (count == 0) return 0;
+
+			long[] oldSlots = slots;
+			for (int i = 0; i < count; i++) {
+				oldSlots[removed[i]] = 0L;
+				oldSlots[removed[i] + 1] = 0L;
+			}
+			size -= count;
+			resize(capacityFor(size));
+			return count;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * @return The number of accounts in the table.
+	 */
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			return size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Removes every account.
+	 */
+	public void clear() {
+		long stamp = lock.writeLock();
+		try {
+			allocate(capacityFor(0));
+			size = 0;
+			hasZeroKey = false;
+			zeroValue = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Creates a point-in-time copy of the table, e.g. to export it without holding up writers.
+	 *
+	 * @return The copy.
+	 */
+	public @NotNull BalanceTable copy() {
+		long stamp = lock.readLock();
+		try {
+			BalanceTable copy = new BalanceTable(slots.clone(), capacity);
+			copy.size = size;
+			copy.hasZeroKey = hasZeroKey;
+			copy.zeroValue = zeroValue;
+			return copy;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Passes every account to the consumer, in no particular order.
+	 * The table is read-locked during iteration, so the consumer must not write to it.
+	 *
+	 * @param consumer The entry consumer.
+	 */
+	public void forEach(@NotNull EntryConsumer consumer) {
+		long stamp = lock.readLock();
+		try {
+			if (hasZeroKey) {
+				consumer.accept(0L, 0L, zeroValue);
+			}
+			for (int index = 0; index < slots.length; index += STRIDE) {
+				long mostSigBits = slots[index];
+				long leastSigBits = slots[index + 1];
+				if ((mostSigBits | leastSigBits) != 0) {
+					consumer.accept(mostSigBits, leastSigBits, slots[index + 2]);
+				}
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Updates an existing account's slot in place without locking.
+	 * If a resize raced the update it may have been written to the old array, so it is reported
+	 * as failed and redone under the write lock.
+	 *
+	 * @return whether the account existed and the update is visible in the current array
+	 */
+	private boolean tryUpdate(long mostSigBits, long leastSigBits, long value) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp == 0) return false;
+
+		long[] slots = this.slots;
+		int capacity = slots.length / STRIDE;
+		for (int slot = hash(mostSigBits, leastSigBits) & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+			int index = slot * STRIDE;
+			long storedMost = slots[index];
+			long storedLeast = slots[index + 1];
+			if (storedMost == mostSigBits && storedLeast == leastSigBits) {
+				SLOTS.setVolatile(slots, index + 2, value);
+				return lock.validate(stamp);
+			}
+			if ((storedMost | storedLeast) == 0) {
+				return false;
+			}
+		}
+	}
+
+	private long find(long mostSigBits, long leastSigBits, long defaultValue) {
+		if ((mostSigBits | leastSigBits) == 0) {
+			return hasZeroKey ? zeroValue : defaultValue;
+		}
+
+		// Read the array once, as a racing resize may swap it (the caller validates afterwards)
+		long[] slots = this.slots;
+		int capacity = slots.length / STRIDE;
+		for (int slot = hash(mostSigBits, leastSigBits) & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+			int index = slot * STRIDE;
+			long storedMost = slots[index];
+			long storedLeast = slots[index + 1];
+			if (storedMost == mostSigBits && storedLeast == leastSigBits) {
+				return (long) SLOTS.getVolatile(slots, index + 2);
+			}
+			if ((storedMost | storedLeast) == 0) {
+				return defaultValue;
+			}
+		}
+	}
+
+	/**
+	 * @return The array index of the key's slot, or the bitwise complement of the empty slot it would go in.
+	 */
+	private int index(long mostSigBits, long leastSigBits) {
+		int mask = capacity - 1;
+		for (int slot = hash(mostSigBits, leastSigBits) & mask; ; slot = (slot + 1) & mask) {
+			int index = slot * STRIDE;
+			long storedMost = slots[index];
+			long storedLeast = slots[index + 1];
+			if (storedMost == mostSigBits && storedLeast == leastSigBits) {
+				return index;
+			}
+			if ((storedMost | storedLeast) == 0) {
+				return ~index;
+			}
+		}
+	}
+
+	private void insert(int index, long mostSigBits, long leastSigBits, long value) {
+		slots[index] = mostSigBits;
+		slots[index + 1] = leastSigBits;
+		slots[index + 2] = value;
+	}
+
+	private void resize(int newCapacity) {
+		long[] oldSlots = slots;
+		allocate(newCapacity);
+
+		for (int index = 0; index < oldSlots.length; index += STRIDE) {
+			long mostSigBits = oldSlots[index];
+			long leastSigBits = oldSlots[index + 1];
+			if ((mostSigBits | leastSigBits) != 0) {
+				insert(~index(mostSigBits, leastSigBits), mostSigBits, leastSigBits, oldSlots[index + 2]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		this.slots = new long[capacity * STRIDE];
+		this.capacity = capacity;
+	}
+
+	private static int capacityFor(int expectedSize) {
+		int needed = (int) Math.ceil(Math.max(expectedSize, DEFAULT_CAPACITY * MAX_LOAD) / MAX_LOAD);
+		return Integer.highestOneBit(needed - 1) << 1;
+	}
+
+	/**
+	 * Hashes a UUID for the open-addressed tables in this package. The spent note table and
+	 * accounts.dat probe on disk with it, so changing it would strand the slots already written.
+	 *
+	 * @param mostSigBits  The UUID's most significant bits.
+	 * @param leastSigBits The UUID's least significant bits.
+	 * @return The hash, well spread over its low bits.
+	 */
+	static int hash(long mostSigBits, long leastSigBits) {
+		// Murmur3 finalizer, spreading both halves over the low bits used for indexing
+		long h = mostSigBits * 0x9E3779B97F4A7C15L ^ leastSigBits;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	@Override
+	public String toString() {
+		return "BalanceTable{size=" + size + ", capacity=" + capacity + "}";
+	}
+}
@@ -0,0 +1,452 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Outstanding banknotes, indexed in memory over an append-only file.
+ * <p>
+ * Issuing a note appends an issue record and redeeming one appends a tombstone, each a fixed-size
+ * record holding its type, the note UUID and the amount, followed by a CRC32 so a record torn by a
+ * crash is detected on load. Neither rewrites the file; tombstones are dropped by
+ * {@link #compact()}, which rewrites only the live notes once tombstones outnumber them.
+ * <p>
+ * {@link #redeem(UUID)} removes the note from the index atomically, so however many threads
+ * redeem the same note at once, exactly one of them gets its amount. A change is only kept once its
+ * record is written: a note that failed to store is never indexed, and one whose tombstone failed
+ * is put back, so it is neither paid out nor lost.
+ * <p>
+ * In durable mode records are written under the store's monitor but fsynced outside it, and each
+ * fsync covers every record written before it started, so concurrent changes share one fsync as
+ * the journal's group commit does, instead of queueing for one each.
+ */
+public final class BanknoteStore implements Closeable {
+	private static final byte RECORD_ISSUED = 1;
+	private static final byte RECORD_REDEEMED = 2;
+
+	// type + uuid (2 longs) + amount + crc
+	static final int RECORD_SIZE = 1 + Long.BYTES * 3 + Integer.BYTES;
+
+	private final Path file;
+	private final Logger logger;
+	private final boolean durable;
+	private final int minTombstones;
+
+	// Outstanding notes by UUID, in minor units
+	private final Map<UUID, Long> notes = new ConcurrentHashMap<>();
+
+	// Guarded by this store's monitor
+	private final CRC32 crc = new CRC32();
+	private FileChannel channel;
+	private int tombstones;
+	private boolean closed;
+
+	// Held while fsyncing, always before this store's monitor
+	private final Object syncLock = new Object();
+	// Guarded by syncLock: the channel and length covered by the last fsync
+	private FileChannel syncedChannel;
+	private long syncedLength;
+
+	private BanknoteStore(@NotNull Path file, @NotNull Logger logger, boolean durable, int minTombstones) {
+		this.file = file;
+		this.logger = logger;
+		this.durable = durable;
+		this.minTombstones = Math.max(1, minTombstones);
+	}
+
+	/**
+	 * Opens the store, loading every outstanding note from its file.
+	 *
+	 * @param file          The store file.
+	 * @param logger        The logger for load and write warnings.
+	 * @param durable       Whether every record is fsynced before the change returns.
+	 * @param minTombstones How many tombstones must pile up before compaction is worthwhile.
+	 * @return The opened store.
+	 * @throws IOException If the store could not be read or created.
+	 */
+	public static @NotNull BanknoteStore open(
+			@NotNull Path file,
+			@NotNull Logger logger,
+			boolean durable,
+			int minTombstones
+	) throws IOException {
+		BanknoteStore store = new BanknoteStore(file, logger, durable, minTombstones);
+		Files.createDirectories(file.toAbsolutePath().getParent());
+
+		long validLength = Files.exists(file) ? store.load() : 0L;
+		store.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+		// Cut off a torn or corrupt tail, so new records are never appended after garbage
+		if (store.channel.size() > validLength) {
+			store.channel.truncate(validLength);
+		}
+		store.channel.position(validLength);
+		return store;
+	}
+
+	/**
+	 * Records a newly issued note.
+	 *
+	 * @param note   The banknote UUID.
+	 * @param amount The banknote's value in minor units.
+	 * @throws IOException If the note could not be written; it is then not stored.
+	 */
+	public void issue(@NotNull UUID note, long amount) throws IOException {
+		issueAll(List.of(note), amount);
+	}
+
+	/**
+	 * Records several newly issued notes of the same value with one write.
+	 *
+	 * @param notes  The banknote UUIDs.
+	 * @param amount Each banknote's value in minor units.
+	 * @throws IOException If the notes could not be written; none of them are then stored.
+	 */
+	public void issueAll(@NotNull Collection<UUID> notes, long amount) throws IOException {
+		Map<UUID, Long> issued = new HashMap<>();
+		for (UUID note : notes) {
+			issued.put(note, amount);
+		}
+		store(issued, false);
+	}
+
+	/**
+	 * Records notes carried over from older data with one write, skipping any already stored,
+	 * so an import cut short can simply be run again. The notes are on disk once this returns,
+	 * even outside durable mode, so the data they came from can be moved aside.
+	 *
+	 * @param imported The banknote UUIDs and their values in minor units.
+	 * @return The number of notes added.
+	 * @throws IOException If the notes could not be written; none of them are then stored.
+	 */
+	public int importAll(@NotNull Map<UUID, Long> imported) throws IOException {
+		int added = store(imported, true);
+		if (added > 0 && !durable) {
+			synchronized (this) {
+				channel.force(false);
+			}
+		}
+		return added;
+	}
+
+	private int store(@NotNull Map<UUID, Long> issued, boolean skipStored) throws IOException {
+		Map<UUID, Long> added = issued;
+		FileChannel written;
+		long end;
+		synchronized (this) {
+			if (skipStored) {
+				added = new HashMap<>();
+				for (Map.Entry<UUID, Long> note : issued.entrySet()) {
+					if (!notes.containsKey(note.getKey())) {
+						added.put(note.getKey(), note.getValue());
+					}
+				}
+			}
+			if (added.isEmpty()) return 0;
+
+			ByteBuffer batch = ByteBuffer.allocate(RECORD_SIZE * added.size());
+			added.forEach((note, amount) -> encode(batch, RECORD_ISSUED, note, amount));
+			end = append(batch);
+			written = channel;
+
+			// Indexed once written, under the monitor, so neither a tombstone nor a compaction can miss them
+			notes.putAll(added);
+		}
+
+		try {
+			sync(written, end);
+		} catch (IOException e) {
+			// Nobody holds the notes yet; any record that did reach the disk belongs to no item
+			notes.keySet().removeAll(added.keySet());
+			throw e;
+		}
+		return added.size();
+	}
+
+	/**
+	 * Redeems a note, removing it for good.
+	 *
+	 * @param note The banknote UUID.
+	 * @return The note's value in minor units, or null if it does not exist or was already redeemed.
+	 * @throws IOException If the tombstone could not be written; the note is then still outstanding.
+	 */
+	public @Nullable Long redeem(@NotNull UUID note) throws IOException {
+		return redeemAll(List.of(note)).get(note);
+	}
+
+	/**
+	 * Redeems several notes at once, writing all of their tombstones in one write.
+	 *
+	 * @param notes The banknote UUIDs.
+	 * @return The value in minor units of each note redeemed by this call; notes that do not exist,
+	 * were already redeemed, or appear more than once beyond their first are left out.
+	 * @throws IOException If the tombstones could not be written; every note is then still outstanding.
+	 */
+	public @NotNull Map<UUID, Long> redeemAll(@NotNull Collection<UUID> notes) throws IOException {
+		Map<UUID, Long> redeemed = new HashMap<>();
+		FileChannel written;
+		long end;
+		synchronized (this) {
+			// Removed under the monitor, so a compaction never drops notes whose tombstones may still fail
+			for (UUID note : notes) {
+				Long amount = this.notes.remove(note);
+				if (amount != null) {
+					redeemed.put(note, amount);
+				}
+			}
+			if (redeemed.isEmpty()) return redeemed;
+
+			ByteBuffer batch = ByteBuffer.allocate(RECORD_SIZE * redeemed.size());
+			redeemed.forEach((note, amount) -> encode(batch, RECORD_REDEEMED, note, amount));
+			try {
+				end = append(batch);
+			} catch (IOException e) {
+				this.notes.putAll(redeemed);
+				throw e;
+			}
+			written = channel;
+			tombstones += redeemed.size();
+		}
+
+		try {
+			sync(written, end);
+		} catch (IOException e) {
+			// Put the notes back, so they are redeemed once the file can be written again; at worst
+			// a tombstone that did reach the disk makes them unredeemable, never redeemable twice
+			this.notes.putAll(redeemed);
+			throw e;
+		}
+		return redeemed;
+	}
+
+	/**
+	 * Gets a note's value without redeeming it.
+	 *
+	 * @param note The banknote UUID.
+	 * @return The note's value in minor units, or null if it does not exist.
+	 */
+	public @Nullable Long get(@NotNull UUID note) {
+		return notes.get(note);
+	}
+
+	/**
+	 * Passes every outstanding note to the action, in no particular order.
+	 *
+	 * @param action The action, given each note UUID and its value in minor units.
+	 */
+	public void forEach(@NotNull BiConsumer<UUID, Long> action) {
+		notes.forEach(action);
+	}
+
+	/**
+	 * @return The number of outstanding notes.
+	 */
+	public int size() {
+		return notes.size();
+	}
+
+	/**
+	 * @return Whether tombstones outnumber the live notes enough to be worth compacting.
+	 */
+	public synchronized boolean needsCompaction() {
+		return tombstones >= minTombstones && tombstones > notes.size();
+	}
+
+	/**
+	 * Rewrites the file with only the outstanding notes, dropping every tombstone.
+	 * The new file is written beside the old one and moved over it, so a crash leaves either intact.
+	 *
+	 * @throws IOException If the compacted file could not be written.
+	 */
+	public synchronized void compact() throws IOException {
+		if (closed) return;
+
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(
+				tempFile,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		)) {
+			ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 512);
+			for (Map.Entry<UUID, Long> entry : notes.entrySet()) {
+				if (buffer.remaining() < RECORD_SIZE) {
+					drain(buffer, out);
+				}
+				encode(buffer, RECORD_ISSUED, entry.getKey(), entry.getValue());
+			}
+			drain(buffer, out);
+			out.force(false);
+		}
+
+		channel.close();
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		tombstones = 0;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) return;
+		if (needsCompaction()) {
+			compact();
+		}
+		closed = true;
+		// A change still waiting for its fsync is covered by this one
+		if (durable) {
+			channel.force(false);
+		}
+		channel.close();
+	}
+
+	/**
+	 * Appends records to the file, without forcing them to disk. If that fails the file is cut back
+	 * to where it was, so a record of a change that was refused is never loaded.
+	 * The caller must hold this store's monitor.
+	 *
+	 * @return The length of the file after the records.
+	 */
+	private long append(@NotNull ByteBuffer records) throws IOException {
+		if (closed) {
+			throw new IOException(file.getFileName() + " is closed");
+		}
+
+		long start = channel.size();
+		long end = start + records.position();
+		try {
+			drain(records, channel);
+		} catch (IOException e) {
+			try {
+				channel.truncate(start);
+				channel.position(start);
+			} catch (IOException truncateFailure) {
+				e.addSuppressed(truncateFailure);
+			}
+			throw e;
+		}
+		return end;
+	}
+
+	/**
+	 * Waits until records written up to a length are on disk in durable mode, fsyncing them unless
+	 * an fsync that started after they were written already has. Must not be called holding this
+	 * store's monitor, so changes keep being written while an fsync runs.
+	 *
+	 * @param written The channel the records were written to.
+	 * @param end     The length of the file after the records.
+	 */
+	private void sync(@NotNull FileChannel written, long end) throws IOException {
+		if (!durable) return;
+
+		synchronized (syncLock) {
+			if (syncedChannel == written && syncedLength >= end) return;
+
+			FileChannel target;
+			long length;
+			synchronized (this) {
+				target = channel;
+				length = target.size();
+			}
+			// Compacting and closing both fsync the records they replace
+			if (target != written) return;
+
+			try {
+				target.force(false);
+			} catch (IOException e) {
+				if (!target.isOpen()) return;
+				throw e;
+			}
+			syncedChannel = target;
+			syncedLength = length;
+		}
+	}
+
+	private void encode(@NotNull ByteBuffer buffer, byte type, @NotNull UUID note, long amount) {
+		int start = buffer.position();
+		buffer.put(type)
+				.putLong(note.getMostSignificantBits())
+				.putLong(note.getLeastSignificantBits())
+				.putLong(amount);
+
+		crc.reset();
+		crc.update(buffer.array(), buffer.arrayOffset() + start, RECORD_SIZE - Integer.BYTES);
+		buffer.putInt((int) crc.getValue());
+	}
+
+	private static void drain(@NotNull ByteBuffer buffer, @NotNull FileChannel target) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			target.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Rebuilds the index from the file.
+	 *
+	 * @return The length of the file up to the last intact record.
+	 */
+	private long load() throws IOException {
+		byte[] bytes = new byte[RECORD_SIZE];
+		ByteBuffer view = ByteBuffer.wrap(bytes);
+		long validLength = 0L;
+
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+			 DataInputStream data = new DataInputStream(in)) {
+			while (true) {
+				try {
+					data.readFully(bytes);
+				} catch (EOFException e) {
+					// Either a clean end of file or a record cut short by a crash
+					break;
+				}
+
+				crc.reset();
+				crc.update(bytes, 0, RECORD_SIZE - Integer.BYTES);
+				if (view.getInt(RECORD_SIZE - Integer.BYTES) != (int) crc.getValue()) {
+					logger.warning("Stopped loading " + file.getFileName() + " at a corrupt record after "
+							+ (validLength / RECORD_SIZE) + " records.");
+					break;
+				}
+
+				view.clear();
+				byte type = view.get();
+				UUID note = new UUID(view.getLong(), view.getLong());
+				long amount = view.getLong();
+
+				switch (type) {
+					case RECORD_ISSUED -> notes.put(note, amount);
+					case RECORD_REDEEMED -> {
+						notes.remove(note);
+						tombstones++;
+					}
+					default -> logger.warning("Skipped unknown record type " + type + " in " + file.getFileName() + ".");
+				}
+				validLength += RECORD_SIZE;
+			}
+		}
+		return validLength;
+	}
+}
@@ -0,0 +1,70 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+/**
+ * The binary backend: balances in a compact {@link BalanceSnapshot} (balances.dat), banknotes in banknotes.dat.
+ * <p>
+ * Loading is a single sequential read of a file a fraction the size of playerdata.yml, decoded straight
+ * into the balance table, which is sized from the snapshot header up front.
+ */
+public final class BinaryStorage extends FileStorage {
+	static final String FILE_NAME = "balances.dat";
+
+	private BinaryStorage(@NotNull Path snapshotFile, @NotNull Logger logger, boolean durable, @NotNull BanknoteStore banknotes) {
+		super(snapshotFile, logger, durable, banknotes);
+	}
+
+	/**
+	 * Opens the backend, importing banknotes.yml into banknotes.dat and playerdata.yml or accounts.dat
+	 * into balances.dat the first time.
+	 *
+	 * @param directory     The plugin data folder.
+	 * @param logger        The logger for load and migration warnings.
+	 * @param durable       Whether every write is fsynced before it returns.
+	 * @param minTombstones How many redeemed banknotes must pile up before compaction is worthwhile.
+	 * @return The opened backend.
+	 * @throws IOException If banknotes.dat could not be opened or the balances could not be imported.
+	 */
+	public static @NotNull BinaryStorage open(
+			@NotNull Path directory,
+			@NotNull Logger logger,
+			boolean durable,
+			int minTombstones
+	) throws IOException {
+		BanknoteStore banknotes = openBanknotes(directory, logger, durable, minTombstones);
+		BinaryStorage storage = new BinaryStorage(directory.resolve(FILE_NAME), logger, durable, banknotes);
+		try {
+			Path playerFile = directory.resolve("playerdata.yml");
+			storage.importIfMissing(playerFile, consumer -> YamlStorage.read(playerFile, logger, consumer));
+			Path accountFile = directory.resolve(MappedStorage.FILE_NAME);
+			storage.importIfMissing(accountFile, consumer -> AccountFile.read(accountFile, logger, consumer));
+		} catch (IOException e) {
+			banknotes.close();
+			throw e;
+		}
+		return storage;
+	}
+
+	@Override
+	public int expectedAccounts() throws IOException {
+		if (!Files.exists(balanceFile)) return 0;
+		return (int) Math.min(Integer.MAX_VALUE, BalanceSnapshot.count(balanceFile));
+	}
+
+	@Override
+	public void loadBalances(@NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		if (!Files.exists(balanceFile)) return;
+		BalanceSnapshot.read(balanceFile, consumer);
+	}
+
+	@Override
+	public @NotNull BalanceWriter replaceBalances() throws IOException {
+		return BalanceSnapshot.write(balanceFile, durable);
+	}
+}
@@ -0,0 +1,495 @@
+package co.xenastudios.economy.storage;
+
+import co.xenastudios.economy.jfr.FileWriteEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of balance changes.
+ * <p>
+ * Every change is written as a fixed-size record holding its type, a sequence number, a UUID
+ * and a value, followed by a CRC32 so a record torn by a crash is detected on replay.
+ * A transfer is written as a debit record immediately followed by its credit record in the same
+ * write, and is only replayed if both halves are intact.
+ * The journal is split into generations ({@code <name>.<generation>}): taking a snapshot rotates
+ * to a new generation, and once the snapshot is on disk every older generation can be discarded.
+ * <p>
+ * With {@link Durability#GROUP}, records are not written by the caller: a committer thread
+ * collects everything appended within a short window into one write and one fsync, and the
+ * futures returned by the append methods complete only once that commit is on disk.
+ */
+public final class DataJournal implements Closeable {
+	private static final byte RECORD_BALANCE = 1;
+	private static final byte RECORD_TRANSFER_DEBIT = 2;
+	private static final byte RECORD_TRANSFER_CREDIT = 3;
+
+	// type + sequence + uuid (2 longs) + value + crc
+	static final int RECORD_SIZE = 1 + Long.BYTES * 4 + Integer.BYTES;
+
+	private static final CompletableFuture<Void> COMMITTED = CompletableFuture.completedFuture(null);
+
+	/**
+	 * How journal records reach the disk.
+	 */
+	public enum Durability {
+		/**
+		 * Records are written straight to the operating system.
+		 * They survive the server process being killed, but not a power loss.
+		 */
+		NONE,
+		/**
+		 * Records are batched and fsynced by a committer thread.
+		 * They survive a power loss once their commit completes.
+		 */
+		GROUP;
+
+		/**
+		 * Parses a durability mode from its config name, falling back to {@link #NONE}.
+		 *
+		 * @param name The config value.
+		 * @return The matching durability mode.
+		 */
+		public static @NotNull Durability fromConfig(@NotNull String name) {
+			try {
+				return valueOf(name.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				return NONE;
+			}
+		}
+	}
+
+	/**
+	 * Receives journaled changes on replay, oldest first.
+	 */
+	public interface Replay {
+		void balance(@NotNull UUID account, long balance);
+	}
+
+	private final Path directory;
+	private final String name;
+	private final Logger logger;
+	private final Durability durability;
+	private final long windowNanos;
+	private final int maxBatch;
+
+	// Held while writing to the channel or switching generations, always before this journal's monitor
+	private final Object ioLock = new Object();
+	private final CRC32 crc = new CRC32();
+
+	// Durability.NONE: the record (or transfer record pair) written by the caller
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE * 2);
+
+	// Durability.GROUP: records waiting for the next commit, and the buffer of the commit in progress
+	private ByteBuffer pending;
+	private ByteBuffer spare;
+	private int pendingRecords;
+	private CompletableFuture<Void> pendingCommit;
+	private Thread committer;
+
+	private FileChannel channel;
+	private long generation;
+	private long sequence;
+	private boolean closed;
+
+	private DataJournal(
+			@NotNull Path directory,
+			@NotNull String name,
+			@NotNull Logger logger,
+			@NotNull Durability durability,
+			long windowMillis,
+			int maxBatch
+	) {
+		this.directory = directory;
+		this.name = name;
+		this.logger = logger;
+		this.durability = durability;
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, windowMillis));
+		this.maxBatch = Math.max(1, maxBatch);
+	}
+
+	/**
+	 * Opens the journal, replaying every existing generation in order before starting a new one.
+	 *
+	 * @param directory    The directory holding the journal files.
+	 * @param name         The base file name of the journal.
+	 * @param logger       The logger for replay warnings.
+	 * @param durability   How records reach the disk.
+	 * @param windowMillis How long a group commit waits for more records after the first one arrives.
+	 * @param maxBatch     How many records a group commit collects before committing early.
+	 * @param replay       Receives each replayed change, oldest first.
+	 * @return The opened journal.
+	 * @throws IOException If the journal could not be read or created.
+	 */
+	public static @NotNull DataJournal open(
+			@NotNull Path directory,
+			@NotNull String name,
+			@NotNull Logger logger,
+			@NotNull Durability durability,
+			long windowMillis,
+			int maxBatch,
+			@NotNull Replay replay
+	) throws IOException {
+		DataJournal journal = new DataJournal(directory, name, logger, durability, windowMillis, maxBatch);
+		Files.createDirectories(directory);
+
+		long lastGeneration = 0;
+		for (long existing : journal.listGenerations()) {
+			journal.replay(existing, replay);
+			lastGeneration = existing;
+		}
+		journal.openGeneration(lastGeneration + 1);
+
+		if (durability == Durability.GROUP) {
+			journal.pending = ByteBuffer.allocate(journal.maxBatch * RECORD_SIZE);
+			journal.spare = ByteBuffer.allocate(journal.maxBatch * RECORD_SIZE);
+			journal.committer = new Thread(journal::runCommitter, "Economy-JournalCommitter");
+			journal.committer.setDaemon(true);
+			journal.committer.start();
+		}
+		return journal;
+	}
+
+	/**
+	 * Appends a balance change.
+	 *
+	 * @param account The account UUID.
+	 * @param balance The new balance in minor units.
+	 * @return A future completed once the change is committed, or failed if it could not be written.
+	 */
+	public @NotNull CompletableFuture<Void> appendBalance(@NotNull UUID account, long balance) {
+		return append(RECORD_BALANCE, account, balance);
+	}
+
+	/**
+	 * Appends both sides of a transfer as one change, so replay never applies only one of them.
+	 *
+	 * @param from        The account the money left.
+	 * @param fromBalance The sending account's new balance in minor units.
+	 * @param to          The account the money went to.
+	 * @param toBalance   The receiving account's new balance in minor units.
+	 * @return A future completed once the change is committed, or failed if it could not be written.
+	 */
+	public @NotNull CompletableFuture<Void> appendTransfer(
+			@NotNull UUID from,
+			long fromBalance,
+			@NotNull UUID to,
+			long toBalance
+	) {
+		return append(RECORD_TRANSFER_DEBIT, from, fromBalance, RECORD_TRANSFER_CREDIT, to, toBalance);
+	}
+
+	private @NotNull CompletableFuture<Void> append(byte type, @NotNull UUID uuid, long value) {
+		return append(type, uuid, value, (byte) 0, null, 0L);
+	}
+
+	/**
+	 * Appends a record, and optionally a second one that must reach the disk in the same write.
+	 */
+	private synchronized @NotNull CompletableFuture<Void> append(
+			byte type,
+			@NotNull UUID uuid,
+			long value,
+			byte pairedType,
+			@Nullable UUID pairedUuid,
+			long pairedValue
+	) {
+		if (closed) {
+			return CompletableFuture.failedFuture(new IOException("Journal is closed"));
+		}
+
+		int records = pairedUuid == null ? 1 : 2;
+		if (durability == Durability.NONE) {
+			record.clear();
+			encode(record, type, uuid, value);
+			if (pairedUuid != null) {
+				encode(record, pairedType, pairedUuid, pairedValue);
+			}
+			record.flip();
+			try {
+				while (record.hasRemaining()) {
+					channel.write(record);
+				}
+			} catch (IOException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+			return COMMITTED;
+		}
+
+		if (pending.remaining() < RECORD_SIZE * records) {
+			ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+			grown.put(pending.flip());
+			pending = grown;
+		}
+		encode(pending, type, uuid, value);
+		if (pairedUuid != null) {
+			encode(pending, pairedType, pairedUuid, pairedValue);
+		}
+
+		if (pendingCommit == null) {
+			pendingCommit = new CompletableFuture<>();
+		}
+		int previous = pendingRecords;
+		pendingRecords += records;
+		if (previous == 0 || (previous < maxBatch && pendingRecords >= maxBatch)) {
+			notifyAll();
+		}
+		return pendingCommit;
+	}
+
+	private void encode(@NotNull ByteBuffer buffer, byte type, @NotNull UUID uuid, long value) {
+		int start = buffer.position();
+		buffer.put(type)
+				.putLong(++sequence)
+				.putLong(uuid.getMostSignificantBits())
+				.putLong(uuid.getLeastSignificantBits())
+				.putLong(value);
+
+		crc.reset();
+		crc.update(buffer.array(), buffer.arrayOffset() + start, RECORD_SIZE - Integer.BYTES);
+		buffer.putInt((int) crc.getValue());
+	}
+
+	/**
+	 * Closes the current generation and starts a new one, committing any pending records first.
+	 * Must be called atomically with taking the snapshot the closed generations will be folded into.
+	 *
+	 * @return The generation that was closed.
+	 * @throws IOException If the new generation could not be created.
+	 */
+	public long rotate() throws IOException {
+		synchronized (ioLock) {
+			commitPending();
+			synchronized (this) {
+				long closedGeneration = generation;
+				channel.close();
+				openGeneration(closedGeneration + 1);
+				return closedGeneration;
+			}
+		}
+	}
+
+	/**
+	 * Deletes every generation up to and including the given one,
+	 * once a snapshot covering them has been saved.
+	 *
+	 * @param upTo The last generation covered by the saved snapshot.
+	 * @throws IOException If a journal file could not be deleted.
+	 */
+	public synchronized void discard(long upTo) throws IOException {
+		for (long existing : listGenerations()) {
+			if (existing > upTo || existing == generation) break;
+			Files.deleteIfExists(file(existing));
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (ioLock) {
+			synchronized (this) {
+				if (closed) return;
+				closed = true;
+				notifyAll();
+			}
+
+			commitPending();
+
+			synchronized (this) {
+				boolean empty = channel.size() == 0;
+				channel.close();
+				if (empty) {
+					Files.deleteIfExists(file(generation));
+				}
+			}
+		}
+
+		if (committer != null) {
+			try {
+				committer.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void runCommitter() {
+		while (true) {
+			synchronized (this) {
+				try {
+					while (pendingRecords == 0 && !closed) {
+						wait();
+					}
+					if (pendingRecords == 0) return;
+
+					// Give concurrent transactions a chance to join this commit
+					long deadline = System.nanoTime() + windowNanos;
+					long remaining;
+					while (pendingRecords < maxBatch && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+						TimeUnit.NANOSECONDS.timedWait(this, remaining);
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+
+			synchronized (ioLock) {
+				commitPending();
+			}
+		}
+	}
+
+	/**
+	 * Writes and fsyncs every pending record as one batch. The caller must hold {@link #ioLock}.
+	 */
+	private void commitPending() {
+		ByteBuffer batch;
+		CompletableFuture<Void> commit;
+		FileChannel target;
+		synchronized (this) {
+			if (pendingCommit == null) return;
+			batch = pending;
+			pending = spare;
+			spare = batch;
+			commit = pendingCommit;
+			pendingCommit = null;
+			pendingRecords = 0;
+			target = channel;
+		}
+
+		FileWriteEvent event = new FileWriteEvent();
+		event.begin();
+		try {
+			batch.flip();
+			long bytes = batch.remaining();
+			while (batch.hasRemaining()) {
+				target.write(batch);
+			}
+			long forcing = System.nanoTime();
+			target.force(false);
+			long forceTime = System.nanoTime() - forcing;
+			commit.complete(null);
+			event.commit(name, bytes, true, forceTime);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Failed to commit journal records:", e);
+			commit.completeExceptionally(e);
+		} finally {
+			batch.clear();
+		}
+	}
+
+	private void openGeneration(long generation) throws IOException {
+		this.generation = generation;
+		this.channel = FileChannel.open(
+				file(generation),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND
+		);
+	}
+
+	private void replay(long generation, @NotNull Replay replay) {
+		Path file = file(generation);
+		byte[] bytes = new byte[RECORD_SIZE];
+		ByteBuffer view = ByteBuffer.wrap(bytes);
+		int replayed = 0;
+
+		// The debit half of a transfer, held back until its credit half is read
+		UUID debitAccount = null;
+		long debitBalance = 0L;
+
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+			 DataInputStream data = new DataInputStream(in)) {
+			while (true) {
+				try {
+					data.readFully(bytes);
+				} catch (EOFException e) {
+					// Either a clean end of file or a record cut short by a crash
+					break;
+				}
+
+				crc.reset();
+				crc.update(bytes, 0, RECORD_SIZE - Integer.BYTES);
+				if (view.getInt(RECORD_SIZE - Integer.BYTES) != (int) crc.getValue()) {
+					logger.warning("Stopped replaying " + file.getFileName() + " at a corrupt record after "
+							+ replayed + " changes.");
+					break;
+				}
+
+				view.clear();
+				byte type = view.get();
+				sequence = Math.max(sequence, view.getLong());
+				UUID uuid = new UUID(view.getLong(), view.getLong());
+				long value = view.getLong();
+
+				switch (type) {
+					case RECORD_BALANCE -> replay.balance(uuid, value);
+					case RECORD_TRANSFER_DEBIT -> {
+						debitAccount = uuid;
+						debitBalance = value;
+					}
+					case RECORD_TRANSFER_CREDIT -> {
+						if (debitAccount != null) {
+							replay.balance(debitAccount, debitBalance);
+							replay.balance(uuid, value);
+							debitAccount = null;
+						}
+					}
+					default -> logger.warning("Skipped unknown record type " + type + " in " + file.getFileName() + ".");
+				}
+				replayed++;
+			}
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Failed to replay " + file.getFileName() + ":", e);
+		}
+
+		if (debitAccount != null) {
+			logger.warning("Dropped a transfer cut short at the end of " + file.getFileName() + ".");
+		}
+
+		if (replayed > 0) {
+			logger.info("Replayed " + replayed + " changes from " + file.getFileName() + ".");
+		}
+	}
+
+	private @NotNull List<Long> listGenerations() throws IOException {
+		List<Long> generations = new ArrayList<>();
+		String prefix = name + ".";
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+			for (Path path : stream) {
+				String suffix = path.getFileName().toString().substring(prefix.length());
+				try {
+					generations.add(Long.parseLong(suffix));
+				} catch (NumberFormatException ignored) {
+					// Not a journal generation (e.g. a temporary file)
+				}
+			}
+		}
+		generations.sort(null);
+		return generations;
+	}
+
+	private @NotNull Path file(long generation) {
+		return directory.resolve(name + "." + generation);
+	}
+}
@@ -0,0 +1,204 @@
+package co.xenastudios.economy.storage;
+
+import co.xenastudios.economy.utilities.MoneyUtility;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * The parts shared by the backends that keep balances in a single file in the data folder:
+ * banknotes in a {@link BanknoteStore} (banknotes.dat), and whole-file balance saves.
+ * <p>
+ * Unless a backend updates it in place, the balance file is rewritten whole by every save, so the
+ * changed-account set is ignored. It is written beside the old file and moved over it, so a crash
+ * mid-write never leaves a truncated file.
+ */
+abstract class FileStorage implements StorageBackend {
+	protected final Path balanceFile;
+	protected final Logger logger;
+	protected final boolean durable;
+	private final BanknoteStore banknotes;
+
+	/**
+	 * Reads every account from some source.
+	 */
+	@FunctionalInterface
+	protected interface BalanceSource {
+		void read(@NotNull BalanceTable.EntryConsumer consumer) throws IOException;
+	}
+
+	protected FileStorage(@NotNull Path balanceFile, @NotNull Logger logger, boolean durable, @NotNull BanknoteStore banknotes) {
+		this.balanceFile = balanceFile;
+		this.logger = logger;
+		this.durable = durable;
+		this.banknotes = banknotes;
+	}
+
+	/**
+	 * Opens banknotes.dat, importing banknotes.yml into it while that file is still there.
+	 * The import is one synced write that skips notes already stored, and banknotes.yml is only moved
+	 * aside after it, so an import cut short by a crash or an error is finished by the next start.
+	 */
+	protected static @NotNull BanknoteStore openBanknotes(
+			@NotNull Path directory,
+			@NotNull Logger logger,
+			boolean durable,
+			int minTombstones
+	) throws IOException {
+		BanknoteStore banknotes = BanknoteStore.open(directory.resolve("banknotes.dat"), logger, durable, minTombstones);
+
+		Path legacyFile = directory.resolve("banknotes.yml");
+		if (!Files.exists(legacyFile)) return banknotes;
+
+		try {
+			YamlConfiguration legacyConfig = YamlConfiguration.loadConfiguration(legacyFile.toFile());
+			Map<UUID, Long> legacyNotes = new HashMap<>();
+			for (String key : legacyConfig.getKeys(false)) {
+				try {
+					legacyNotes.put(UUID.fromString(key), MoneyUtility.toMinor(legacyConfig.getDouble(key)));
+				} catch (IllegalArgumentException e) {
+					logger.warning("Skipping invalid banknote '" + key + "' in banknotes.yml.");
+				}
+			}
+			int imported = banknotes.importAll(legacyNotes);
+
+			// Keep the old file around, but out of the way of a second import
+			Files.move(legacyFile, directory.resolve("banknotes.yml.migrated"), StandardCopyOption.REPLACE_EXISTING);
+			logger.info("Migrated " + imported + " banknotes from banknotes.yml to banknotes.dat.");
+		} catch (IOException e) {
+			// Serving without the notes that are left would make them unredeemable
+			try {
+				banknotes.close();
+			} catch (IOException closeFailure) {
+				e.addSuppressed(closeFailure);
+			}
+			throw new IOException("Failed to migrate banknotes.yml", e);
+		}
+		return banknotes;
+	}
+
+	/**
+	 * Imports another file backend's balance file the first time this one starts without its own,
+	 * so switching between them by config loses nothing. The other file is then moved aside, so it
+	 * is never imported twice and a later switch back imports this backend's file instead.
+	 *
+	 * @param otherFile The other backend's balance file.
+	 * @param source    Reads the other file.
+	 * @throws IOException If the other file could not be imported.
+	 */
+	protected final void importIfMissing(@NotNull Path otherFile, @NotNull BalanceSource source) throws IOException {
+		if (Files.exists(balanceFile)) return;
+		importFrom(otherFile, source);
+	}
+
+	/**
+	 * Imports another file backend's balance file, if there is one, replacing this backend's balances,
+	 * and moves the other file aside.
+	 *
+	 * @param otherFile The other backend's balance file.
+	 * @param source    Reads the other file.
+	 * @return true if the other file existed and was imported
+	 * @throws IOException If the other file could not be imported.
+	 */
+	protected final boolean importFrom(@NotNull Path otherFile, @NotNull BalanceSource source) throws IOException {
+		if (!Files.exists(otherFile)) return false;
+
+		long count = replaceWith(source);
+		Files.move(otherFile, otherFile.resolveSibling(otherFile.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+		logger.info("Imported " + count + " accounts from " + otherFile.getFileName() + " into " + balanceFile.getFileName() + ".");
+		return true;
+	}
+
+	/**
+	 * Streams every account from a source into a new balance file, replacing the old one once all are written.
+	 *
+	 * @return The number of accounts written.
+	 */
+	protected final long replaceWith(@NotNull BalanceSource source) throws IOException {
+		long[] count = {0L};
+		try (BalanceWriter writer = replaceBalances()) {
+			try {
+				source.read((mostSigBits, leastSigBits, balance) -> {
+					try {
+						writer.write(mostSigBits, leastSigBits, balance);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					count[0]++;
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			writer.commit();
+		}
+		return count[0];
+	}
+
+	@Override
+	public @NotNull String describe() {
+		return balanceFile.getFileName().toString();
+	}
+
+	@Override
+	public @Nullable Long loadBalance(@NotNull UUID account) throws IOException {
+		// The file has no index, so a single account costs a full read
+		long[] found = {0L, 0L};
+		long msb = account.getMostSignificantBits();
+		long lsb = account.getLeastSignificantBits();
+		loadBalances((mostSigBits, leastSigBits, balance) -> {
+			if (mostSigBits == msb && leastSigBits == lsb) {
+				found[0] = 1L;
+				found[1] = balance;
+			}
+		});
+		return found[0] != 0L ? found[1] : null;
+	}
+
+	@Override
+	public void saveBalances(@NotNull BalanceTable snapshot, @NotNull Collection<UUID> changed) throws IOException {
+		replaceWith(snapshot::forEach);
+	}
+
+	@Override
+	public void issueBanknotes(@NotNull Collection<UUID> notes, long amount) throws IOException {
+		banknotes.issueAll(notes, amount);
+	}
+
+	@Override
+	public @Nullable Long getBanknote(@NotNull UUID note) {
+		return banknotes.get(note);
+	}
+
+	@Override
+	public @NotNull Map<UUID, Long> redeemBanknotes(@NotNull Collection<UUID> notes) throws IOException {
+		return banknotes.redeemAll(notes);
+	}
+
+	@Override
+	public void forEachBanknote(@NotNull BanknoteConsumer consumer) {
+		banknotes.forEach(consumer::accept);
+	}
+
+	@Override
+	public void compact() throws IOException {
+		if (banknotes.needsCompaction()) {
+			banknotes.compact();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		banknotes.close();
+	}
+}
@@ -0,0 +1,374 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The file formats of one segment of the {@link TransactionLog}.
+ * <p>
+ * A segment (<i>n</i>.log) is a 16-byte header followed by 64-byte records, appended in the order
+ * they happened: the time, the {@link TransactionLog.Type} id, the account, the other party, the
+ * change in minor units and the balance after it. Once full, a segment is sealed by writing its
+ * index (<i>n</i>.idx): every account in it, sorted, with the numbers of its records, so an account's
+ * records are found with a binary search and read one by one instead of scanning the segment.
+ */
+final class HistorySegment {
+	static final int MAGIC = 0x45434F48; // "ECOH"
+	static final int INDEX_MAGIC = 0x45434F49; // "ECOI"
+	static final int VERSION = 1;
+
+	// magic + version + creation time
+	static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES;
+	// time, type + padding, account, other party, amount, balance
+	static final int RECORD_SIZE = 64;
+	private static final int TYPE = Long.BYTES;
+	private static final int ACCOUNT = Long.BYTES * 2;
+
+	// magic + version + account count + record count, then per account: UUID, first position, count
+	private static final int INDEX_HEADER_SIZE = Integer.BYTES * 4;
+	private static final int INDEX_ENTRY_SIZE = Long.BYTES * 2 + Integer.BYTES * 2;
+
+	// Records read at a time when scanning an unsealed segment backwards
+	private static final int SCAN_BATCH = 1024;
+
+	private HistorySegment() {
+		throw new UnsupportedOperationException("Utility class");
+	}
+
+	/**
+	 * A page of one account's transactions being collected, newest first, across segments.
+	 */
+	static final class Query {
+		private final long mostSigBits;
+		private final long leastSigBits;
+		private int skip;
+		private final int limit;
+		private final List<TransactionLog.Transaction> results = new ArrayList<>();
+
+		Query(@NotNull UUID account, int skip, int limit) {
+			this.mostSigBits = account.getMostSignificantBits();
+			this.leastSigBits = account.getLeastSignificantBits();
+			this.skip = skip;
+			this.limit = limit;
+		}
+
+		boolean isDone() {
+			return results.size() >= limit;
+		}
+
+		@NotNull List<TransactionLog.Transaction> results() {
+			return results;
+		}
+
+		/**
+		 * Takes the record at the buffer's position if it is past the skipped ones.
+		 */
+		private void accept(@NotNull ByteBuffer record) {
+			if (skip > 0) {
+				skip--;
+				return;
+			}
+			TransactionLog.Transaction transaction = decode(record);
+			if (transaction != null) {
+				results.add(transaction);
+			}
+		}
+	}
+
+	static @NotNull Path dataFile(@NotNull Path directory, long number) {
+		return directory.resolve(String.format("%010d.log", number));
+	}
+
+	static @NotNull Path indexFile(@NotNull Path directory, long number) {
+		return directory.resolve(String.format("%010d.idx", number));
+	}
+
+	/**
+	 * Creates an empty segment.
+	 *
+	 * @param file The segment file.
+	 * @return A channel positioned for appending.
+	 * @throws IOException If the file could not be created.
+	 */
+	static @NotNull FileChannel create(@NotNull Path file) throws IOException {
+		FileChannel channel = FileChannel.open(
+				file,
+				StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE
+		);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+					.putInt(MAGIC)
+					.putInt(VERSION)
+					.putLong(System.currentTimeMillis())
+					.flip();
+			writeFully(channel, header, 0L);
+			channel.position(HEADER_SIZE);
+			return channel;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens an unsealed segment for appending, dropping a record left half-written by a crash.
+	 *
+	 * @param file The segment file.
+	 * @return A channel positioned for appending.
+	 * @throws IOException If the file could not be read or is not a segment.
+	 */
+	static @NotNull FileChannel reopen(@NotNull Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			checkHeader(channel, file);
+			long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+			long end = HEADER_SIZE + records * RECORD_SIZE;
+			channel.truncate(end);
+			channel.position(end);
+			return channel;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Seals a segment by writing its index next to it.
+	 *
+	 * @param file  The segment file.
+	 * @param index The index file to write.
+	 * @throws IOException If the segment could not be read or the index written.
+	 */
+	static void writeIndex(@NotNull Path file, @NotNull Path index) throws IOException {
+		long[] accounts;
+		int records;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			checkHeader(channel, file);
+			records = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+			accounts = new long[records * 2];
+
+			ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * SCAN_BATCH);
+			long position = HEADER_SIZE;
+			for (int record = 0; record < records; ) {
+				int batch = Math.min(SCAN_BATCH, records - record);
+				buffer.clear().limit(batch * RECORD_SIZE);
+				readFully(channel, buffer, position);
+				for (int i = 0; i < batch; i++, record++) {
+					accounts[record * 2] = buffer.getLong(i * RECORD_SIZE + ACCOUNT);
+					accounts[record * 2 + 1] = buffer.getLong(i * RECORD_SIZE + ACCOUNT + Long.BYTES);
+				}
+				position += (long) batch * RECORD_SIZE;
+			}
+		}
+
+		// Record numbers grouped by account, in the order they were written within each
+		Integer[] order = new Integer[records];
+		Arrays.setAll(order, i -> i);
+		Arrays.sort(order, Comparator
+				.<Integer>comparingLong(i -> accounts[i * 2])
+				.thenComparingLong(i -> accounts[i * 2 + 1])
+				.thenComparingInt(i -> i));
+
+		int accountCount = 0;
+		for (int i = 0; i < records; i++) {
+			if (i == 0 || !sameAccount(accounts, order[i], order[i - 1])) {
+				accountCount++;
+			}
+		}
+
+		ByteBuffer out = ByteBuffer.allocate(INDEX_HEADER_SIZE + accountCount * INDEX_ENTRY_SIZE + records * Integer.BYTES)
+				.putInt(INDEX_MAGIC)
+				.putInt(VERSION)
+				.putInt(accountCount)
+				.putInt(records);
+		for (int i = 0; i < records; ) {
+			int first = i;
+			int record = order[i];
+			while (i < records && sameAccount(accounts, order[i], record)) {
+				i++;
+			}
+			out.putLong(accounts[record * 2]).putLong(accounts[record * 2 + 1]).putInt(first).putInt(i - first);
+		}
+		for (int record : order) {
+			out.putInt(record);
+		}
+		out.flip();
+
+		// Written aside and moved into place, so an index is either whole or missing
+		Path tempFile = index.resolveSibling(index.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(
+				tempFile,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		)) {
+			writeFully(channel, out, 0L);
+			channel.force(true);
+		}
+		Files.move(tempFile, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Collects an account's records from an unsealed segment by scanning it backwards.
+	 *
+	 * @param file  The segment file.
+	 * @param size  The segment's size in bytes, up to which records are complete.
+	 * @param query The page being collected.
+	 * @throws IOException If the segment could not be read.
+	 */
+	static void scan(@NotNull Path file, long size, @NotNull Query query) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * SCAN_BATCH);
+			long end = size;
+			while (end > HEADER_SIZE && !query.isDone()) {
+				int batch = (int) Math.min(SCAN_BATCH, (end - HEADER_SIZE) / RECORD_SIZE);
+				long start = end - (long) batch * RECORD_SIZE;
+				buffer.clear().limit(batch * RECORD_SIZE);
+				readFully(channel, buffer, start);
+
+				for (int i = batch - 1; i >= 0 && !query.isDone(); i--) {
+					int offset = i * RECORD_SIZE;
+					if (buffer.getLong(offset + ACCOUNT) == query.mostSigBits
+							&& buffer.getLong(offset + ACCOUNT + Long.BYTES) == query.leastSigBits) {
+						query.accept(buffer.slice(offset, RECORD_SIZE));
+					}
+				}
+				end = start;
+			}
+		}
+	}
+
+	/**
+	 * Collects an account's records from a sealed segment through its index.
+	 * Segments holding only skipped records are passed over without reading any record.
+	 *
+	 * @param file  The segment file.
+	 * @param index The segment's index file.
+	 * @param query The page being collected.
+	 * @throws IOException If either file could not be read.
+	 */
+	static void lookUp(@NotNull Path file, @NotNull Path index, @NotNull Query query) throws IOException {
+		int first;
+		int count;
+		int[] positions;
+		try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+			readFully(channel, header, 0L);
+			if (header.getInt(0) != INDEX_MAGIC || header.getInt(Integer.BYTES) != VERSION) {
+				throw new IOException("Not a transaction history index: " + index);
+			}
+			int accounts = header.getInt(Integer.BYTES * 2);
+			long positionsStart = INDEX_HEADER_SIZE + (long) accounts * INDEX_ENTRY_SIZE;
+
+			// Binary search for the account's entry
+			ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+			int low = 0;
+			int high = accounts - 1;
+			while (true) {
+				if (low > high) return;
+
+				int middle = (low + high) >>> 1;
+				entry.clear();
+				readFully(channel, entry, INDEX_HEADER_SIZE + (long) middle * INDEX_ENTRY_SIZE);
+				int comparison = compare(entry.getLong(0), entry.getLong(Long.BYTES), query.mostSigBits, query.leastSigBits);
+				if (comparison < 0) {
+					low = middle + 1;
+				} else if (comparison > 0) {
+					high = middle - 1;
+				} else {
+					first = entry.getInt(Long.BYTES * 2);
+					count = entry.getInt(Long.BYTES * 2 + Integer.BYTES);
+					break;
+				}
+			}
+
+			if (query.skip >= count) {
+				query.skip -= count;
+				return;
+			}
+
+			// Only the positions of the records on the page, newest first
+			int newest = count - 1 - query.skip;
+			int oldest = Math.max(0, newest - (query.limit - query.results.size()) + 1);
+			query.skip = 0;
+			ByteBuffer buffer = ByteBuffer.allocate((newest - oldest + 1) * Integer.BYTES);
+			readFully(channel, buffer, positionsStart + (long) (first + oldest) * Integer.BYTES);
+			positions = new int[newest - oldest + 1];
+			buffer.flip().asIntBuffer().get(positions);
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+			for (int i = positions.length - 1; i >= 0; i--) {
+				record.clear();
+				readFully(channel, record, HEADER_SIZE + (long) positions[i] * RECORD_SIZE);
+				query.accept(record.flip());
+			}
+		}
+	}
+
+	/**
+	 * @return The transaction in a record, or null if its type is unknown.
+	 */
+	private static TransactionLog.Transaction decode(@NotNull ByteBuffer record) {
+		TransactionLog.Type type = TransactionLog.Type.fromId(record.getInt(TYPE));
+		if (type == null) return null;
+
+		long otherMostSigBits = record.getLong(ACCOUNT + Long.BYTES * 2);
+		long otherLeastSigBits = record.getLong(ACCOUNT + Long.BYTES * 3);
+		return new TransactionLog.Transaction(
+				record.getLong(0),
+				type,
+				new UUID(record.getLong(ACCOUNT), record.getLong(ACCOUNT + Long.BYTES)),
+				(otherMostSigBits | otherLeastSigBits) != 0 ? new UUID(otherMostSigBits, otherLeastSigBits) : null,
+				record.getLong(ACCOUNT + Long.BYTES * 4),
+				record.getLong(ACCOUNT + Long.BYTES * 5)
+		);
+	}
+
+	private static boolean sameAccount(long @NotNull [] accounts, int a, int b) {
+		return accounts[a * 2] == accounts[b * 2] && accounts[a * 2 + 1] == accounts[b * 2 + 1];
+	}
+
+	private static int compare(long mostSigBits, long leastSigBits, long otherMostSigBits, long otherLeastSigBits) {
+		int comparison = Long.compare(mostSigBits, otherMostSigBits);
+		return comparison != 0 ? comparison : Long.compare(leastSigBits, otherLeastSigBits);
+	}
+
+	private static void checkHeader(@NotNull FileChannel channel, @NotNull Path file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(channel, header, 0L);
+		if (header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION) {
+			throw new IOException("Not a transaction history segment: " + file);
+		}
+	}
+
+	static void writeFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) throw new EOFException("Unexpected end of " + channel);
+			position += read;
+		}
+	}
+}
@@ -0,0 +1,458 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Every account with money, ranked by balance, highest first, and kept up to date change by change.
+ * <p>
+ * The ranking is a treap: a binary search tree on balance and then UUID, balanced by random node
+ * priorities, where each node also counts the nodes below it. An account's rank and the accounts at a
+ * given rank are both found by one descent from the root, in O(log n), without any scan or sort.
+ * Nodes live in parallel primitive arrays and are found by account through an open-addressed index
+ * of node numbers, so each ranked account costs about 50 bytes.
+ * <p>
+ * Changes do not touch the tree when they are made: they only record the account's latest balance,
+ * and are applied under the lock by the next query, or once enough are waiting, so changes on
+ * different threads never wait on each other or on the tree.
+ */
+public final class Leaderboard {
+	private static final int NIL = 0;
+	private static final int MIN_NODES = 1024;
+	// Pending changes that make the recording thread apply them, if the tree is free
+	private static final int MAX_PENDING = 4096;
+
+	/**
+	 * A ranked account.
+	 *
+	 * @param rank    The account's rank, starting at 1.
+	 * @param account The account UUID.
+	 * @param balance The balance in minor units.
+	 */
+	public record Entry(int rank, @NotNull UUID account, long balance) {
+	}
+
+	/**
+	 * Reads every account to rank from some source.
+	 */
+	@FunctionalInterface
+	public interface Source {
+		void read(@NotNull BalanceTable.EntryConsumer consumer) throws IOException;
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+	// The latest balance of each account changed since the tree was last brought up to date
+	private final Map<UUID, Long> pending = new ConcurrentHashMap<>();
+	private volatile boolean ready;
+
+	// Guarded by the lock; node 0 is the empty tree, with a size of 0
+	private long[] balances;
+	private long[] mostSigBits;
+	private long[] leastSigBits;
+	private int[] left;
+	private int[] right;
+	private int[] sizes;
+	private int[] priorities;
+	private int nodeCount;
+	private int freeList = NIL;
+	private int root = NIL;
+	private int seed = 0x9E3779B9;
+
+	// Node numbers by account, 0 marking an empty slot
+	private int[] index;
+	private int indexed;
+
+	// The two halves left by the last split
+	private int splitBefore;
+	private int splitAfter;
+
+	public Leaderboard() {
+		clear();
+	}
+
+	/**
+	 * @return true once the first {@link #rebuild} is done
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Records an account's new balance. Safe to call from any thread; the caller must hold the
+	 * account's lock, so that the latest of two changes to one account is the one recorded last.
+	 *
+	 * @param account The account UUID.
+	 * @param balance The new balance in minor units.
+	 */
+	public void update(@NotNull UUID account, long balance) {
+		pending.put(account, balance);
+		if (ready && pending.size() > MAX_PENDING && lock.tryLock()) {
+			try {
+				applyPending();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Replaces the ranking with every account from a source, then applies the changes recorded meanwhile.
+	 * Accounts read more than once keep the last balance read. Queries find the leaderboard not
+	 * ready until this is done.
+	 *
+	 * @param source Reads the accounts to rank.
+	 * @throws IOException If the source could not be read; the leaderboard then stays not ready.
+	 */
+	public void rebuild(@NotNull Source source) throws IOException {
+		lock.lock();
+		try {
+			ready = false;
+			clear();
+			source.read(this::set);
+			applyPending();
+			ready = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets an account's rank.
+	 *
+	 * @param account The account UUID.
+	 * @return The rank, starting at 1, or 0 if the account has no money or the leaderboard is not ready.
+	 */
+	public int rank(@NotNull UUID account) {
+		if (!ready) return 0;
+
+		lock.lock();
+		try {
+			applyPending();
+			int node = find(account.getMostSignificantBits(), account.getLeastSignificantBits());
+			if (node == NIL) return 0;
+
+			// Every node left of the path down to the account ranks before it
+			int before = sizes[left[node]];
+			for (int t = root; t != node; ) {
+				if (before(node, t)) {
+					t = left[t];
+				} else {
+					before += sizes[left[t]] + 1;
+					t = right[t];
+				}
+			}
+			return before + 1;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets a range of the ranking.
+	 *
+	 * @param from  The first rank, starting at 1.
+	 * @param count The maximum number of entries.
+	 * @return The entries, in rank order; empty if the range is past the end or the leaderboard is not ready.
+	 */
+	public @NotNull List<Entry> range(int from, int count) {
+		if (!ready || from < 1 || count <= 0) return List.of();
+
+		lock.lock();
+		try {
+			applyPending();
+			int k = from - 1;
+			if (k >= sizes[root]) return List.of();
+
+			// Descend to the first node; the stack keeps the nodes ranked after it on the way down
+			int[] stack = new int[16];
+			int depth = 0;
+			for (int t = root; t != NIL; ) {
+				int leftSize = sizes[left[t]];
+				if (k < leftSize) {
+					stack = push(stack, depth++, t);
+					t = left[t];
+				} else if (k == leftSize) {
+					stack = push(stack, depth++, t);
+					break;
+				} else {
+					k -= leftSize + 1;
+					t = right[t];
+				}
+			}
+
+			List<Entry> entries = new ArrayList<>(Math.min(count, sizes[root] - from + 1));
+			while (entries.size() < count && depth > 0) {
+				int node = stack[--depth];
+				entries.add(new Entry(
+						from + entries.size(),
+						new UUID(mostSigBits[node], leastSigBits[node]),
+						balances[node]
+				));
+				for (int t = right[node]; t != NIL; t = left[t]) {
+					stack = push(stack, depth++, t);
+				}
+			}
+			return entries;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The number of ranked accounts, or 0 if the leaderboard is not ready.
+	 */
+	public int size() {
+		if (!ready) return 0;
+
+		lock.lock();
+		try {
+			applyPending();
+			return sizes[root];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Applies the recorded changes to the tree. Called with the lock held.
+	 */
+	private void applyPending() {
+		for (Map.Entry<UUID, Long> change : pending.entrySet()) {
+			UUID account = change.getKey();
+			Long balance = change.getValue();
+			set(account.getMostSignificantBits(), account.getLeastSignificantBits(), balance);
+			// Left in place if the account changed again meanwhile, for the next call
+			pending.remove(account, balance);
+		}
+	}
+
+	/**
+	 * Ranks an account at a balance, or drops it from the ranking at zero.
+	 */
+	private void set(long mostSigBits, long leastSigBits, long balance) {
+		int node = find(mostSigBits, leastSigBits);
+		if (node != NIL) {
+			if (balances[node] == balance) return;
+			root = erase(root, node);
+			if (balance == 0L) {
+				unindex(node);
+				free(node);
+				return;
+			}
+		} else {
+			if (balance == 0L) return;
+			node = allocate(mostSigBits, leastSigBits);
+			index(node);
+		}
+
+		balances[node] = balance;
+		left[node] = NIL;
+		right[node] = NIL;
+		sizes[node] = 1;
+		root = insert(root, node);
+	}
+
+	/**
+	 * @return Whether node a ranks before node b: a higher balance, or the same balance and a lower UUID.
+	 */
+	private boolean before(int a, int b) {
+		if (balances[a] != balances[b]) return balances[a] > balances[b];
+		if (mostSigBits[a] != mostSigBits[b]) return Long.compareUnsigned(mostSigBits[a], mostSigBits[b]) < 0;
+		return Long.compareUnsigned(leastSigBits[a], leastSigBits[b]) < 0;
+	}
+
+	private int insert(int t, int node) {
+		if (t == NIL) return node;
+
+		if (priorities[node] > priorities[t]) {
+			split(t, node);
+			left[node] = splitBefore;
+			right[node] = splitAfter;
+			resize(node);
+			return node;
+		}
+		if (before(node, t)) {
+			left[t] = insert(left[t], node);
+		} else {
+			right[t] = insert(right[t], node);
+		}
+		sizes[t]++;
+		return t;
+	}
+
+	private int erase(int t, int node) {
+		if (t == node) return merge(left[t], right[t]);
+
+		if (before(node, t)) {
+			left[t] = erase(left[t], node);
+		} else {
+			right[t] = erase(right[t], node);
+		}
+		sizes[t]--;
+		return t;
+	}
+
+	/**
+	 * Splits a subtree into the nodes ranked before a node and those ranked after it,
+	 * left in {@link #splitBefore} and {@link #splitAfter}.
+	 */
+	private void split(int t, int node) {
+		if (t == NIL) {
+			splitBefore = NIL;
+			splitAfter = NIL;
+			return;
+		}
+
+		if (before(t, node)) {
+			split(right[t], node);
+			right[t] = splitBefore;
+			splitBefore = t;
+		} else {
+			split(left[t], node);
+			left[t] = splitAfter;
+			splitAfter = t;
+		}
+		resize(t);
+	}
+
+	/**
+	 * Joins two subtrees, every node of the first ranking before every node of the second.
+	 */
+	private int merge(int a, int b) {
+		if (a == NIL) return b;
+		if (b == NIL) return a;
+
+		if (priorities[a] > priorities[b]) {
+			right[a] = merge(right[a], b);
+			resize(a);
+			return a;
+		}
+		left[b] = merge(a, left[b]);
+		resize(b);
+		return b;
+	}
+
+	private void resize(int node) {
+		sizes[node] = sizes[left[node]] + sizes[right[node]] + 1;
+	}
+
+	private int allocate(long mostSigBits, long leastSigBits) {
+		int node;
+		if (freeList != NIL) {
+			// Freed nodes are chained through their left links
+			node = freeList;
+			freeList = left[node];
+		} else {
+			node = ++nodeCount;
+			if (node == balances.length) {
+				int capacity = balances.length * 2;
+				balances = Arrays.copyOf(balances, capacity);
+				this.mostSigBits = Arrays.copyOf(this.mostSigBits, capacity);
+				this.leastSigBits = Arrays.copyOf(this.leastSigBits, capacity);
+				left = Arrays.copyOf(left, capacity);
+				right = Arrays.copyOf(right, capacity);
+				sizes = Arrays.copyOf(sizes, capacity);
+				priorities = Arrays.copyOf(priorities, capacity);
+			}
+		}
+
+		this.mostSigBits[node] = mostSigBits;
+		this.leastSigBits[node] = leastSigBits;
+		// Xorshift, as the priorities only need to be unrelated to the ranking
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		priorities[node] = seed;
+		return node;
+	}
+
+	private void free(int node) {
+		left[node] = freeList;
+		freeList = node;
+	}
+
+	private int find(long mostSigBits, long leastSigBits) {
+		int mask = index.length - 1;
+		for (int slot = BalanceTable.hash(mostSigBits, leastSigBits) & mask; ; slot = (slot + 1) & mask) {
+			int node = index[slot];
+			if (node == NIL) return NIL;
+			if (this.mostSigBits[node] == mostSigBits && this.leastSigBits[node] == leastSigBits) return node;
+		}
+	}
+
+	private void index(int node) {
+		if (++indexed > index.length / 2) {
+			int[] oldIndex = index;
+			index = new int[oldIndex.length * 2];
+			for (int indexedNode : oldIndex) {
+				if (indexedNode != NIL) {
+					place(indexedNode);
+				}
+			}
+		}
+		place(node);
+	}
+
+	private void place(int node) {
+		int mask = index.length - 1;
+		int slot = BalanceTable.hash(mostSigBits[node], leastSigBits[node]) & mask;
+		while (index[slot] != NIL) {
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = node;
+	}
+
+	/**
+	 * Removes a node from the index, shifting later nodes of its probe chain back so none is cut off.
+	 */
+	private void unindex(int node) {
+		int mask = index.length - 1;
+		int hole = BalanceTable.hash(mostSigBits[node], leastSigBits[node]) & mask;
+		while (index[hole] != node) {
+			hole = (hole + 1) & mask;
+		}
+
+		for (int slot = (hole + 1) & mask; index[slot] != NIL; slot = (slot + 1) & mask) {
+			int home = BalanceTable.hash(mostSigBits[index[slot]], leastSigBits[index[slot]]) & mask;
+			// Move the node back unless its home lies cyclically after the hole, up to where it is now
+			boolean stays = hole <= slot ? hole < home && home <= slot : hole < home || home <= slot;
+			if (!stays) {
+				index[hole] = index[slot];
+				hole = slot;
+			}
+		}
+		index[hole] = NIL;
+		indexed--;
+	}
+
+	private void clear() {
+		balances = new long[MIN_NODES];
+		mostSigBits = new long[MIN_NODES];
+		leastSigBits = new long[MIN_NODES];
+		left = new int[MIN_NODES];
+		right = new int[MIN_NODES];
+		sizes = new int[MIN_NODES];
+		priorities = new int[MIN_NODES];
+		nodeCount = 0;
+		freeList = NIL;
+		root = NIL;
+		index = new int[MIN_NODES * 2];
+		indexed = 0;
+	}
+
+	private static int @NotNull [] push(int @NotNull [] stack, int depth, int node) {
+		if (depth == stack.length) {
+			stack = Arrays.copyOf(stack, depth * 2);
+		}
+		stack[depth] = node;
+		return stack;
+	}
+}
@@ -0,0 +1,121 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * The mapped backend: balances in an {@link AccountFile} (accounts.dat), banknotes in banknotes.dat.
+ * <p>
+ * Saves write only the changed accounts, each in place in the mapped file, so their cost follows the
+ * number of changes rather than the number of accounts, and a single account is read with a hash
+ * probe instead of a full scan. Opening maps the file without reading it.
+ */
+public final class MappedStorage extends FileStorage {
+	static final String FILE_NAME = "accounts.dat";
+
+	private final AccountFile accounts;
+
+	private MappedStorage(
+			@NotNull Path accountFile,
+			@NotNull Logger logger,
+			boolean durable,
+			@NotNull BanknoteStore banknotes,
+			@NotNull AccountFile accounts
+	) {
+		super(accountFile, logger, durable, banknotes);
+		this.accounts = accounts;
+	}
+
+	/**
+	 * Opens the backend, importing banknotes.yml into banknotes.dat and balances.dat or playerdata.yml
+	 * into accounts.dat the first time.
+	 *
+	 * @param directory     The plugin data folder.
+	 * @param logger        The logger for load and migration warnings.
+	 * @param durable       Whether every save is forced to disk before it returns.
+	 * @param minTombstones How many redeemed banknotes must pile up before compaction is worthwhile.
+	 * @return The opened backend.
+	 * @throws IOException If either file could not be opened or the balances could not be imported.
+	 */
+	public static @NotNull MappedStorage open(
+			@NotNull Path directory,
+			@NotNull Logger logger,
+			boolean durable,
+			int minTombstones
+	) throws IOException {
+		BanknoteStore banknotes = openBanknotes(directory, logger, durable, minTombstones);
+		AccountFile accounts = null;
+		try {
+			Path accountFile = directory.resolve(FILE_NAME);
+			accounts = AccountFile.open(accountFile, logger, durable);
+			MappedStorage storage = new MappedStorage(accountFile, logger, durable, banknotes, accounts);
+
+			// The file exists as soon as it is opened, so an empty one stands for a missing one
+			if (accounts.size() == 0) {
+				Path snapshotFile = directory.resolve(BinaryStorage.FILE_NAME);
+				Path playerFile = directory.resolve("playerdata.yml");
+				if (!storage.importFrom(snapshotFile, consumer -> BalanceSnapshot.read(snapshotFile, consumer))) {
+					storage.importFrom(playerFile, consumer -> YamlStorage.read(playerFile, logger, consumer));
+				}
+			}
+			return storage;
+		} catch (IOException e) {
+			if (accounts != null) {
+				accounts.close();
+			}
+			banknotes.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean isIncremental() {
+		return true;
+	}
+
+	@Override
+	public int expectedAccounts() {
+		return accounts.size();
+	}
+
+	@Override
+	public void loadBalances(@NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		accounts.forEach(consumer);
+	}
+
+	@Override
+	public @Nullable Long loadBalance(@NotNull UUID account) throws IOException {
+		return accounts.get(account);
+	}
+
+	@Override
+	public void saveBalances(@NotNull BalanceTable snapshot, @NotNull Collection<UUID> changed) throws IOException {
+		for (UUID account : changed) {
+			long mostSigBits = account.getMostSignificantBits();
+			long leastSigBits = account.getLeastSignificantBits();
+			// Changed accounts are never evicted from the table, so every one is in the snapshot
+			accounts.put(mostSigBits, leastSigBits, snapshot.get(mostSigBits, leastSigBits, 0L));
+		}
+		accounts.force();
+	}
+
+	@Override
+	public @NotNull BalanceWriter replaceBalances() throws IOException {
+		return accounts.replace();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			accounts.close();
+		} finally {
+			super.close();
+		}
+	}
+}
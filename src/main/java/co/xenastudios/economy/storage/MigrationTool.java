@@ -0,0 +1,104 @@
+package co.xenastudios.economy.storage;
+
+import co.xenastudios.economy.utilities.MoneyUtility;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Runs a {@link StorageMigration} from the command line, with the server stopped.
+ * <p>
+ * The file backends only need the plugin jar; the sqlite backend also needs the SQLite driver on the
+ * class path, and playerdata.yml files from older versions also need the server jar to be parsed:
+ * <pre>
+ * java -cp Economy.jar:sqlite-jdbc.jar co.xenastudios.economy.storage.MigrationTool yaml sqlite plugins/Economy
+ * </pre>
+ */
+public final class MigrationTool {
+	private static final String USAGE = "Usage: java -cp Economy.jar[:sqlite-jdbc.jar] "
+			+ MigrationTool.class.getName() + " <from> <to> [data folder] [sqlite file]";
+
+	private MigrationTool() {
+		throw new UnsupportedOperationException("Utility class");
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 2 || args.length > 4) {
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+
+		StorageBackend.Type from = StorageBackend.Type.fromConfig(args[0]);
+		StorageBackend.Type to = StorageBackend.Type.fromConfig(args[1]);
+		if (from == null || to == null || from == to) {
+			System.err.println("Backends must be two different ones of: binary, mapped, yaml, sqlite");
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+		if (from.sharesFilesWith(to)) {
+			System.err.println(from.configName() + " and " + to.configName() + " share banknotes.dat; "
+					+ "switch storage.backend and start the server, and the balances are imported");
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+
+		Path dataFolder = Path.of(args.length > 2 ? args[2] : "plugins/Economy");
+		String sqliteFile = args.length > 3 ? args[3] : "economy.db";
+		if (!Files.isDirectory(dataFolder)) {
+			System.err.println("Data folder " + dataFolder + " does not exist");
+			System.exit(2);
+			return;
+		}
+
+		Logger logger = Logger.getLogger("Economy");
+		try (StorageBackend source = open(from, dataFolder, sqliteFile, logger);
+			 StorageBackend target = open(to, dataFolder, sqliteFile, logger)) {
+			System.out.println("Migrating from " + source.describe() + " to " + target.describe() + "...");
+			StorageMigration.Totals totals = StorageMigration.migrate(source, target, (accounts, banknotes, perSecond) ->
+					System.out.printf(Locale.ROOT, "  %,d accounts, %,d banknotes (%,.0f/s)%n", accounts, banknotes, perSecond)
+			);
+			System.out.printf(
+					Locale.ROOT,
+					"Migrated and verified %,d accounts holding %s and %,d banknotes worth %s.%n",
+					totals.accounts(),
+					formatMinor(totals.supply()),
+					totals.banknotes(),
+					formatMinor(totals.banknoteValue())
+			);
+			System.out.println("Set storage.backend to " + to.configName() + " in config.yml before starting the server.");
+		} catch (IOException e) {
+			System.err.println("Migration failed: " + e.getMessage());
+			System.exit(1);
+		} catch (NoClassDefFoundError e) {
+			// Old-format playerdata.yml is parsed with Bukkit's YAML support, which only the server jar provides
+			System.err.println("Missing " + e.getMessage() + "; add the server jar to the class path.");
+			System.exit(1);
+		}
+	}
+
+	private static @NotNull StorageBackend open(
+			@NotNull StorageBackend.Type type,
+			@NotNull Path dataFolder,
+			@NotNull String sqliteFile,
+			@NotNull Logger logger
+	) throws IOException {
+		return switch (type) {
+			case BINARY -> BinaryStorage.open(dataFolder, logger, true, 1024);
+			case MAPPED -> MappedStorage.open(dataFolder, logger, true, 1024);
+			case YAML -> YamlStorage.open(dataFolder, logger, true, 1024);
+			case SQLITE -> SqliteStorage.open(dataFolder.resolve(sqliteFile), logger, true);
+		};
+	}
+
+	private static @NotNull String formatMinor(long minor) {
+		return BigDecimal.valueOf(minor, MoneyUtility.FRACTIONAL_DIGITS).toPlainString();
+	}
+}
@@ -0,0 +1,323 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * The set of redeemed signed banknotes, kept on disk rather than in memory.
+ * <p>
+ * The file is an open-addressed hash table of 16-byte UUID slots, an all-zero slot being empty,
+ * so an insert reads a few slots from the page cache instead of loading the set.
+ * <p>
+ * The table grows by rehashing into a file twice the size and moving it over the old one,
+ * so a crash leaves either intact.
+ * <p>
+ * In durable mode slots are written under the set's monitor but fsynced outside it, like
+ * {@link BanknoteStore}, so concurrent redemptions share one fsync instead of queueing for one each.
+ */
+public final class SpentNoteSet implements Closeable {
+	private static final int SLOT_SIZE = Long.BYTES * 2;
+	private static final int MIN_CAPACITY = 1 << 12;
+	private static final float MAX_LOAD = 0.5f;
+
+	private final Path file;
+	private final Logger logger;
+	private final boolean durable;
+	private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+
+	// Guarded by this set's monitor
+	private FileChannel channel;
+	private int capacity;
+	private int size;
+	private boolean closed;
+	// Slots written so far, to tell which writes an fsync covered
+	private long writes;
+
+	// Held while fsyncing, always before this set's monitor
+	private final Object syncLock = new Object();
+	// Guarded by syncLock: the channel and write count covered by the last fsync
+	private FileChannel syncedChannel;
+	private long syncedWrites;
+
+	private SpentNoteSet(@NotNull Path file, @NotNull Logger logger, boolean durable) {
+		this.file = file;
+		this.logger = logger;
+		this.durable = durable;
+	}
+
+	/**
+	 * Opens the set, creating an empty table if there is none yet.
+	 *
+	 * @param file    The table file.
+	 * @param logger  The logger for growth messages.
+	 * @param durable Whether every insert is fsynced before it returns.
+	 * @return The opened set.
+	 * @throws IOException If the table could not be read or created, or is not a valid table.
+	 */
+	public static @NotNull SpentNoteSet open(@NotNull Path file, @NotNull Logger logger, boolean durable) throws IOException {
+		SpentNoteSet set = new SpentNoteSet(file, logger, durable);
+		Files.createDirectories(file.toAbsolutePath().getParent());
+
+		if (!Files.exists(file)) {
+			set.channel = create(file, MIN_CAPACITY);
+			set.capacity = MIN_CAPACITY;
+			return set;
+		}
+
+		set.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long length = set.channel.size();
+		long capacity = length / SLOT_SIZE;
+		if (length % SLOT_SIZE != 0 || capacity < MIN_CAPACITY || Long.bitCount(capacity) != 1
+				|| capacity > Integer.MAX_VALUE) {
+			set.channel.close();
+			// Accepting a damaged table could let spent notes be redeemed again
+			throw new IOException(file.getFileName() + " is not a valid spent note table (" + length + " bytes)");
+		}
+		set.capacity = (int) capacity;
+		set.load();
+		return set;
+	}
+
+	/**
+	 * Marks a note as spent, unless it already is.
+	 * Only one of any number of concurrent calls for the same note returns true.
+	 *
+	 * @param note The banknote UUID.
+	 * @return true if the note was not spent before, and now is
+	 * @throws IOException If the table could not be read or written; the note is then not spent.
+	 */
+	public boolean add(@NotNull UUID note) throws IOException {
+		FileChannel written;
+		long count;
+		synchronized (this) {
+			if (!insert(note)) return false;
+			written = channel;
+			count = writes;
+		}
+		sync(written, count);
+		return true;
+	}
+
+	/**
+	 * Marks several notes as spent with a single fsync.
+	 *
+	 * @param notes The banknote UUIDs.
+	 * @return The notes that were not spent before, and now are.
+	 * @throws IOException If the table could not be read or written; none of the notes may then be paid out.
+	 */
+	public @NotNull Set<UUID> addAll(@NotNull Collection<UUID> notes) throws IOException {
+		Set<UUID> added = new HashSet<>();
+		FileChannel written;
+		long count;
+		synchronized (this) {
+			for (UUID note : notes) {
+				if (insert(note)) {
+					added.add(note);
+				}
+			}
+			if (added.isEmpty()) return added;
+			written = channel;
+			count = writes;
+		}
+		sync(written, count);
+		return added;
+	}
+
+	/**
+	 * @return The number of spent notes.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		// An insert still waiting for its fsync is covered by this one
+		if (durable) {
+			channel.force(false);
+		}
+		channel.close();
+	}
+
+	/**
+	 * Waits until slots written up to a count are on disk in durable mode, fsyncing them unless an
+	 * fsync that started after they were written already has. Must not be called holding this set's
+	 * monitor, so inserts keep being written while an fsync runs.
+	 *
+	 * @param written The channel the slots were written to.
+	 * @param count   The write count after the slots.
+	 */
+	private void sync(@NotNull FileChannel written, long count) throws IOException {
+		if (!durable) return;
+
+		synchronized (syncLock) {
+			if (syncedChannel == written && syncedWrites >= count) return;
+
+			FileChannel target;
+			long current;
+			synchronized (this) {
+				target = channel;
+				current = writes;
+			}
+			// Growing and closing both fsync the slots they carry over
+			if (target != written) return;
+
+			try {
+				target.force(false);
+			} catch (IOException e) {
+				if (!target.isOpen()) return;
+				throw e;
+			}
+			syncedChannel = target;
+			syncedWrites = current;
+		}
+	}
+
+	/**
+	 * Writes a note into its slot without forcing it to disk.
+	 *
+	 * @return true if the note was not in the table before
+	 */
+	private boolean insert(@NotNull UUID note) throws IOException {
+		if (closed) throw new IOException(file.getFileName() + " is closed");
+
+		long mostSigBits = note.getMostSignificantBits();
+		long leastSigBits = note.getLeastSignificantBits();
+		// The empty slot marker can never be a real note
+		if (mostSigBits == 0L && leastSigBits == 0L) return false;
+
+		// Inserting probes the table either way, as the free slot has to be found too
+		long free = find(mostSigBits, leastSigBits);
+		if (free < 0) return false;
+
+		if ((size + 1) > capacity * MAX_LOAD) {
+			grow();
+			free = find(mostSigBits, leastSigBits);
+		}
+
+		writeSlot(channel, free, mostSigBits, leastSigBits);
+		writes++;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Probes the table for a note.
+	 *
+	 * @return The free slot where the note would go, or -1 if it is already in the table.
+	 */
+	private long find(long mostSigBits, long leastSigBits) throws IOException {
+		int mask = capacity - 1;
+		for (int index = BalanceTable.hash(mostSigBits, leastSigBits) & mask; ; index = (index + 1) & mask) {
+			readSlot(channel, index);
+			long storedMost = slot.getLong(0);
+			long storedLeast = slot.getLong(Long.BYTES);
+			if (storedMost == 0L && storedLeast == 0L) return index;
+			if (storedMost == mostSigBits && storedLeast == leastSigBits) return -1;
+		}
+	}
+
+	/**
+	 * Rehashes every spent note into a table twice the size.
+	 */
+	private void grow() throws IOException {
+		int newCapacity = capacity << 1;
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (FileChannel out = create(tempFile, newCapacity)) {
+			ByteBuffer probe = ByteBuffer.allocate(SLOT_SIZE);
+			int newMask = newCapacity - 1;
+			for (int index = 0; index < capacity; index++) {
+				readSlot(channel, index);
+				long mostSigBits = slot.getLong(0);
+				long leastSigBits = slot.getLong(Long.BYTES);
+				if (mostSigBits == 0L && leastSigBits == 0L) continue;
+
+				int target = BalanceTable.hash(mostSigBits, leastSigBits) & newMask;
+				while (true) {
+					probe.clear();
+					readFully(out, probe, (long) target * SLOT_SIZE);
+					if (probe.getLong(0) == 0L && probe.getLong(Long.BYTES) == 0L) break;
+					target = (target + 1) & newMask;
+				}
+				writeSlot(out, target, mostSigBits, leastSigBits);
+			}
+			out.force(false);
+		}
+
+		channel.close();
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		capacity = newCapacity;
+		logger.info("Grew " + file.getFileName() + " to " + newCapacity + " slots for " + size + " spent notes.");
+	}
+
+	/**
+	 * Counts the spent notes with one sequential pass over the file.
+	 */
+	private void load() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE * 4096);
+		long position = 0L;
+		long length = (long) capacity * SLOT_SIZE;
+		while (position < length) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), length - position));
+			readFully(channel, buffer, position);
+			for (int offset = 0; offset < buffer.limit(); offset += SLOT_SIZE) {
+				long mostSigBits = buffer.getLong(offset);
+				long leastSigBits = buffer.getLong(offset + Long.BYTES);
+				if (mostSigBits == 0L && leastSigBits == 0L) continue;
+				size++;
+			}
+			position += buffer.limit();
+		}
+	}
+
+	private static @NotNull FileChannel create(@NotNull Path path, int capacity) throws IOException {
+		FileChannel created = FileChannel.open(
+				path,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		);
+		// Writing the last byte sizes the file; the slots before it read back as zero, i.e. empty
+		created.write(ByteBuffer.allocate(1), (long) capacity * SLOT_SIZE - 1);
+		return created;
+	}
+
+	private void readSlot(@NotNull FileChannel source, long index) throws IOException {
+		slot.clear();
+		readFully(source, slot, index * SLOT_SIZE);
+	}
+
+	private static void readFully(@NotNull FileChannel source, @NotNull ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = source.read(buffer, position + buffer.position());
+			if (read < 0) throw new IOException("Unexpected end of spent note table");
+		}
+	}
+
+	private static void writeSlot(@NotNull FileChannel target, long index, long mostSigBits, long leastSigBits) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE).putLong(mostSigBits).putLong(leastSigBits).flip();
+		long position = index * SLOT_SIZE;
+		while (buffer.hasRemaining()) {
+			position += target.write(buffer, position);
+		}
+	}
+}
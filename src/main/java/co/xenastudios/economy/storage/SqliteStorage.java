@@ -0,0 +1,403 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The embedded SQL backend: balances and banknotes in a SQLite database, using the driver bundled with the server.
+ * <p>
+ * One connection is owned by a dedicated I/O thread, and every call runs there, so statements are
+ * prepared once and reused and no two calls ever interleave. Saves only upsert the accounts changed
+ * since the last save, in batches inside one transaction, so their cost follows the number of
+ * changes rather than the number of accounts.
+ * <p>
+ * Both tables are keyed by the 16-byte UUID and stored without a rowid, so each lookup is a single
+ * B-tree search. The database runs in WAL mode; in durable mode every commit is also fsynced.
+ */
+public final class SqliteStorage implements StorageBackend {
+	// Rows per executeBatch() call; the whole save still commits as one transaction
+	private static final int BATCH_SIZE = 1000;
+
+	private final Path file;
+	private final Logger logger;
+	private final ExecutorService io;
+
+	// Confined to the I/O thread
+	private Connection connection;
+	private PreparedStatement upsertAccount;
+	private PreparedStatement selectAccount;
+	private PreparedStatement insertBanknote;
+	private PreparedStatement selectBanknote;
+	private PreparedStatement deleteBanknote;
+
+	/**
+	 * A unit of work run on the I/O thread with its connection.
+	 */
+	@FunctionalInterface
+	private interface Task<T> {
+		T run() throws SQLException;
+	}
+
+	private SqliteStorage(@NotNull Path file, @NotNull Logger logger) {
+		this.file = file;
+		this.logger = logger;
+		this.io = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Economy-SQL");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Opens the database, creating it and its tables if needed.
+	 *
+	 * @param file    The database file.
+	 * @param logger  The logger for shutdown warnings.
+	 * @param durable Whether every commit is fsynced before it returns.
+	 * @return The opened backend.
+	 * @throws IOException If the database could not be opened.
+	 */
+	public static @NotNull SqliteStorage open(@NotNull Path file, @NotNull Logger logger, boolean durable) throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		SqliteStorage storage = new SqliteStorage(file, logger);
+		try {
+			storage.call(() -> {
+				storage.connect(durable);
+				return null;
+			});
+		} catch (IOException e) {
+			storage.io.shutdownNow();
+			throw e;
+		}
+		return storage;
+	}
+
+	private void connect(boolean durable) throws SQLException {
+		connection = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA journal_mode = WAL");
+			statement.execute("PRAGMA synchronous = " + (durable ? "FULL" : "NORMAL"));
+			statement.execute("CREATE TABLE IF NOT EXISTS accounts ("
+					+ "uuid BLOB PRIMARY KEY NOT NULL, "
+					+ "balance INTEGER NOT NULL"
+					+ ") WITHOUT ROWID");
+			statement.execute("CREATE TABLE IF NOT EXISTS banknotes ("
+					+ "uuid BLOB PRIMARY KEY NOT NULL, "
+					+ "amount INTEGER NOT NULL"
+					+ ") WITHOUT ROWID");
+		}
+
+		upsertAccount = connection.prepareStatement("INSERT INTO accounts (uuid, balance) VALUES (?, ?) "
+				+ "ON CONFLICT (uuid) DO UPDATE SET balance = excluded.balance");
+		selectAccount = connection.prepareStatement("SELECT balance FROM accounts WHERE uuid = ?");
+		insertBanknote = connection.prepareStatement("INSERT OR REPLACE INTO banknotes (uuid, amount) VALUES (?, ?)");
+		selectBanknote = connection.prepareStatement("SELECT amount FROM banknotes WHERE uuid = ?");
+		deleteBanknote = connection.prepareStatement("DELETE FROM banknotes WHERE uuid = ?");
+	}
+
+	@Override
+	public @NotNull String describe() {
+		return file.getFileName().toString();
+	}
+
+	@Override
+	public boolean isIncremental() {
+		return true;
+	}
+
+	@Override
+	public void loadBalances(@NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		call(() -> {
+			try (Statement statement = connection.createStatement();
+				 ResultSet rows = statement.executeQuery("SELECT uuid, balance FROM accounts")) {
+				while (rows.next()) {
+					ByteBuffer uuid = ByteBuffer.wrap(rows.getBytes(1));
+					consumer.accept(uuid.getLong(), uuid.getLong(), rows.getLong(2));
+				}
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public @Nullable Long loadBalance(@NotNull UUID account) throws IOException {
+		return call(() -> {
+			selectAccount.setBytes(1, toBytes(account));
+			try (ResultSet rows = selectAccount.executeQuery()) {
+				return rows.next() ? rows.getLong(1) : null;
+			}
+		});
+	}
+
+	@Override
+	public void saveBalances(@NotNull BalanceTable snapshot, @NotNull Collection<UUID> changed) throws IOException {
+		if (changed.isEmpty()) return;
+
+		call(() -> inTransaction(() -> {
+			int batched = 0;
+			for (UUID account : changed) {
+				long msb = account.getMostSignificantBits();
+				long lsb = account.getLeastSignificantBits();
+				// Changed accounts are never evicted from the table, so every one is in the snapshot
+				upsertAccount.setBytes(1, toBytes(msb, lsb));
+				upsertAccount.setLong(2, snapshot.get(msb, lsb, 0L));
+				upsertAccount.addBatch();
+				if (++batched == BATCH_SIZE) {
+					upsertAccount.executeBatch();
+					batched = 0;
+				}
+			}
+			if (batched > 0) {
+				upsertAccount.executeBatch();
+			}
+			return null;
+		}));
+	}
+
+	/**
+	 * Buffers accounts and sends them to the I/O thread a batch at a time, all in one transaction
+	 * that starts by clearing the table and stays open on the connection until committed or closed.
+	 */
+	@Override
+	public @NotNull BalanceWriter replaceBalances() throws IOException {
+		call(() -> {
+			connection.setAutoCommit(false);
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate("DELETE FROM accounts");
+			} catch (SQLException e) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+				throw e;
+			}
+			return null;
+		});
+
+		return new BalanceWriter() {
+			private final long[] pending = new long[BATCH_SIZE * 3];
+			private int size;
+			private boolean finished;
+
+			@Override
+			public void write(long mostSigBits, long leastSigBits, long balance) throws IOException {
+				pending[size * 3] = mostSigBits;
+				pending[size * 3 + 1] = leastSigBits;
+				pending[size * 3 + 2] = balance;
+				if (++size == BATCH_SIZE) {
+					flush();
+				}
+			}
+
+			private void flush() throws IOException {
+				int count = size;
+				size = 0;
+				call(() -> {
+					for (int i = 0; i < count * 3; i += 3) {
+						upsertAccount.setBytes(1, toBytes(pending[i], pending[i + 1]));
+						upsertAccount.setLong(2, pending[i + 2]);
+						upsertAccount.addBatch();
+					}
+					upsertAccount.executeBatch();
+					return null;
+				});
+			}
+
+			@Override
+			public void commit() throws IOException {
+				if (size > 0) {
+					flush();
+				}
+				call(() -> {
+					connection.commit();
+					connection.setAutoCommit(true);
+					return null;
+				});
+				finished = true;
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (finished) return;
+				finished = true;
+				call(() -> {
+					connection.rollback();
+					connection.setAutoCommit(true);
+					return null;
+				});
+			}
+		};
+	}
+
+	@Override
+	public void issueBanknotes(@NotNull Collection<UUID> notes, long amount) throws IOException {
+		if (notes.isEmpty()) return;
+
+		call(() -> inTransaction(() -> {
+			for (UUID note : notes) {
+				insertBanknote.setBytes(1, toBytes(note));
+				insertBanknote.setLong(2, amount);
+				insertBanknote.addBatch();
+			}
+			insertBanknote.executeBatch();
+			return null;
+		}));
+	}
+
+	@Override
+	public @Nullable Long getBanknote(@NotNull UUID note) throws IOException {
+		return call(() -> selectBanknote(note));
+	}
+
+	@Override
+	public @NotNull Map<UUID, Long> redeemBanknotes(@NotNull Collection<UUID> notes) throws IOException {
+		if (notes.isEmpty()) return Map.of();
+
+		// Every call runs on the one I/O thread, so no other redemption can slip between the select and the delete
+		return call(() -> inTransaction(() -> {
+			Map<UUID, Long> redeemed = new HashMap<>();
+			for (UUID note : notes) {
+				Long amount = selectBanknote(note);
+				if (amount == null) continue;
+
+				deleteBanknote.setBytes(1, toBytes(note));
+				if (deleteBanknote.executeUpdate() == 1) {
+					redeemed.put(note, amount);
+				}
+			}
+			return redeemed;
+		}));
+	}
+
+	@Override
+	public void forEachBanknote(@NotNull BanknoteConsumer consumer) throws IOException {
+		call(() -> {
+			try (Statement statement = connection.createStatement();
+				 ResultSet rows = statement.executeQuery("SELECT uuid, amount FROM banknotes")) {
+				while (rows.next()) {
+					ByteBuffer uuid = ByteBuffer.wrap(rows.getBytes(1));
+					consumer.accept(new UUID(uuid.getLong(), uuid.getLong()), rows.getLong(2));
+				}
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public void compact() throws IOException {
+		// Folds the write-ahead log back into the database so it does not grow between restarts
+		call(() -> {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("PRAGMA wal_checkpoint(PASSIVE)");
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			call(() -> {
+				connection.close();
+				return null;
+			});
+		} finally {
+			io.shutdown();
+			try {
+				if (!io.awaitTermination(10, TimeUnit.SECONDS)) {
+					logger.warning("Timed out waiting for the SQL thread to finish.");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private @Nullable Long selectBanknote(@NotNull UUID note) throws SQLException {
+		selectBanknote.setBytes(1, toBytes(note));
+		try (ResultSet rows = selectBanknote.executeQuery()) {
+			return rows.next() ? rows.getLong(1) : null;
+		}
+	}
+
+	/**
+	 * Runs a task as one transaction, rolling it back if it fails. Must be called on the I/O thread.
+	 */
+	private <T> T inTransaction(@NotNull Task<T> task) throws SQLException {
+		connection.setAutoCommit(false);
+		try {
+			T result = task.run();
+			connection.commit();
+			return result;
+		} catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Runs a task on the I/O thread and waits for it.
+	 */
+	private <T> T call(@NotNull Task<T> task) throws IOException {
+		Future<T> future;
+		try {
+			future = io.submit(task::run);
+		} catch (RejectedExecutionException e) {
+			throw new IOException(file.getFileName() + " is closed", e);
+		}
+
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					// The task cannot be abandoned halfway, so wait it out and restore the interrupt after
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+			if (cause instanceof Error error) throw error;
+			throw new IOException("Failed to access " + file.getFileName(), cause);
+		} catch (CancellationException e) {
+			throw new IOException(file.getFileName() + " is closed", e);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static byte @NotNull [] toBytes(@NotNull UUID uuid) {
+		return toBytes(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+	}
+
+	private static byte @NotNull [] toBytes(long mostSigBits, long leastSigBits) {
+		return ByteBuffer.allocate(Long.BYTES * 2).putLong(mostSigBits).putLong(leastSigBits).array();
+	}
+}
@@ -0,0 +1,203 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Where balances and stored banknotes are persisted.
+ * <p>
+ * Live balances are always served from the in-memory {@link BalanceTable}; a backend loads them,
+ * all at startup or one at a time when {@link #isIncremental() incremental}, and saves snapshots of
+ * them. Stored banknotes are read and written through the backend directly.
+ * Implementations must be safe to call from any thread.
+ */
+public interface StorageBackend extends Closeable {
+
+	/**
+	 * The available backends, by config name.
+	 */
+	enum Type {
+		/**
+		 * A compact binary balances.dat, rewritten by every snapshot, and the append-only banknotes.dat.
+		 */
+		BINARY,
+		/**
+		 * A memory-mapped accounts.dat, updated in place with only the changed accounts, and the append-only banknotes.dat.
+		 */
+		MAPPED,
+		/**
+		 * playerdata.yml, rewritten by every snapshot, and the append-only banknotes.dat.
+		 */
+		YAML,
+		/**
+		 * An embedded SQLite database, updated with batched upserts of only the changed accounts.
+		 */
+		SQLITE;
+
+		/**
+		 * @return The name of this backend in the config and in commands.
+		 */
+		public @NotNull String configName() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+
+		/**
+		 * Checks whether two backends keep their data in the same files, and so cannot be migrated
+		 * between; the file backends share banknotes.dat and import each other's balances instead.
+		 *
+		 * @param other The other backend type.
+		 * @return true if both use the same files
+		 */
+		public boolean sharesFilesWith(@NotNull Type other) {
+			return this != SQLITE && other != SQLITE;
+		}
+
+		/**
+		 * Parses a backend type from its config name.
+		 *
+		 * @param name The config value.
+		 * @return The matching backend type, or null if there is none.
+		 */
+		public static @Nullable Type fromConfig(@NotNull String name) {
+			try {
+				return valueOf(name.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Receives stored banknotes during iteration.
+	 */
+	@FunctionalInterface
+	interface BanknoteConsumer {
+		void accept(@NotNull UUID note, long amount);
+	}
+
+	/**
+	 * Streams a complete set of balances into a backend, replacing the stored ones only once committed.
+	 * Closing the writer without committing leaves the stored balances untouched.
+	 */
+	interface BalanceWriter extends Closeable {
+		void write(long mostSigBits, long leastSigBits, long balance) throws IOException;
+
+		void commit() throws IOException;
+	}
+
+	/**
+	 * @return A short description of where the data lives, for log messages.
+	 */
+	@NotNull String describe();
+
+	/**
+	 * Gets how many accounts are stored, if that is known without reading them, so the
+	 * balance table can be sized before loading.
+	 *
+	 * @return The number of stored accounts, or 0 if unknown.
+	 * @throws IOException If the count could not be read.
+	 */
+	default int expectedAccounts() throws IOException {
+		return 0;
+	}
+
+	/**
+	 * Checks whether single accounts are loaded and saved without reading or writing the others, so
+	 * only the accounts in use need to be held in memory.
+	 *
+	 * @return true if {@link #loadBalance} is a lookup and {@link #saveBalances} only writes the changed accounts
+	 */
+	default boolean isIncremental() {
+		return false;
+	}
+
+	/**
+	 * Passes every stored account to the consumer, in no particular order.
+	 *
+	 * @param consumer The entry consumer.
+	 * @throws IOException If the accounts could not be read.
+	 */
+	void loadBalances(@NotNull BalanceTable.EntryConsumer consumer) throws IOException;
+
+	/**
+	 * Loads a single account.
+	 *
+	 * @param account The account UUID.
+	 * @return The balance in minor units, or null if the account is not stored.
+	 * @throws IOException If the account could not be read.
+	 */
+	@Nullable Long loadBalance(@NotNull UUID account) throws IOException;
+
+	/**
+	 * Saves balances from a point-in-time snapshot.
+	 *
+	 * @param snapshot A copy of every balance held in memory, which includes every changed account;
+	 *                 only incremental backends are given a snapshot of some accounts.
+	 * @param changed  The accounts changed since the last successful save; backends that always write
+	 *                 the whole snapshot may ignore it.
+	 * @throws IOException If the balances could not be saved; nothing may be assumed saved.
+	 */
+	void saveBalances(@NotNull BalanceTable snapshot, @NotNull Collection<UUID> changed) throws IOException;
+
+	/**
+	 * Starts replacing every stored account, for writing a whole data set in bounded memory.
+	 * The replacement may hold the backend's resources until the writer is closed, so it is meant
+	 * for a backend nothing else is writing to at the time.
+	 *
+	 * @return The writer, which the caller must close.
+	 * @throws IOException If the replacement could not be started.
+	 */
+	@NotNull BalanceWriter replaceBalances() throws IOException;
+
+	/**
+	 * Stores newly issued banknotes of the same value.
+	 *
+	 * @param notes  The banknote UUIDs.
+	 * @param amount Each banknote's value in minor units.
+	 * @throws IOException If the banknotes could not be stored.
+	 */
+	void issueBanknotes(@NotNull Collection<UUID> notes, long amount) throws IOException;
+
+	/**
+	 * Gets a banknote's value without redeeming it.
+	 *
+	 * @param note The banknote UUID.
+	 * @return The value in minor units, or null if the banknote does not exist.
+	 * @throws IOException If the banknote could not be read.
+	 */
+	@Nullable Long getBanknote(@NotNull UUID note) throws IOException;
+
+	/**
+	 * Redeems banknotes, removing them for good. However many callers redeem the same note at once,
+	 * exactly one of them gets its value.
+	 *
+	 * @param notes The banknote UUIDs.
+	 * @return The value in minor units of each banknote redeemed by this call.
+	 * @throws IOException If the banknotes could not be redeemed; none of them may then be paid out.
+	 */
+	@NotNull Map<UUID, Long> redeemBanknotes(@NotNull Collection<UUID> notes) throws IOException;
+
+	/**
+	 * Passes every outstanding banknote to the consumer, in no particular order.
+	 *
+	 * @param consumer The banknote consumer.
+	 * @throws IOException If the banknotes could not be read.
+	 */
+	void forEachBanknote(@NotNull BanknoteConsumer consumer) throws IOException;
+
+	/**
+	 * Reclaims space left behind by redeemed banknotes, if worthwhile.
+	 * Called periodically from a background thread.
+	 *
+	 * @throws IOException If the data could not be compacted.
+	 */
+	default void compact() throws IOException {
+	}
+}
@@ -0,0 +1,226 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Copies every account and stored banknote from one {@link StorageBackend} to another.
+ * <p>
+ * Both are streamed: accounts go straight from the source's reader into the target's
+ * {@link StorageBackend.BalanceWriter}, and banknotes are issued a chunk at a time, so memory use
+ * does not grow with the number of accounts. The account count and money supply, and the banknote
+ * count and value, are totalled while reading the source and checked against the target after each step.
+ */
+public final class StorageMigration {
+	// Records between progress reports, and banknotes per issue call
+	private static final int CHUNK_SIZE = 10_000;
+
+	private final StorageBackend source;
+	private final StorageBackend target;
+	private final Progress progress;
+	private final long startedAt = System.nanoTime();
+
+	// Banknotes waiting to be issued, grouped by value since each issue call takes one value
+	private final Map<Long, List<UUID>> pendingNotes = new HashMap<>();
+	private int pendingCount;
+
+	private long accounts;
+	private long supply;
+	private long banknotes;
+	private long banknoteValue;
+
+	/**
+	 * Receives progress while a migration runs.
+	 */
+	@FunctionalInterface
+	public interface Progress {
+		/**
+		 * @param accounts  The accounts copied so far.
+		 * @param banknotes The banknotes copied so far.
+		 * @param perSecond The records copied per second so far.
+		 */
+		void update(long accounts, long banknotes, double perSecond);
+	}
+
+	/**
+	 * What a backend holds.
+	 *
+	 * @param accounts      The number of accounts.
+	 * @param supply        The sum of every balance, in minor units.
+	 * @param banknotes     The number of stored banknotes.
+	 * @param banknoteValue The sum of every stored banknote's value, in minor units.
+	 */
+	public record Totals(long accounts, long supply, long banknotes, long banknoteValue) {
+	}
+
+	private StorageMigration(@NotNull StorageBackend source, @NotNull StorageBackend target, @NotNull Progress progress) {
+		this.source = source;
+		this.target = target;
+		this.progress = progress;
+	}
+
+	/**
+	 * Copies everything from the source to the target in one go.
+	 *
+	 * @param source   The backend to read.
+	 * @param target   The backend to write, which must be empty.
+	 * @param progress Receives progress every few thousand records.
+	 * @return What was copied, as totalled from the source.
+	 * @throws IOException If either backend failed, the target was not empty, or the totals did not match.
+	 */
+	public static @NotNull Totals migrate(
+			@NotNull StorageBackend source,
+			@NotNull StorageBackend target,
+			@NotNull Progress progress
+	) throws IOException {
+		StorageMigration migration = start(source, target, progress);
+		migration.copyBalances();
+		migration.copyBanknotes();
+		return migration.totals();
+	}
+
+	/**
+	 * Prepares a migration to run step by step, for callers that must guard each step differently.
+	 *
+	 * @param source   The backend to read.
+	 * @param target   The backend to write, which must be empty.
+	 * @param progress Receives progress every few thousand records.
+	 * @return The migration, with nothing copied yet.
+	 * @throws IOException If the target could not be read or was not empty.
+	 */
+	public static @NotNull StorageMigration start(
+			@NotNull StorageBackend source,
+			@NotNull StorageBackend target,
+			@NotNull Progress progress
+	) throws IOException {
+		// Never mix the copy into existing data, which would make the totals meaningless
+		long[] existing = countBalances(target);
+		long[] existingNotes = countBanknotes(target);
+		if (existing[0] != 0 || existingNotes[0] != 0) {
+			throw new IOException(target.describe() + " already holds " + existing[0] + " accounts and "
+					+ existingNotes[0] + " banknotes");
+		}
+		return new StorageMigration(source, target, progress);
+	}
+
+	/**
+	 * Streams every account into the target, then checks the target's account count and money supply.
+	 *
+	 * @throws IOException If either backend failed or the totals did not match.
+	 */
+	public void copyBalances() throws IOException {
+		try (StorageBackend.BalanceWriter writer = target.replaceBalances()) {
+			try {
+				source.loadBalances((mostSigBits, leastSigBits, balance) -> {
+					try {
+						writer.write(mostSigBits, leastSigBits, balance);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					accounts++;
+					supply += balance;
+					if (accounts % CHUNK_SIZE == 0) {
+						report();
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			writer.commit();
+		}
+		report();
+
+		// Read the target back, so what was committed is checked rather than what was sent
+		long[] written = countBalances(target);
+		if (written[0] != accounts || written[1] != supply) {
+			throw new IOException("Verification failed: read " + accounts + " accounts holding " + supply
+					+ " from " + source.describe() + " but " + target.describe() + " holds "
+					+ written[0] + " accounts holding " + written[1]);
+		}
+	}
+
+	/**
+	 * Issues every stored banknote in the target, then checks the target's banknote count and value.
+	 *
+	 * @throws IOException If either backend failed or the totals did not match.
+	 */
+	public void copyBanknotes() throws IOException {
+		try {
+			source.forEachBanknote((note, amount) -> {
+				pendingNotes.computeIfAbsent(amount, key -> new ArrayList<>()).add(note);
+				banknotes++;
+				banknoteValue += amount;
+				if (++pendingCount == CHUNK_SIZE) {
+					try {
+						flushBanknotes();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					report();
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		flushBanknotes();
+		report();
+
+		long[] written = countBanknotes(target);
+		if (written[0] != banknotes || written[1] != banknoteValue) {
+			throw new IOException("Verification failed: read " + banknotes + " banknotes worth " + banknoteValue
+					+ " from " + source.describe() + " but " + target.describe() + " holds "
+					+ written[0] + " banknotes worth " + written[1]);
+		}
+	}
+
+	/**
+	 * @return What has been copied so far, as totalled from the source.
+	 */
+	public @NotNull Totals totals() {
+		return new Totals(accounts, supply, banknotes, banknoteValue);
+	}
+
+	private void flushBanknotes() throws IOException {
+		for (Map.Entry<Long, List<UUID>> entry : pendingNotes.entrySet()) {
+			target.issueBanknotes(entry.getValue(), entry.getKey());
+		}
+		pendingNotes.clear();
+		pendingCount = 0;
+	}
+
+	private void report() {
+		double seconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+		progress.update(accounts, banknotes, (accounts + banknotes) / seconds);
+	}
+
+	/**
+	 * @return The number of accounts and their sum, in minor units.
+	 */
+	private static long @NotNull [] countBalances(@NotNull StorageBackend backend) throws IOException {
+		long[] sums = new long[2];
+		backend.loadBalances((mostSigBits, leastSigBits, balance) -> {
+			sums[0]++;
+			sums[1] += balance;
+		});
+		return sums;
+	}
+
+	/**
+	 * @return The number of banknotes and their sum, in minor units.
+	 */
+	private static long @NotNull [] countBanknotes(@NotNull StorageBackend backend) throws IOException {
+		long[] sums = new long[2];
+		backend.forEachBanknote((note, amount) -> {
+			sums[0]++;
+			sums[1] += amount;
+		});
+		return sums;
+	}
+}
@@ -0,0 +1,376 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A record of every balance change, kept in rolling, size-capped segment files under history/.
+ * <p>
+ * Recording a transaction only puts it in a lock-free {@link TransactionRing}; a background thread
+ * drains the ring in batches and appends them to the current {@link HistorySegment}. Once a segment
+ * reaches its size it is indexed by account and a new one is started, and the oldest segments are
+ * deleted once all of them together exceed the size cap.
+ * <p>
+ * An account's history is read newest first: the current segment is scanned backwards, and older
+ * segments are only read where their index lists the account, so a page costs a few reads per
+ * segment rather than a read of the whole log.
+ */
+public final class TransactionLog implements Closeable {
+	// Records waiting to be written, 64 bytes each
+	private static final int RING_CAPACITY = 1 << 14;
+	private static final int WRITE_BATCH = 1024;
+	// How long the writer sleeps with nothing to write, unless woken by a new record
+	private static final long IDLE_PARK = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * The kinds of transaction, each with the id it is stored under and the name it is shown by.
+	 */
+	public enum Type {
+		PAY_SENT(1, "paid"),
+		PAY_RECEIVED(2, "received"),
+		DEPOSIT(3, "deposit"),
+		WITHDRAW(4, "withdraw"),
+		ADMIN_SET(5, "set"),
+		ADMIN_GIVE(6, "given"),
+		ADMIN_TAKE(7, "taken"),
+		BANKNOTE_ISSUE(8, "banknote issued"),
+		BANKNOTE_REDEEM(9, "banknote redeemed");
+
+		private static final Type[] BY_ID = new Type[10];
+
+		static {
+			for (Type type : values()) {
+				BY_ID[type.id] = type;
+			}
+		}
+
+		private final int id;
+		private final String label;
+
+		Type(int id, @NotNull String label) {
+			this.id = id;
+			this.label = label;
+		}
+
+		/**
+		 * @return The name the transaction is shown by.
+		 */
+		public @NotNull String label() {
+			return label;
+		}
+
+		static @Nullable Type fromId(int id) {
+			return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+		}
+	}
+
+	/**
+	 * A recorded transaction.
+	 *
+	 * @param time    When it happened, in epoch milliseconds.
+	 * @param type    What kind of transaction it was.
+	 * @param account The account whose balance changed.
+	 * @param other   The other party: the other player of a payment, the admin, or the banknote; null for none.
+	 * @param amount  The change in balance in minor units, negative when money was taken.
+	 * @param balance The balance after the change in minor units.
+	 */
+	public record Transaction(
+			long time,
+			@NotNull Type type,
+			@NotNull UUID account,
+			@Nullable UUID other,
+			long amount,
+			long balance
+	) {
+	}
+
+	private final Path directory;
+	private final Logger logger;
+	private final long segmentSize;
+	private final long maxSize;
+	private final TransactionRing ring = new TransactionRing(RING_CAPACITY);
+	private final Thread writer;
+	private volatile boolean idle;
+	private volatile boolean closed;
+	// Records dropped because the ring was full, since the writer last logged them
+	private final AtomicLong dropped = new AtomicLong();
+
+	// Held shared by readers and exclusively while segments are rolled or deleted
+	private final ReentrantReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+	// Sealed segment numbers, oldest first, and their sizes with their indexes
+	private final List<long[]> sealed = new ArrayList<>();
+	private long sealedSize;
+	private long activeNumber;
+	private FileChannel active;
+	// Bytes of whole records in the current segment, published after each write
+	private volatile long activeSize;
+
+	private TransactionLog(@NotNull Path directory, @NotNull Logger logger, long segmentSize, long maxSize) {
+		this.directory = directory;
+		this.logger = logger;
+		this.segmentSize = segmentSize;
+		this.maxSize = maxSize;
+		this.writer = new Thread(this::run, "Economy-History");
+		this.writer.setDaemon(true);
+	}
+
+	/**
+	 * Opens the log, indexing any segment a crash left unsealed and continuing the newest one.
+	 *
+	 * @param directory   The history directory.
+	 * @param logger      The logger for write failures.
+	 * @param segmentSize The size in bytes at which a segment is sealed and a new one started.
+	 * @param maxSize     The size in bytes all segments are kept under, by deleting the oldest.
+	 * @return The opened log, with its writer running.
+	 * @throws IOException If the directory or a segment could not be read or created.
+	 */
+	public static @NotNull TransactionLog open(
+			@NotNull Path directory,
+			@NotNull Logger logger,
+			long segmentSize,
+			long maxSize
+	) throws IOException {
+		// Every segment holds at least one record
+		segmentSize = Math.max(segmentSize, HistorySegment.HEADER_SIZE + HistorySegment.RECORD_SIZE);
+		TransactionLog log = new TransactionLog(directory, logger, segmentSize, maxSize);
+		Files.createDirectories(directory);
+
+		List<Long> numbers = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.map(file -> file.getFileName().toString())
+					.filter(name -> name.matches("\\d+\\.log"))
+					.forEach(name -> numbers.add(Long.parseLong(name.substring(0, name.length() - 4))));
+		}
+		numbers.sort(null);
+
+		for (int i = 0; i < numbers.size(); i++) {
+			long number = numbers.get(i);
+			Path indexFile = HistorySegment.indexFile(directory, number);
+			boolean last = i == numbers.size() - 1;
+			if (last && !Files.exists(indexFile)) {
+				log.activeNumber = number;
+				log.active = HistorySegment.reopen(HistorySegment.dataFile(directory, number));
+				log.activeSize = log.active.position();
+				break;
+			}
+			if (!Files.exists(indexFile)) {
+				// Sealed by a roll the server stopped in the middle of
+				HistorySegment.writeIndex(HistorySegment.dataFile(directory, number), indexFile);
+			}
+			log.addSealed(number);
+		}
+
+		if (log.active == null) {
+			log.activeNumber = numbers.isEmpty() ? 1L : numbers.get(numbers.size() - 1) + 1L;
+			log.active = HistorySegment.create(HistorySegment.dataFile(directory, log.activeNumber));
+			log.activeSize = HistorySegment.HEADER_SIZE;
+		}
+		log.deleteOldest();
+		log.writer.start();
+		return log;
+	}
+
+	/**
+	 * Records a transaction. Safe to call from any thread, and never waits: the record is written in
+	 * the background, or dropped and counted if the writer has fallen a whole ring of records behind.
+	 * Records made once the log is closed are ignored.
+	 *
+	 * @param type    What kind of transaction it was.
+	 * @param account The account whose balance changed.
+	 * @param other   The other party, or null for none.
+	 * @param amount  The change in balance in minor units, negative when money was taken.
+	 * @param balance The balance after the change in minor units.
+	 */
+	public void record(@NotNull Type type, @NotNull UUID account, @Nullable UUID other, long amount, long balance) {
+		if (closed) return;
+
+		long time = System.currentTimeMillis();
+		long otherMostSigBits = other != null ? other.getMostSignificantBits() : 0L;
+		long otherLeastSigBits = other != null ? other.getLeastSignificantBits() : 0L;
+		if (!ring.offer(
+				time,
+				type.id,
+				account.getMostSignificantBits(),
+				account.getLeastSignificantBits(),
+				otherMostSigBits,
+				otherLeastSigBits,
+				amount,
+				balance
+		)) {
+			// Callers hold the account's lock, so waiting for room would hold up the account
+			dropped.incrementAndGet();
+			LockSupport.unpark(writer);
+			return;
+		}
+
+		if (idle) {
+			LockSupport.unpark(writer);
+		}
+	}
+
+	/**
+	 * Reads a page of an account's transactions, newest first. Blocks on disk reads, so is not
+	 * called on the main thread; records made in the last few milliseconds may not be written yet.
+	 *
+	 * @param account The account UUID.
+	 * @param skip    The number of newer transactions to skip.
+	 * @param limit   The maximum number of transactions.
+	 * @return The transactions, newest first.
+	 * @throws IOException If a segment could not be read.
+	 */
+	public @NotNull List<Transaction> read(@NotNull UUID account, int skip, int limit) throws IOException {
+		HistorySegment.Query query = new HistorySegment.Query(account, skip, limit);
+		segmentsLock.readLock().lock();
+		try {
+			HistorySegment.scan(HistorySegment.dataFile(directory, activeNumber), activeSize, query);
+			for (int i = sealed.size() - 1; i >= 0 && !query.isDone(); i--) {
+				long number = sealed.get(i)[0];
+				HistorySegment.lookUp(
+						HistorySegment.dataFile(directory, number),
+						HistorySegment.indexFile(directory, number),
+						query
+				);
+			}
+		} finally {
+			segmentsLock.readLock().unlock();
+		}
+		return query.results();
+	}
+
+	/**
+	 * Writes every recorded transaction and stops the writer.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (writer.isAlive()) {
+			logger.warning("Timed out waiting for the transaction history writer to finish.");
+		}
+		reportDropped();
+
+		segmentsLock.writeLock().lock();
+		try {
+			active.force(true);
+			active.close();
+		} finally {
+			segmentsLock.writeLock().unlock();
+		}
+	}
+
+	private void run() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(HistorySegment.RECORD_SIZE * WRITE_BATCH);
+		while (true) {
+			// Read before draining, so nothing recorded before close is left behind
+			boolean stopping = closed;
+			buffer.clear();
+			if (ring.drain(buffer) > 0) {
+				append(buffer.flip());
+				continue;
+			}
+			if (stopping) return;
+
+			reportDropped();
+			idle = true;
+			// Checked again once idle is visible, so a record offered meanwhile is not left waiting
+			if (ring.isEmpty()) {
+				LockSupport.parkNanos(this, IDLE_PARK);
+			}
+			idle = false;
+		}
+	}
+
+	/**
+	 * Logs how many records were dropped since the last call, if any.
+	 */
+	private void reportDropped() {
+		long count = dropped.getAndSet(0L);
+		if (count > 0) {
+			logger.warning("Dropped " + count + " transactions from the history, as its writer fell behind.");
+		}
+	}
+
+	/**
+	 * Appends a batch of records, rolling over to a new segment as each fills up.
+	 */
+	private void append(@NotNull ByteBuffer records) {
+		try {
+			while (records.hasRemaining()) {
+				if (activeSize + HistorySegment.RECORD_SIZE > segmentSize) {
+					roll();
+				}
+				long room = (segmentSize - activeSize) / HistorySegment.RECORD_SIZE * HistorySegment.RECORD_SIZE;
+				int length = (int) Math.min(records.remaining(), room);
+				ByteBuffer slice = records.slice(records.position(), length);
+				HistorySegment.writeFully(active, slice, activeSize);
+				records.position(records.position() + length);
+				activeSize += length;
+			}
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Failed to write " + records.remaining() / HistorySegment.RECORD_SIZE
+					+ " transactions to the history:", e);
+		}
+	}
+
+	/**
+	 * Seals the current segment and starts the next one, then deletes the oldest ones over the cap.
+	 */
+	private void roll() throws IOException {
+		active.force(true);
+		HistorySegment.writeIndex(
+				HistorySegment.dataFile(directory, activeNumber),
+				HistorySegment.indexFile(directory, activeNumber)
+		);
+		FileChannel next = HistorySegment.create(HistorySegment.dataFile(directory, activeNumber + 1));
+
+		segmentsLock.writeLock().lock();
+		try {
+			active.close();
+			addSealed(activeNumber);
+			activeNumber++;
+			active = next;
+			activeSize = HistorySegment.HEADER_SIZE;
+			deleteOldest();
+		} finally {
+			segmentsLock.writeLock().unlock();
+		}
+	}
+
+	private void addSealed(long number) throws IOException {
+		long size = Files.size(HistorySegment.dataFile(directory, number))
+				+ Files.size(HistorySegment.indexFile(directory, number));
+		sealed.add(new long[]{number, size});
+		sealedSize += size;
+	}
+
+	private void deleteOldest() throws IOException {
+		while (!sealed.isEmpty() && sealedSize + activeSize > maxSize) {
+			long[] oldest = sealed.remove(0);
+			sealedSize -= oldest[1];
+			Files.deleteIfExists(HistorySegment.indexFile(directory, oldest[0]));
+			Files.deleteIfExists(HistorySegment.dataFile(directory, oldest[0]));
+		}
+	}
+}
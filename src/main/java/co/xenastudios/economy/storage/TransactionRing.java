@@ -0,0 +1,125 @@
+package co.xenastudios.economy.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue of transaction records from any number of threads to a single reader, without locks.
+ * <p>
+ * Each slot holds one record in a row of a shared long array, and a sequence number saying whose turn
+ * it is. A writer claims the next position with a compare-and-set on the tail, fills the slot's row and
+ * publishes it by advancing the slot's sequence; the reader takes published slots in order and hands
+ * them back by advancing their sequence a lap ahead. Writers only ever contend on the tail counter,
+ * and a full queue is reported rather than waited on.
+ */
+final class TransactionRing {
+	// time, type, account high and low bits, other party high and low bits, amount, balance
+	private static final int STRIDE = 8;
+
+	private final int mask;
+	private final long[] records;
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	// Only touched by the reader
+	private long head;
+
+	/**
+	 * @param capacity The number of records held, a power of two.
+	 */
+	TransactionRing(int capacity) {
+		if (Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}
+		this.mask = capacity - 1;
+		this.records = new long[capacity * STRIDE];
+		this.sequences = new AtomicLongArray(capacity);
+		for (int slot = 0; slot < capacity; slot++) {
+			sequences.set(slot, slot);
+		}
+	}
+
+	/**
+	 * Adds a record. Safe to call from any thread.
+	 *
+	 * @return false if the queue is full
+	 */
+	boolean offer(
+			long time,
+			int type,
+			long accountMostSigBits,
+			long accountLeastSigBits,
+			long otherMostSigBits,
+			long otherLeastSigBits,
+			long amount,
+			long balance
+	) {
+		long position;
+		int slot;
+		while (true) {
+			position = tail.get();
+			slot = (int) position & mask;
+			long sequence = sequences.get(slot);
+			if (sequence == position) {
+				if (tail.compareAndSet(position, position + 1)) break;
+			} else if (sequence < position) {
+				// The reader has not handed this slot back from the previous lap yet
+				return false;
+			}
+			// Otherwise another writer claimed the position first
+		}
+
+		int row = slot * STRIDE;
+		records[row] = time;
+		records[row + 1] = type;
+		records[row + 2] = accountMostSigBits;
+		records[row + 3] = accountLeastSigBits;
+		records[row + 4] = otherMostSigBits;
+		records[row + 5] = otherLeastSigBits;
+		records[row + 6] = amount;
+		records[row + 7] = balance;
+		// Volatile, so the row is visible to the reader before the slot is
+		sequences.set(slot, position + 1);
+		return true;
+	}
+
+	/**
+	 * @return Whether no published record is waiting. Only called by the reader.
+	 */
+	boolean isEmpty() {
+		return sequences.get((int) head & mask) != head + 1;
+	}
+
+	/**
+	 * Moves published records into a buffer in the segment record format, in order, while they fit.
+	 * Only called by the reader.
+	 *
+	 * @param out The buffer to fill.
+	 * @return The number of records moved.
+	 */
+	int drain(@NotNull ByteBuffer out) {
+		int drained = 0;
+		while (out.remaining() >= HistorySegment.RECORD_SIZE) {
+			int slot = (int) head & mask;
+			if (sequences.get(slot) != head + 1) break;
+
+			int row = slot * STRIDE;
+			out.putLong(records[row]);
+			out.putInt((int) records[row + 1]);
+			out.putInt(0);
+			out.putLong(records[row + 2]);
+			out.putLong(records[row + 3]);
+			out.putLong(records[row + 4]);
+			out.putLong(records[row + 5]);
+			out.putLong(records[row + 6]);
+			out.putLong(records[row + 7]);
+			// Hand the slot back for the writer one lap ahead
+			sequences.set(slot, head + mask + 1);
+			head++;
+			drained++;
+		}
+		return drained;
+	}
+}
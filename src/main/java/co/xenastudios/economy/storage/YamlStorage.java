@@ -0,0 +1,229 @@
+package co.xenastudios.economy.storage;
+
+import co.xenastudios.economy.jfr.FileWriteEvent;
+import co.xenastudios.economy.utilities.MoneyUtility;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * The YAML backend: balances in playerdata.yml, banknotes in banknotes.dat.
+ * <p>
+ * The file is still valid YAML, but is written as one {@code <uuid>: <balance>} line per account under
+ * a header line, so it is read and written as a stream, never held in memory as a whole.
+ * Files without the header, as written by older versions or edited by hand, are parsed as YAML.
+ */
+public final class YamlStorage extends FileStorage {
+	private static final String HEADER = "# Economy balances, one '<uuid>: <balance>' line per account";
+
+	private YamlStorage(@NotNull Path playerFile, @NotNull Logger logger, boolean durable, @NotNull BanknoteStore banknotes) {
+		super(playerFile, logger, durable, banknotes);
+	}
+
+	/**
+	 * Opens the backend, importing banknotes.yml into banknotes.dat and balances.dat or accounts.dat
+	 * into playerdata.yml the first time.
+	 *
+	 * @param directory     The plugin data folder.
+	 * @param logger        The logger for load and migration warnings.
+	 * @param durable       Whether every write is fsynced before it returns.
+	 * @param minTombstones How many redeemed banknotes must pile up before compaction is worthwhile.
+	 * @return The opened backend.
+	 * @throws IOException If banknotes.dat could not be opened or the balances could not be imported.
+	 */
+	public static @NotNull YamlStorage open(
+			@NotNull Path directory,
+			@NotNull Logger logger,
+			boolean durable,
+			int minTombstones
+	) throws IOException {
+		BanknoteStore banknotes = openBanknotes(directory, logger, durable, minTombstones);
+		YamlStorage storage = new YamlStorage(directory.resolve("playerdata.yml"), logger, durable, banknotes);
+		try {
+			Path snapshotFile = directory.resolve(BinaryStorage.FILE_NAME);
+			storage.importIfMissing(snapshotFile, consumer -> BalanceSnapshot.read(snapshotFile, consumer));
+			Path accountFile = directory.resolve(MappedStorage.FILE_NAME);
+			storage.importIfMissing(accountFile, consumer -> AccountFile.read(accountFile, logger, consumer));
+		} catch (IOException e) {
+			banknotes.close();
+			throw e;
+		}
+		return storage;
+	}
+
+	@Override
+	public void loadBalances(@NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		read(balanceFile, logger, consumer);
+	}
+
+	/**
+	 * Reads every account in a playerdata.yml file, in either form.
+	 *
+	 * @param file     The playerdata.yml file.
+	 * @param logger   The logger for invalid entries.
+	 * @param consumer The entry consumer.
+	 * @throws IOException If the file could not be read or parsed.
+	 */
+	static void read(@NotNull Path file, @NotNull Logger logger, @NotNull BalanceTable.EntryConsumer consumer) throws IOException {
+		if (!Files.exists(file)) return;
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (!HEADER.equals(reader.readLine())) {
+				readLegacy(file, logger, consumer);
+				return;
+			}
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				readLine(line, logger, consumer);
+			}
+		}
+	}
+
+	/**
+	 * Reads one account line, skipping blank lines and comments.
+	 */
+	private static void readLine(@NotNull String line, @NotNull Logger logger, @NotNull BalanceTable.EntryConsumer consumer) {
+		if (line.isBlank() || line.startsWith("#")) return;
+
+		int separator = line.indexOf(':');
+		if (separator < 0) {
+			logger.warning("Skipping invalid line '" + line + "' in playerdata.yml.");
+			return;
+		}
+
+		String key = unquote(line.substring(0, separator).trim());
+		UUID account;
+		long balance;
+		try {
+			account = UUID.fromString(key);
+			// Parsed exactly, as the line format is written exactly
+			balance = new BigDecimal(line.substring(separator + 1).trim())
+					.movePointRight(MoneyUtility.FRACTIONAL_DIGITS)
+					.setScale(0, RoundingMode.HALF_UP)
+					.longValueExact();
+		} catch (IllegalArgumentException | ArithmeticException e) {
+			logger.warning("Skipping invalid account '" + key + "' in playerdata.yml.");
+			return;
+		}
+		consumer.accept(account.getMostSignificantBits(), account.getLeastSignificantBits(), balance);
+	}
+
+	private static @NotNull String unquote(@NotNull String key) {
+		if (key.length() < 2) return key;
+
+		char quote = key.charAt(0);
+		if ((quote == '\'' || quote == '"') && key.charAt(key.length() - 1) == quote) {
+			return key.substring(1, key.length() - 1);
+		}
+		return key;
+	}
+
+	/**
+	 * Parses the whole file as YAML, for files written before the line format.
+	 */
+	private static void readLegacy(
+			@NotNull Path file,
+			@NotNull Logger logger,
+			@NotNull BalanceTable.EntryConsumer consumer
+	) throws IOException {
+		YamlConfiguration playerConfig = new YamlConfiguration();
+		try {
+			playerConfig.load(file.toFile());
+		} catch (InvalidConfigurationException e) {
+			throw new IOException("Invalid playerdata.yml", e);
+		}
+
+		for (String key : playerConfig.getKeys(false)) {
+			UUID account;
+			try {
+				account = UUID.fromString(key);
+			} catch (IllegalArgumentException e) {
+				logger.warning("Skipping invalid account '" + key + "' in playerdata.yml.");
+				continue;
+			}
+			double balance = playerConfig.getDouble(key);
+			if (!MoneyUtility.isValid(balance)) {
+				logger.warning("Skipping out of range balance " + balance + " of account " + key + " in playerdata.yml.");
+				continue;
+			}
+			consumer.accept(
+					account.getMostSignificantBits(),
+					account.getLeastSignificantBits(),
+					MoneyUtility.toMinor(balance)
+			);
+		}
+	}
+
+	/**
+	 * Writes the accounts to a temporary file, which is moved over playerdata.yml once committed.
+	 * In durable mode the file is fsynced first, as the journal it replaces is discarded afterwards.
+	 */
+	@Override
+	public @NotNull BalanceWriter replaceBalances() throws IOException {
+		Path tempFile = balanceFile.resolveSibling(balanceFile.getFileName() + ".tmp");
+		Files.createDirectories(balanceFile.toAbsolutePath().getParent());
+		FileChannel channel = FileChannel.open(
+				tempFile,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING
+		);
+		Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+		out.write(HEADER);
+		out.write('\n');
+		FileWriteEvent event = new FileWriteEvent();
+		event.begin();
+
+		return new BalanceWriter() {
+			private boolean committed;
+
+			@Override
+			public void write(long mostSigBits, long leastSigBits, long balance) throws IOException {
+				// Written from minor units, so the amount is exact and never in exponent form
+				out.write(new UUID(mostSigBits, leastSigBits).toString());
+				out.write(": ");
+				out.write(BigDecimal.valueOf(balance, MoneyUtility.FRACTIONAL_DIGITS).toPlainString());
+				out.write('\n');
+			}
+
+			@Override
+			public void commit() throws IOException {
+				out.flush();
+				long forcing = System.nanoTime();
+				if (durable) {
+					channel.force(true);
+				}
+				long forceTime = System.nanoTime() - forcing;
+				long bytes = channel.size();
+				out.close();
+				Files.move(tempFile, balanceFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				committed = true;
+				event.commit(balanceFile.getFileName().toString(), bytes, durable, forceTime);
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (committed) return;
+				out.close();
+				Files.deleteIfExists(tempFile);
+			}
+		};
+	}
+}
@@ -0,0 +1,116 @@
+package co.xenastudios.economy.utilities;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats amounts as currency, e.g. {@code $1,234.56}.
+ * <p>
+ * Unlike {@link java.text.DecimalFormat}, the pattern is resolved once up front and amounts are
+ * rendered digit by digit from their fixed-point minor units, so formatting parses nothing and
+ * allocates nothing beyond the returned string. Instances are immutable and thread-safe.
+ */
+public final class CurrencyFormatter {
+	// Enough for every digit of a long, its group separators and the decimal separator
+	private static final int MAX_NUMBER_LENGTH = 19 + 6 + 1;
+
+	private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_NUMBER_LENGTH]);
+
+	private final String symbol;
+	private final boolean symbolAfter;
+	private final boolean grouping;
+	private final char groupingSeparator;
+	private final char decimalSeparator;
+	private final char minusSign;
+
+	/**
+	 * @param symbol      The currency symbol.
+	 * @param symbolAfter Whether the symbol follows the number instead of preceding it.
+	 * @param locale      The locale whose grouping, decimal and minus characters are used.
+	 * @param grouping    Whether to separate thousands.
+	 */
+	public CurrencyFormatter(@NotNull String symbol, boolean symbolAfter, @NotNull Locale locale, boolean grouping) {
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		this.symbol = symbol;
+		this.symbolAfter = symbolAfter;
+		this.grouping = grouping;
+		this.groupingSeparator = symbols.getGroupingSeparator();
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.minusSign = symbols.getMinusSign();
+	}
+
+	/**
+	 * Formats an amount, rounded to the nearest cent.
+	 * Amounts no balance can hold are shown as plain numbers.
+	 *
+	 * @param amount The amount.
+	 * @return The formatted amount.
+	 */
+	public @NotNull String format(double amount) {
+		if (!MoneyUtility.isValid(amount)) return String.valueOf(amount);
+		return format(MoneyUtility.toMinor(amount));
+	}
+
+	/**
+	 * Formats an amount held in minor units.
+	 *
+	 * @param minor The amount in minor units.
+	 * @return The formatted amount.
+	 */
+	public @NotNull String format(long minor) {
+		char[] buffer = BUFFER.get();
+		int start = render(minor, buffer);
+		return formatTo(minor, buffer, start, new StringBuilder(MAX_NUMBER_LENGTH - start + symbol.length() + 1)).toString();
+	}
+
+	/**
+	 * Appends an amount held in minor units to a builder, without allocating.
+	 *
+	 * @param minor The amount in minor units.
+	 * @param out   The builder to append to.
+	 * @return The builder.
+	 */
+	public @NotNull StringBuilder formatTo(long minor, @NotNull StringBuilder out) {
+		char[] buffer = BUFFER.get();
+		return formatTo(minor, buffer, render(minor, buffer), out);
+	}
+
+	private @NotNull StringBuilder formatTo(long minor, char @NotNull [] buffer, int start, @NotNull StringBuilder out) {
+		// The minus sign goes before the symbol, as in -$1.00
+		if (minor < 0) out.append(minusSign);
+		if (!symbolAfter) out.append(symbol);
+		out.append(buffer, start, MAX_NUMBER_LENGTH - start);
+		if (symbolAfter) out.append(symbol);
+		return out;
+	}
+
+	/**
+	 * Writes the unsigned number right-aligned into the buffer.
+	 *
+	 * @return The index of its first character.
+	 */
+	private int render(long minor, char @NotNull [] buffer) {
+		int position = MAX_NUMBER_LENGTH;
+
+		// Work with the negated value, which also covers Long.MIN_VALUE
+		long remaining = minor < 0 ? minor : -minor;
+		for (int i = 0; i < MoneyUtility.FRACTIONAL_DIGITS; i++) {
+			buffer[--position] = (char) ('0' - remaining % 10);
+			remaining /= 10;
+		}
+		buffer[--position] = decimalSeparator;
+
+		int digits = 0;
+		do {
+			if (grouping && digits > 0 && digits % 3 == 0) {
+				buffer[--position] = groupingSeparator;
+			}
+			buffer[--position] = (char) ('0' - remaining % 10);
+			remaining /= 10;
+			digits++;
+		} while (remaining != 0);
+		return position;
+	}
+}
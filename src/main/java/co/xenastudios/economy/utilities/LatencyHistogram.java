@@ -0,0 +1,126 @@
+package co.xenastudios.economy.utilities;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds, recorded from any thread without locks.
+ * <p>
+ * Durations are counted in a fixed array of log-linear buckets: each power of two is split into
+ * eight equal buckets, so a percentile read back is within 12.5% of the true value, and the whole
+ * range up to an hour takes a few hundred counters. Recording is one atomic increment, plus a
+ * compare-and-set on the rare occasions a new maximum is seen.
+ */
+public final class LatencyHistogram {
+	// Buckets per power of two
+	private static final int SUB_BITS = 3;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	// Durations from 2^42 ns, about 73 minutes, share the last bucket
+	private static final int MAX_EXPONENT = 42;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * The counts of a histogram at one moment.
+	 *
+	 * @param count      The number of durations recorded.
+	 * @param totalNanos The sum of the durations.
+	 * @param maxNanos   The longest duration.
+	 * @param counts     The count of each bucket.
+	 */
+	public record Snapshot(long count, long totalNanos, long maxNanos, long @NotNull [] counts) {
+
+		/**
+		 * Gets a percentile, as the upper bound of the bucket it falls in, never above the maximum.
+		 *
+		 * @param percentile The percentile, from 0 to 100.
+		 * @return The duration in nanoseconds, or 0 if nothing was recorded.
+		 */
+		public long percentile(double percentile) {
+			if (count == 0) return 0L;
+
+			long rank = Math.max(1L, (long) Math.ceil(count * percentile / 100.0D));
+			long seen = 0L;
+			for (int bucket = 0; bucket < counts.length; bucket++) {
+				seen += counts[bucket];
+				if (seen >= rank) {
+					return Math.min(upperBound(bucket), maxNanos);
+				}
+			}
+			return maxNanos;
+		}
+
+		/**
+		 * @return The mean duration in nanoseconds, or 0 if nothing was recorded.
+		 */
+		public long meanNanos() {
+			return count == 0 ? 0L : totalNanos / count;
+		}
+	}
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos The duration in nanoseconds.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts.incrementAndGet(bucket(nanos));
+		total.add(nanos);
+
+		long currentMax = max.get();
+		while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * Reads the counts. Durations recorded meanwhile may be only partly included.
+	 *
+	 * @return The snapshot.
+	 */
+	public @NotNull Snapshot snapshot() {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0L;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			snapshot[bucket] = counts.get(bucket);
+			count += snapshot[bucket];
+		}
+		return new Snapshot(count, total.sum(), max.get(), snapshot);
+	}
+
+	/**
+	 * Clears the counts. Durations recorded meanwhile may be only partly cleared.
+	 */
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			counts.set(bucket, 0L);
+		}
+		total.reset();
+		max.set(0L);
+	}
+
+	private static int bucket(long nanos) {
+		if (nanos < SUB_COUNT) return (int) nanos;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_COUNT) return bucket;
+		if (bucket == BUCKETS - 1) return Long.MAX_VALUE;
+
+		int shift = bucket / SUB_COUNT - 1;
+		long lower = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+		return lower + (1L << shift) - 1;
+	}
+}
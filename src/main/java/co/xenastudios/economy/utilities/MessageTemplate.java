@@ -0,0 +1,244 @@
+package co.xenastudios.economy.utilities;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A MiniMessage string parsed once and rendered many times.
+ * <p>
+ * The placeholders of {@link Variable} ({@code <amount>}, {@code <player>}, {@code <count>} and so on) are parsed
+ * into marker characters, so rendering only walks the parsed component tree and swaps the markers for the
+ * given values, rebuilding just the components that contain one. Values are inserted as plain
+ * text, like {@link Placeholder#unparsed(String, String)}.
+ */
+public final class MessageTemplate {
+	// Private use characters that never appear in config messages stand in for each variable
+	private static final char MARKER_BASE = '\uE000';
+
+	private static final Variable[] VARIABLES = Variable.values();
+	private static final TagResolver MARKERS;
+
+	static {
+		TagResolver[] markers = new TagResolver[VARIABLES.length];
+		for (Variable variable : VARIABLES) {
+			markers[variable.ordinal()] = Placeholder.unparsed(variable.tag, String.valueOf(variable.marker()));
+		}
+		MARKERS = TagResolver.resolver(markers);
+	}
+
+	/**
+	 * The placeholders substituted at render time.
+	 */
+	public enum Variable {
+		AMOUNT("amount"),
+		PLAYER("player"),
+		BALANCE("balance"),
+		COUNT("count"),
+		BANKNOTES("banknotes"),
+		RATE("rate"),
+		FROM("from"),
+		TO("to"),
+		REASON("reason"),
+		RANK("rank"),
+		PAGE("page"),
+		PAGES("pages"),
+		TIME("time"),
+		TYPE("type"),
+		OPERATION("operation"),
+		P50("p50"),
+		P99("p99"),
+		MAX("max"),
+		FILE("file"),
+		USAGE("usage");
+
+		private final String tag;
+
+		Variable(@NotNull String tag) {
+			this.tag = tag;
+		}
+
+		private char marker() {
+			return (char) (MARKER_BASE + ordinal());
+		}
+	}
+
+	private final Component compiled;
+	private final boolean hasVariables;
+
+	private MessageTemplate(@NotNull Component compiled, boolean hasVariables) {
+		this.compiled = compiled;
+		this.hasVariables = hasVariables;
+	}
+
+	/**
+	 * Parses a MiniMessage string into a template.
+	 *
+	 * @param message The MiniMessage string.
+	 * @return The parsed template.
+	 */
+	public static @NotNull MessageTemplate compile(@NotNull String message) {
+		boolean hasVariables = false;
+		for (Variable variable : VARIABLES) {
+			hasVariables |= message.indexOf('<' + variable.tag) >= 0;
+		}
+		return new MessageTemplate(MiniMessage.miniMessage().deserialize(message, MARKERS), hasVariables);
+	}
+
+	/**
+	 * Renders the template without values; any placeholders are shown as written.
+	 *
+	 * @return The rendered Component.
+	 */
+	public @NotNull Component render() {
+		return render(new String[VARIABLES.length]);
+	}
+
+	/**
+	 * Renders the template with one value.
+	 *
+	 * @param variable The placeholder.
+	 * @param value    Its value.
+	 * @return The rendered Component.
+	 */
+	public @NotNull Component render(@NotNull Variable variable, String value) {
+		String[] values = new String[VARIABLES.length];
+		values[variable.ordinal()] = value;
+		return render(values);
+	}
+
+	/**
+	 * Renders the template with two values.
+	 *
+	 * @param first       The first placeholder.
+	 * @param firstValue  Its value.
+	 * @param second      The second placeholder.
+	 * @param secondValue Its value.
+	 * @return The rendered Component.
+	 */
+	public @NotNull Component render(
+			@NotNull Variable first,
+			String firstValue,
+			@NotNull Variable second,
+			String secondValue
+	) {
+		String[] values = new String[VARIABLES.length];
+		values[first.ordinal()] = firstValue;
+		values[second.ordinal()] = secondValue;
+		return render(values);
+	}
+
+	/**
+	 * Renders the template with three values.
+	 *
+	 * @param first       The first placeholder.
+	 * @param firstValue  Its value.
+	 * @param second      The second placeholder.
+	 * @param secondValue Its value.
+	 * @param third       The third placeholder.
+	 * @param thirdValue  Its value.
+	 * @return The rendered Component.
+	 */
+	public @NotNull Component render(
+			@NotNull Variable first,
+			String firstValue,
+			@NotNull Variable second,
+			String secondValue,
+			@NotNull Variable third,
+			String thirdValue
+	) {
+		String[] values = new String[VARIABLES.length];
+		values[first.ordinal()] = firstValue;
+		values[second.ordinal()] = secondValue;
+		values[third.ordinal()] = thirdValue;
+		return render(values);
+	}
+
+	/**
+	 * Renders the template with any number of values.
+	 *
+	 * @param values The value of each placeholder.
+	 * @return The rendered Component.
+	 */
+	public @NotNull Component render(@NotNull Map<Variable, String> values) {
+		String[] array = new String[VARIABLES.length];
+		values.forEach((variable, value) -> array[variable.ordinal()] = value);
+		return render(array);
+	}
+
+	private @NotNull Component render(String @NotNull [] values) {
+		return hasVariables ? substitute(compiled, values) : compiled;
+	}
+
+	/**
+	 * @return The component with its markers replaced, or the same instance if it contains none.
+	 */
+	private static @NotNull Component substitute(@NotNull Component component, String @NotNull [] values) {
+		Component result = component;
+
+		if (component instanceof TextComponent text) {
+			String content = text.content();
+			String replaced = substitute(content, values);
+			if (replaced != content) {
+				result = text.content(replaced);
+			}
+		}
+
+		// Hover text is parsed with the same resolvers, so it can hold markers too
+		HoverEvent<?> hoverEvent = component.hoverEvent();
+		if (hoverEvent != null && hoverEvent.value() instanceof Component hoverText) {
+			Component replaced = substitute(hoverText, values);
+			if (replaced != hoverText) {
+				result = result.hoverEvent(HoverEvent.showText(replaced));
+			}
+		}
+
+		List<Component> children = component.children();
+		List<Component> replacedChildren = null;
+		for (int i = 0; i < children.size(); i++) {
+			Component child = children.get(i);
+			Component replaced = substitute(child, values);
+			if (replaced != child) {
+				if (replacedChildren == null) {
+					replacedChildren = new ArrayList<>(children);
+				}
+				replacedChildren.set(i, replaced);
+			}
+		}
+		if (replacedChildren != null) {
+			result = result.children(replacedChildren);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The text with its markers replaced, or the same instance if it contains none.
+	 */
+	private static @NotNull String substitute(@NotNull String text, String @NotNull [] values) {
+		StringBuilder builder = null;
+		int copied = 0;
+		for (int i = 0; i < text.length(); i++) {
+			int variable = text.charAt(i) - MARKER_BASE;
+			if (variable < 0 || variable >= values.length) continue;
+
+			if (builder == null) {
+				builder = new StringBuilder(text.length() + 16);
+			}
+			builder.append(text, copied, i);
+			String value = values[variable];
+			builder.append(value != null ? value : '<' + VARIABLES[variable].tag + '>');
+			copied = i + 1;
+		}
+
+		if (builder == null) return text;
+		return builder.append(text, copied, text.length()).toString();
+	}
+}
@@ -0,0 +1,81 @@
+package co.xenastudios.economy.utilities;
+
+/**
+ * Utility class for converting amounts between Vault's {@code double} values
+ * and the fixed-point minor units (cents) balances are stored in.
+ */
+public final class MoneyUtility {
+	/**
+	 * The number of digits after the decimal point, as reported to Vault.
+	 */
+	public static final int FRACTIONAL_DIGITS = 2;
+
+	/**
+	 * The largest amount or balance in minor units, ten trillion in major units.
+	 * Kept below 2^53 so every amount converts to a double and back exactly, and far enough from
+	 * {@link Long#MAX_VALUE} that adding two of them can never wrap around.
+	 */
+	public static final long MAX_MINOR = 1_000_000_000_000_000L;
+
+	/**
+	 * The largest amount or balance in major units.
+	 */
+	public static final double MAX_AMOUNT = MAX_MINOR / 100.0;
+
+	private static final double MINOR_PER_MAJOR = 100.0;
+
+	// Private constructor to prevent instantiation
+	private MoneyUtility() {
+		throw new UnsupportedOperationException("Utility class");
+	}
+
+	/**
+	 * Checks that an amount is a number within {@link #MAX_AMOUNT} either way.
+	 *
+	 * @param amount The amount.
+	 * @return true if the amount can be converted to minor units
+	 */
+	public static boolean isValid(double amount) {
+		return Double.isFinite(amount) && Math.abs(amount) <= MAX_AMOUNT;
+	}
+
+	/**
+	 * Converts an amount to minor units, rounding to the nearest cent.
+	 *
+	 * @param amount The amount.
+	 * @return The amount in minor units.
+	 * @throws IllegalArgumentException If the amount is not {@link #isValid(double) valid}.
+	 */
+	public static long toMinor(double amount) {
+		if (!isValid(amount)) {
+			throw new IllegalArgumentException("Amount out of range: " + amount);
+		}
+		return Math.round(amount * MINOR_PER_MAJOR);
+	}
+
+	/**
+	 * Adds a change to a balance.
+	 *
+	 * @param balance The balance in minor units.
+	 * @param change  The change in minor units, negative to take money away.
+	 * @return The new balance in minor units.
+	 * @throws ArithmeticException If the new balance would be beyond {@link #MAX_MINOR} either way.
+	 */
+	public static long add(long balance, long change) {
+		long result = Math.addExact(balance, change);
+		if (Math.abs(result) > MAX_MINOR) {
+			throw new ArithmeticException("Balance out of range: " + result);
+		}
+		return result;
+	}
+
+	/**
+	 * Converts minor units back to an amount.
+	 *
+	 * @param minor The amount in minor units.
+	 * @return The amount.
+	 */
+	public static double toMajor(long minor) {
+		return minor / MINOR_PER_MAJOR;
+	}
+}
@@ -10,7 +10,6 @@ import org.bukkit.command.CommandSender;
  * Utility class for formatting and sending MiniMessage-based messages.
  */
 public final class MsgUtility {
-
 	// Private constructor to prevent instantiation
 	private MsgUtility() {
 		throw new UnsupportedOperationException("Utility class");
@@ -55,6 +54,18 @@ public final class MsgUtility {
 		}
 	}
 
+	/**
+	 * Sends an already formatted message to a CommandSender.
+	 *
+	 * @param sender  The recipient.
+	 * @param message The formatted Component.
+	 */
+	public static void send(CommandSender sender, Component message) {
+		if (sender != null && message != null) {
+			sender.sendMessage(message);
+		}
+	}
+
 	/**
 	 * Sends a formatted message with placeholders to a CommandSender.
 	 *
@@ -80,6 +91,18 @@ public final class MsgUtility {
 		}
 	}
 
+	/**
+	 * Broadcasts an already formatted message to the entire server.
+	 *
+	 * @param server  The server instance.
+	 * @param message The formatted Component.
+	 */
+	public static void broadcast(Server server, Component message) {
+		if (server != null && message != null) {
+			server.broadcast(message);
+		}
+	}
+
 	/**
 	 * Broadcasts a formatted message with placeholders to the entire server.
 	 *